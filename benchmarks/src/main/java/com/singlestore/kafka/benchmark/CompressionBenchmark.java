@@ -0,0 +1,118 @@
+package com.singlestore.kafka.benchmark;
+
+import com.singlestore.kafka.sink.BenchmarkConfigs;
+import com.singlestore.kafka.sink.CsvDbWriter;
+import com.singlestore.kafka.utils.ColumnAccessorPlanCache;
+import com.singlestore.kafka.utils.DataCompression;
+import com.singlestore.kafka.utils.DataExtension;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// CompressionBenchmark measures the DataExtension streams on the encoded LOAD DATA input
+// compress measures only the codec, encodeAndCompress measures the whole producer side of the stream
+// level -1 uses the default level of every codec, other levels are clamped to the maximum level of the codec
+// parallelism greater than 1 compresses blocks of blockSize bytes on a pool of threads
+// The results are reported in batches per second, the compressed size is printed after the setup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    private static final int RECORDS = 10000;
+    private static final int WRITE_SIZE = 8192;
+
+    @Param({"gzip", "lz4", "zstd", "skip"})
+    public DataCompression compression;
+
+    @Param({"-1", "9"})
+    public int level;
+
+    @Param({"FLAT", "NESTED"})
+    public Records.SchemaType schemaType;
+
+    @Param({"16", "1024"})
+    public int stringLength;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    @Param({"1048576"})
+    public int blockSize;
+
+    private List<SinkRecord> records;
+    private CsvDbWriter writer;
+    private byte[] data;
+    private ExecutorService executor;
+
+    @Setup
+    public void setup() throws IOException {
+        executor = Executors.newFixedThreadPool(parallelism);
+        records = new Records(stringLength).create(schemaType, RECORDS);
+        writer = new CsvDbWriter(BenchmarkConfigs.create(Collections.emptyMap()), records.get(0), "benchmark", new ColumnAccessorPlanCache());
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.writeData(stream, records);
+        data = stream.toByteArray();
+
+        System.out.printf("%nEncoded size: %d bytes, compressed size: %d bytes%n", data.length, compress());
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private OutputStream compressionStream(OutputStream stream) {
+        if (parallelism > 1) {
+            return DataExtension.forParallelCompression(compression, codecLevel(), blockSize,
+                executor, parallelism, stream).getOutputStream();
+        }
+        return DataExtension.forCompression(compression, codecLevel(), stream).getOutputStream();
+    }
+
+    private int codecLevel() {
+        return level == DataExtension.DEFAULT_LEVEL ? level : Math.min(level, compression.getMaxLevel());
+    }
+
+    @Benchmark
+    public long compress() throws IOException {
+        CountingOutputStream stream = new CountingOutputStream();
+        OutputStream outputStream = compressionStream(stream);
+        for (int i = 0; i < data.length; i += WRITE_SIZE) {
+            outputStream.write(data, i, Math.min(WRITE_SIZE, data.length - i));
+        }
+        outputStream.close();
+        return stream.getCount();
+    }
+
+    @Benchmark
+    public long encodeAndCompress() throws IOException {
+        CountingOutputStream stream = new CountingOutputStream();
+        OutputStream outputStream = compressionStream(stream);
+        writer.writeData(outputStream, records);
+        outputStream.close();
+        return stream.getCount();
+    }
+}
@@ -0,0 +1,24 @@
+package com.singlestore.kafka.benchmark;
+
+import java.io.OutputStream;
+
+// CountingOutputStream discards the data and counts the number of written bytes
+// it replaces the LOAD DATA stream, so the benchmarks measure only the client side
+public class CountingOutputStream extends OutputStream {
+
+    private long count = 0;
+
+    @Override
+    public void write(int b) {
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        count += len;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
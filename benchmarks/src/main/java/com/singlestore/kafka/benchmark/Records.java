@@ -0,0 +1,197 @@
+package com.singlestore.kafka.benchmark;
+
+import com.singlestore.kafka.utils.ColumnMapping;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Records generates deterministic batches of records for the benchmarks
+// All records of a batch share the schema instance the same way as records produced by converters do
+public class Records {
+
+    public static final String TOPIC = "benchmark";
+    public static final List<String> REGIONS = Arrays.asList("us", "eu", "asia", "other");
+
+    public enum SchemaType {
+        // struct with primitive fields only
+        FLAT,
+        // struct with nested struct, array and map fields
+        NESTED,
+        // java.util.Map values without schema
+        SCHEMALESS
+    }
+
+    private static final Schema ADDRESS_SCHEMA = SchemaBuilder.struct()
+        .field("city", Schema.STRING_SCHEMA)
+        .field("zip", Schema.INT32_SCHEMA)
+        .build();
+
+    private static final Schema FLAT_SCHEMA = SchemaBuilder.struct().name("flat")
+        .field("id", Schema.INT64_SCHEMA)
+        .field("region", Schema.STRING_SCHEMA)
+        .field("name", Schema.STRING_SCHEMA)
+        .field("score", Schema.FLOAT64_SCHEMA)
+        .field("active", Schema.BOOLEAN_SCHEMA)
+        .field("count", Schema.INT32_SCHEMA)
+        .field("payload", Schema.BYTES_SCHEMA)
+        .build();
+
+    private static final Schema NESTED_SCHEMA = SchemaBuilder.struct().name("nested")
+        .field("id", Schema.INT64_SCHEMA)
+        .field("region", Schema.STRING_SCHEMA)
+        .field("name", Schema.STRING_SCHEMA)
+        .field("address", ADDRESS_SCHEMA)
+        .field("tags", SchemaBuilder.array(Schema.STRING_SCHEMA).build())
+        .field("attributes", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT32_SCHEMA).build())
+        .build();
+
+    private static final Schema ADDRESSES_SCHEMA = SchemaBuilder.array(ADDRESS_SCHEMA).build();
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+
+    private final Random random = new Random(42);
+    private final int stringLength;
+
+    public Records(int stringLength) {
+        this.stringLength = stringLength;
+    }
+
+    // string generates a random string that contains characters escaped in the TSV format
+    private String string(int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int n = random.nextInt(100);
+            if (n == 0) {
+                builder.append('\t');
+            } else if (n == 1) {
+                builder.append('\\');
+            } else if (n == 2) {
+                builder.append('\n');
+            } else if (n == 3) {
+                builder.append('\u00fc');
+            } else {
+                builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return builder.toString();
+    }
+
+    public List<SinkRecord> create(SchemaType schemaType, int count) {
+        List<SinkRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Object value;
+            Schema schema;
+            switch (schemaType) {
+                case FLAT:
+                    schema = FLAT_SCHEMA;
+                    value = new Struct(FLAT_SCHEMA)
+                        .put("id", (long) i)
+                        .put("region", REGIONS.get(i % REGIONS.size()))
+                        .put("name", string(stringLength))
+                        .put("score", random.nextDouble() * 1000)
+                        .put("active", random.nextBoolean())
+                        .put("count", random.nextInt())
+                        .put("payload", string(stringLength).getBytes(StandardCharsets.UTF_8));
+                    break;
+                case NESTED:
+                    schema = NESTED_SCHEMA;
+                    value = new Struct(NESTED_SCHEMA)
+                        .put("id", (long) i)
+                        .put("region", REGIONS.get(i % REGIONS.size()))
+                        .put("name", string(stringLength))
+                        .put("address", address())
+                        .put("tags", Arrays.asList(string(stringLength / 4), string(stringLength / 4)))
+                        .put("attributes", attributes());
+                    break;
+                case SCHEMALESS:
+                    schema = null;
+                    Map<String, Object> map = new HashMap<>();
+                    map.put("id", (long) i);
+                    map.put("region", REGIONS.get(i % REGIONS.size()));
+                    map.put("name", string(stringLength));
+                    Map<String, Object> address = new HashMap<>();
+                    address.put("city", string(stringLength / 4));
+                    address.put("zip", random.nextInt(100000));
+                    map.put("address", address);
+                    map.put("tags", Arrays.asList(string(stringLength / 4), string(stringLength / 4)));
+                    map.put("attributes", attributes());
+                    value = map;
+                    break;
+                default:
+                    throw new IllegalArgumentException(schemaType.toString());
+            }
+            records.add(new SinkRecord(TOPIC, i % 4, null, null, schema, value, i));
+        }
+        return records;
+    }
+
+    // createNested generates records which values are serialized to JSON as a whole
+    public List<SinkRecord> createNested(SchemaType schemaType, int count) {
+        List<SinkRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<Object> addresses = new ArrayList<>();
+            for (int j = 0; j < 4; j++) {
+                if (schemaType == SchemaType.SCHEMALESS) {
+                    Map<String, Object> address = new HashMap<>();
+                    address.put("city", string(stringLength / 4));
+                    address.put("zip", random.nextInt(100000));
+                    addresses.add(address);
+                } else {
+                    addresses.add(address());
+                }
+            }
+            Schema schema = schemaType == SchemaType.SCHEMALESS ? null : ADDRESSES_SCHEMA;
+            records.add(new SinkRecord(TOPIC, 0, null, null, schema, addresses, i));
+        }
+        return records;
+    }
+
+    private Struct address() {
+        return new Struct(ADDRESS_SCHEMA)
+            .put("city", string(stringLength / 4))
+            .put("zip", random.nextInt(100000));
+    }
+
+    private Map<String, Integer> attributes() {
+        Map<String, Integer> attributes = new HashMap<>();
+        for (int i = 0; i < 4; i++) {
+            attributes.put("attribute" + i, random.nextInt());
+        }
+        return attributes;
+    }
+
+    // columnMappings returns a "singlestore.columnToField" like mapping for the schema type
+    public static List<ColumnMapping> columnMappings(SchemaType schemaType) {
+        if (schemaType == SchemaType.FLAT) {
+            return Arrays.asList(
+                new ColumnMapping("id", "id"),
+                new ColumnMapping("name", "name"),
+                new ColumnMapping("score", "score")
+            );
+        }
+        return Arrays.asList(
+            new ColumnMapping("id", "id"),
+            new ColumnMapping("city", "address.city"),
+            new ColumnMapping("zip", "address.zip"),
+            new ColumnMapping("tags", "tags")
+        );
+    }
+
+    // columnToFieldProperties returns configuration properties that map columns of the table with columnMappings
+    public static Map<String, String> columnToFieldProperties(String table, SchemaType schemaType) {
+        Map<String, String> props = new HashMap<>();
+        for (ColumnMapping mapping: columnMappings(schemaType)) {
+            props.put(String.format("singlestore.columnToField.%s.%s", table, mapping.getColumnName()), mapping.getFieldPath());
+        }
+        return props;
+    }
+}
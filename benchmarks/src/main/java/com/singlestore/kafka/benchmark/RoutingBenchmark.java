@@ -0,0 +1,88 @@
+package com.singlestore.kafka.benchmark;
+
+import com.singlestore.kafka.sink.BenchmarkConfigs;
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import com.singlestore.kafka.utils.DataTransform;
+import com.singlestore.kafka.utils.JdbcHelper;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// RoutingBenchmark measures the per-record work done before the records are encoded:
+// fields whitelist projection and resolution of the target table
+// The results are reported in records per second
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+
+    private static final int RECORDS = 1000;
+
+    @Param({"FLAT", "NESTED", "SCHEMALESS"})
+    public Records.SchemaType schemaType;
+
+    private List<SinkRecord> records;
+    private DataTransform dataTransform;
+    private SingleStoreSinkConfig topicConfig;
+    private SingleStoreSinkConfig fieldConfig;
+
+    @Setup
+    public void setup() {
+        records = new Records(16).create(schemaType, RECORDS);
+        dataTransform = new DataTransform(Arrays.asList("id", "region", "name"));
+
+        Map<String, String> topicProps = new HashMap<>();
+        topicProps.put("singlestore.tableName." + Records.TOPIC, "benchmark");
+        topicConfig = BenchmarkConfigs.create(topicProps);
+
+        Map<String, String> fieldProps = new HashMap<>();
+        fieldProps.put(SingleStoreSinkConfig.RECORD_TO_TABLE_MAPPING_FIELD, "region");
+        for (String region: Records.REGIONS) {
+            fieldProps.put("singlestore.recordToTable.mapping." + region, "benchmark_" + region);
+        }
+        fieldConfig = BenchmarkConfigs.create(fieldProps);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public Collection<SinkRecord> selectWhitelistedFields() {
+        return dataTransform.selectWhitelistedFields(records);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void getTableNameByTopic(Blackhole blackhole) {
+        for (SinkRecord record: records) {
+            blackhole.consume(JdbcHelper.getTableName(record, topicConfig));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void getTableNameByField(Blackhole blackhole) {
+        for (SinkRecord record: records) {
+            blackhole.consume(JdbcHelper.getTableName(record, fieldConfig));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.singlestore.kafka.benchmark;
+
+import com.singlestore.kafka.sink.BenchmarkConfigs;
+import com.singlestore.kafka.sink.CsvDbWriter;
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import com.singlestore.kafka.utils.ColumnAccessorPlanCache;
+import com.singlestore.kafka.utils.ColumnMapping;
+import com.singlestore.kafka.utils.ValueWithSchema;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// SerializationBenchmark measures the encoding of records into the LOAD DATA format
+// The results are reported in records per second
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private static final int RECORDS = 1000;
+    private static final String TABLE = "benchmark";
+    private static final String MAPPED_TABLE = "benchmark_mapped";
+
+    @Param({"FLAT", "NESTED", "SCHEMALESS"})
+    public Records.SchemaType schemaType;
+
+    @Param({"16", "1024"})
+    public int stringLength;
+
+    private List<SinkRecord> records;
+    private List<SinkRecord> nestedRecords;
+    private List<String> columns;
+    private List<ColumnMapping> columnMappings;
+    private CsvDbWriter writer;
+    private CsvDbWriter mappedWriter;
+
+    @Setup
+    public void setup() {
+        Records generator = new Records(stringLength);
+        records = generator.create(schemaType, RECORDS);
+        nestedRecords = generator.createNested(schemaType, RECORDS);
+        columns = new ValueWithSchema(records.get(0)).getColumns();
+        columnMappings = Records.columnMappings(schemaType);
+
+        SingleStoreSinkConfig config = BenchmarkConfigs.create(Records.columnToFieldProperties(MAPPED_TABLE, schemaType));
+        ColumnAccessorPlanCache planCache = new ColumnAccessorPlanCache();
+        writer = new CsvDbWriter(config, records.get(0), TABLE, planCache);
+        mappedWriter = new CsvDbWriter(config, records.get(0), MAPPED_TABLE, planCache);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long writeData() throws IOException {
+        CountingOutputStream stream = new CountingOutputStream();
+        writer.writeData(stream, records);
+        return stream.getCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long writeDataWithColumnMapping() throws IOException {
+        CountingOutputStream stream = new CountingOutputStream();
+        mappedWriter.writeData(stream, records);
+        return stream.getCount();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void toCSV(Blackhole blackhole) throws IOException {
+        for (SinkRecord record: records) {
+            blackhole.consume(new ValueWithSchema(record).toCSV(columns));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void mapColumnsToCSV(Blackhole blackhole) throws IOException {
+        for (SinkRecord record: records) {
+            blackhole.consume(new ValueWithSchema(record).mapColumnsToCSV(columnMappings));
+        }
+    }
+
+    // toJSON measures values that are serialized to JSON as a whole (array of structs or list of maps)
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public void toJSON(Blackhole blackhole) throws IOException {
+        List<String> dataColumn = Collections.singletonList("data");
+        for (SinkRecord record: nestedRecords) {
+            blackhole.consume(new ValueWithSchema(record).toCSV(dataColumn));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.singlestore.kafka.sink;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// BenchmarkConfigs creates connector configurations without connecting to the database
+public class BenchmarkConfigs {
+
+    public static SingleStoreSinkConfig create(Map<String, String> overrides) {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.DDL_ENDPOINT, "localhost:3306");
+        props.put(SingleStoreSinkConfig.CONNECTION_DATABASE, "benchmark");
+        props.put(SingleStoreSinkConfig.CONNECTION_USER, "root");
+        props.putAll(overrides);
+        return new SingleStoreSinkConfig(props, false);
+    }
+}
@@ -0,0 +1,157 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.AvroColumnPlan;
+import com.singlestore.kafka.utils.AvroSchema;
+import com.singlestore.kafka.utils.ColumnMapping;
+import com.singlestore.kafka.utils.ColumnProjection;
+import com.singlestore.kafka.utils.LoadDataFormat;
+import com.singlestore.kafka.utils.TableMetadata;
+import com.singlestore.kafka.utils.TsvEncoder;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// AvroDbWriter loads records which values are Avro binary data read with ByteArrayConverter
+// Values are decoded with the writer schema from singlestore.avroSchema straight into the LOAD DATA stream
+// The columns are selected the same way as for Connect records: by singlestore.columnToField mappings
+// or top-level fields of the schema, filtered by fields.whitelist and the columns of the table
+public class AvroDbWriter implements RecordEncoder {
+
+    // magic byte and schema id that precede the value in the Confluent wire format
+    private static final int CONFLUENT_HEADER_SIZE = 5;
+
+    private final String table;
+    private final String filter;
+    private final boolean upsert;
+    private final boolean confluentHeader;
+    private final AvroColumnPlan plan;
+    private final List<String> columns;
+    // paths of the columns in the documents of the json format, null if the columns are written directly
+    private final List<String> fieldPaths;
+    private final TableMetadata tableMetadata;
+    private final LoadDataFormat format;
+
+    // tableMetadata is null if columns of the table are unknown
+    public AvroDbWriter(SingleStoreSinkConfig config, String table, TableMetadata tableMetadata) {
+        this(config, table, tableMetadata, config.getLoadDataFormat(table, null));
+    }
+
+    public AvroDbWriter(SingleStoreSinkConfig config, String table, TableMetadata tableMetadata, LoadDataFormat format) {
+        this.format = format;
+        this.table = table;
+        this.filter = config.filter;
+        this.upsert = config.upsert;
+        this.confluentHeader = config.avroConfluentHeader;
+        this.tableMetadata = tableMetadata;
+        Map<String, String[]> columnToPath = getColumnToPath(config, table, tableMetadata);
+        if (format == LoadDataFormat.json && config.tableToColumnToFieldMap.get(table) != null) {
+            // documents contain the top-level fields of the mapped paths, the paths are resolved by the server
+            Map<String, String[]> documentFieldToPath = new LinkedHashMap<>();
+            this.columns = new ArrayList<>();
+            this.fieldPaths = new ArrayList<>();
+            for (Map.Entry<String, String[]> entry: columnToPath.entrySet()) {
+                String[] path = entry.getValue();
+                documentFieldToPath.put(path[0], new String[]{path[0]});
+                columns.add(entry.getKey());
+                fieldPaths.add(String.join(".", path));
+            }
+            this.plan = new AvroColumnPlan(config.avroSchema, documentFieldToPath);
+        } else {
+            this.plan = new AvroColumnPlan(config.avroSchema, columnToPath);
+            this.columns = plan.getColumns();
+            this.fieldPaths = null;
+        }
+    }
+
+    private static Map<String, String[]> getColumnToPath(SingleStoreSinkConfig config, String table, TableMetadata tableMetadata) {
+        Set<String> whitelist = config.fieldsWhitelist == null ? new HashSet<>() : new HashSet<>(config.fieldsWhitelist);
+        Set<String> tableColumns = null;
+        if (tableMetadata != null && tableMetadata.getColumns() != null) {
+            // column names are case insensitive
+            tableColumns = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            tableColumns.addAll(tableMetadata.getColumns());
+        }
+
+        Map<String, String[]> columnToPath = new LinkedHashMap<>();
+        List<ColumnMapping> columnMappings = config.tableToColumnToFieldMap.get(table);
+        AvroSchema schema = config.avroSchema;
+        if (columnMappings != null) {
+            for (ColumnMapping mapping: columnMappings) {
+                columnToPath.put(mapping.getColumnName(), mapping.getFieldPath().split("\\."));
+            }
+        } else if (schema.getType() == AvroSchema.Type.RECORD) {
+            for (AvroSchema.Field field: schema.getFields()) {
+                columnToPath.put(field.getName(), new String[]{field.getName()});
+            }
+        } else {
+            columnToPath.put("data", new String[0]);
+            return columnToPath;
+        }
+
+        Map<String, String[]> selected = new LinkedHashMap<>();
+        List<String> dropped = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry: columnToPath.entrySet()) {
+            if (!whitelist.isEmpty() && !whitelist.contains(entry.getValue()[0])) {
+                continue;
+            }
+            if (tableColumns != null && !tableColumns.contains(entry.getKey())) {
+                dropped.add(entry.getKey());
+                continue;
+            }
+            selected.put(entry.getKey(), entry.getValue());
+        }
+        ColumnProjection.reportDroppedColumns(table, dropped);
+        return selected;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public TableMetadata getTableMetadata() {
+        return tableMetadata;
+    }
+
+    public LoadDataFormat getFormat() {
+        return format;
+    }
+
+    @Override
+    public String generateQuery(String ext) {
+        return SingleStoreDialect.getLoadDataQuery(table, columns, fieldPaths, ext, upsert, filter, format);
+    }
+
+    @Override
+    public void writeData(OutputStream outputStream, Collection<SinkRecord> records) throws IOException {
+        TsvEncoder encoder = format.createEncoder(outputStream, plan.getColumns());
+        for (SinkRecord record: records) {
+            if (!(record.value() instanceof byte[])) {
+                throw new DataException(String.format("The value of the record %s-%d:%d is not Avro binary data. " +
+                    "Records are expected to be read with ByteArrayConverter", record.topic(), record.kafkaPartition(), record.kafkaOffset()));
+            }
+            byte[] value = (byte[]) record.value();
+            int offset = 0;
+            if (confluentHeader) {
+                if (value.length < CONFLUENT_HEADER_SIZE || value[0] != 0) {
+                    throw new DataException(String.format("The value of the record %s-%d:%d doesn't start with the Confluent wire format header",
+                        record.topic(), record.kafkaPartition(), record.kafkaOffset()));
+                }
+                offset = CONFLUENT_HEADER_SIZE;
+            }
+            encoder.writeRowStart();
+            plan.write(value, offset, encoder);
+            encoder.writeRowSeparator();
+        }
+        encoder.flush();
+    }
+}
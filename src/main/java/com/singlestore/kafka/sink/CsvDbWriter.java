@@ -1,52 +1,111 @@
 package com.singlestore.kafka.sink;
 
+import com.singlestore.kafka.utils.ColumnAccessorPlan;
+import com.singlestore.kafka.utils.ColumnAccessorPlanCache;
 import com.singlestore.kafka.utils.ColumnMapping;
+import com.singlestore.kafka.utils.ColumnProjection;
+import com.singlestore.kafka.utils.LoadDataFormat;
+import com.singlestore.kafka.utils.TsvEncoder;
 import com.singlestore.kafka.utils.ValueWithSchema;
+import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.sink.SinkRecord;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class CsvDbWriter {
+public class CsvDbWriter implements RecordEncoder {
 
     List<String> columns;
     List<ColumnMapping> columnMappings;
     String filter;
     String table;
     boolean upsert;
+    ColumnProjection projection;
+    ColumnAccessorPlanCache planCache;
+    LoadDataFormat format;
+    // in the json format with column mappings records are written as documents of the top-level fields of the mapped paths,
+    // the paths are resolved by the server, so nested values are neither flattened nor escaped twice
+    List<String> documentFields;
+    ColumnAccessorPlan documentPlan;
 
-    public CsvDbWriter(SingleStoreSinkConfig config, SinkRecord record, String table) {
-        this.columnMappings = config.tableToColumnToFieldMap.get(table);
-        if (columnMappings != null) {
-            this.columns = columnMappings.stream().map(ColumnMapping::getColumnName).collect(Collectors.toList());
-        } else {
-            this.columns = new ValueWithSchema(record).getColumns();
-        }
+    // the columns are projected from the record fields or the column mappings without checking the columns of the table
+    public CsvDbWriter(SingleStoreSinkConfig config, SinkRecord record, String table, ColumnAccessorPlanCache planCache) {
+        this(config, ColumnProjection.of(table, record, Collections.emptySet(), config.tableToColumnToFieldMap.get(table), null, planCache),
+            table, planCache);
+    }
+
+    public CsvDbWriter(SingleStoreSinkConfig config, ColumnProjection projection, String table, ColumnAccessorPlanCache planCache) {
+        this(config, projection, table, planCache, config.getLoadDataFormat(table, null));
+    }
+
+    public CsvDbWriter(SingleStoreSinkConfig config, ColumnProjection projection, String table, ColumnAccessorPlanCache planCache,
+                       LoadDataFormat format) {
+        this.format = format;
+        this.projection = projection;
+        this.columnMappings = projection.getColumnMappings();
+        this.columns = projection.getColumns();
         this.filter = config.filter;
         this.table = table;
         this.upsert = config.upsert;
+        this.planCache = planCache;
+        if (format == LoadDataFormat.json && columnMappings != null) {
+            this.documentFields = columnMappings.stream()
+                .map(mapping -> mapping.getFieldPath().split("\\.")[0])
+                .distinct()
+                .collect(Collectors.toList());
+            if (projection.getSchema() != null) {
+                this.documentPlan = planCache.forColumns(projection.getSchema(), documentFields);
+            }
+        }
     }
 
+    @Override
     public String generateQuery(String ext) {
-        String queryPrefix = String.format("LOAD DATA LOCAL INFILE '###.%s'", ext);
-        String columnNames = SingleStoreDialect.escapeColumnNames(columns);
-        String queryReplace = upsert ? "REPLACE" : "";
-        String queryTable = String.format("INTO TABLE %s (%s)", SingleStoreDialect.quoteIdentifier(table), columnNames);
-        String queryFilter = filter == null ? "" : String.format("WHERE %s", filter);
-        return String.join(" ", queryPrefix, queryReplace, queryTable, queryFilter);
+        List<String> fieldPaths = documentFields == null
+            ? null
+            : columnMappings.stream().map(ColumnMapping::getFieldPath).collect(Collectors.toList());
+        return SingleStoreDialect.getLoadDataQuery(table, columns, fieldPaths, ext, upsert, filter, format);
     }
 
+    // writeData encodes records with the plan compiled for their schema
+    // records of a batch usually share the schema instance of the projection,
+    // so the cache is consulted only for records with other schemas
+    // records without schema are encoded dynamically
+    @Override
     public void writeData(OutputStream outputStream, Collection<SinkRecord> records) throws IOException {
+        List<String> encodedColumns = documentFields != null ? documentFields : columns;
+        List<ColumnMapping> encodedMappings = documentFields != null ? null : columnMappings;
+        TsvEncoder encoder = format.createEncoder(outputStream, encodedColumns);
+        Schema planSchema = null;
+        ColumnAccessorPlan plan = null;
         for (SinkRecord record: records) {
-            byte[] value = columnMappings != null ?
-                new ValueWithSchema(record).mapColumnsToCSV(columnMappings).getBytes(StandardCharsets.UTF_8) :
-                new ValueWithSchema(record).toCSV(columns).getBytes(StandardCharsets.UTF_8);
-            outputStream.write(value);
-            outputStream.write('\n');
+            encoder.writeRowStart();
+            Schema schema = record.valueSchema();
+            if (schema == null) {
+                if (encodedMappings != null) {
+                    new ValueWithSchema(record).writeMappedColumnsCSV(encodedMappings, encoder);
+                } else {
+                    new ValueWithSchema(record).writeCSV(encodedColumns, encoder);
+                }
+            } else {
+                if (plan == null || schema != planSchema) {
+                    if (schema == projection.getSchema()) {
+                        plan = documentFields != null ? documentPlan : projection.getPlan();
+                    } else {
+                        plan = encodedMappings != null
+                            ? planCache.forColumnMappings(schema, encodedMappings)
+                            : planCache.forColumns(schema, encodedColumns);
+                    }
+                    planSchema = schema;
+                }
+                plan.write(record.value(), encoder);
+            }
+            encoder.writeRowSeparator();
         }
+        encoder.flush();
     }
 }
@@ -0,0 +1,18 @@
+package com.singlestore.kafka.sink;
+
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+// RecordEncoder writes records of one table into the LOAD DATA stream and generates the query that loads them
+// CsvDbWriter encodes Connect values, AvroDbWriter decodes Avro binary values of records read with ByteArrayConverter
+public interface RecordEncoder {
+
+    // generateQuery returns the LOAD DATA query for the stream compressed into a file with the extension
+    String generateQuery(String ext);
+
+    // writeData writes rows of the records into the stream, the caller closes the stream
+    void writeData(OutputStream outputStream, Collection<SinkRecord> records) throws IOException;
+}
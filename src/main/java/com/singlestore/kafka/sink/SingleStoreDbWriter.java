@@ -1,12 +1,28 @@
 package com.singlestore.kafka.sink;
 
+import com.singlestore.kafka.utils.ColumnAccessorPlanCache;
+import com.singlestore.kafka.utils.ColumnProjection;
+import com.singlestore.kafka.utils.ColumnProjectionCache;
+import com.singlestore.kafka.utils.CommittedOffsets;
+import com.singlestore.kafka.utils.CompressionSelector;
+import com.singlestore.kafka.utils.DataCompression;
+import com.singlestore.kafka.utils.ConnectionPool;
 import com.singlestore.kafka.utils.DataExtension;
 import com.singlestore.kafka.utils.DataTransform;
 import com.singlestore.kafka.utils.JdbcHelper;
+import com.singlestore.kafka.utils.LoadDataFormat;
+import com.singlestore.kafka.utils.MeteredOutputStream;
+import com.singlestore.kafka.utils.OffsetRange;
+import com.singlestore.kafka.utils.SamplingOutputStream;
+import com.singlestore.kafka.utils.StreamingPipe;
+import com.singlestore.kafka.utils.TableMetadata;
+import com.singlestore.kafka.utils.TableMetadataCache;
+import com.singlestore.kafka.utils.TaskMetrics;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
-import net.jpountz.lz4.LZ4FrameOutputStream;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.slf4j.Logger;
@@ -17,23 +33,229 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.zip.GZIPOutputStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-public class SingleStoreDbWriter {
+public class SingleStoreDbWriter implements AutoCloseable {
 
     private static final Logger log = LoggerFactory.getLogger(SingleStoreDbWriter.class);
     private final SingleStoreSinkConfig config;
+    private final ConnectionPool connectionPool;
+    private final TableMetadataCache tableMetadataCache;
+    private final ColumnAccessorPlanCache columnAccessorPlanCache = new ColumnAccessorPlanCache();
+    private final ColumnProjectionCache columnProjectionCache;
+    private final CommittedOffsets committedOffsets = new CommittedOffsets();
+    private final DataTransform dataTransform;
+    private final ExecutorService encoderExecutor;
+    private final ExecutorService tableWriteExecutor;
+    private final ExecutorService partitionWriteExecutor;
+    private final ExecutorService compressionExecutor;
+    private final TaskMetrics metrics;
+    private final Map<String, CompressionSelector> compressionSelectors = new ConcurrentHashMap<>();
+    private volatile List<DataCompression> compressionCandidates = null;
+    // Avro values are decoded by writers of their tables, the schema of the decoded values is used to create the tables
+    private final Map<String, AvroDbWriter> avroDbWriters = new ConcurrentHashMap<>();
+    private final Schema avroValueSchema;
 
-    private final int BUFFER_SIZE = 524288;
+    public SingleStoreDbWriter(SingleStoreSinkConfig config, ConnectionPool connectionPool) {
+        this(config, connectionPool, new TaskMetrics());
+    }
 
-    public SingleStoreDbWriter(SingleStoreSinkConfig config) {
+    public SingleStoreDbWriter(SingleStoreSinkConfig config, ConnectionPool connectionPool, TaskMetrics metrics) {
         this.config = config;
+        this.connectionPool = connectionPool;
+        this.metrics = metrics;
+        this.tableMetadataCache = new TableMetadataCache(config, connectionPool, metrics);
+        this.dataTransform = new DataTransform(config.fieldsWhitelist);
+        this.columnProjectionCache = new ColumnProjectionCache(config, columnAccessorPlanCache);
+        this.avroValueSchema = config.avroSchema != null ? config.avroSchema.toConnectSchema() : null;
+        this.encoderExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "singlestore-load-data-encoder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (config.tableWriteParallelism > 1 && !config.metadataTableAllow) {
+            this.tableWriteExecutor = Executors.newFixedThreadPool(config.tableWriteParallelism, runnable -> {
+                Thread thread = new Thread(runnable, "singlestore-table-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.tableWriteExecutor = null;
+        }
+        if (config.partitionWriteParallelism > 1) {
+            this.partitionWriteExecutor = Executors.newFixedThreadPool(config.partitionWriteParallelism, runnable -> {
+                Thread thread = new Thread(runnable, "singlestore-partition-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.partitionWriteExecutor = null;
+        }
+        if (config.compressionParallelism > 1 && config.dataCompression != DataCompression.skip) {
+            this.compressionExecutor = Executors.newFixedThreadPool(config.compressionParallelism, runnable -> {
+                Thread thread = new Thread(runnable, "singlestore-load-data-compressor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.compressionExecutor = null;
+        }
     }
 
     public void write(Collection<SinkRecord> rawRecords) throws SQLException {
-        Collection<SinkRecord> records = new DataTransform(config.fieldsWhitelist).selectWhitelistedFields(rawRecords);
+        if (partitionWriteExecutor != null) {
+            List<List<SinkRecord>> shards = splitByPartition(rawRecords, config.partitionWriteParallelism);
+            if (shards.size() > 1) {
+                writeShards(shards);
+                return;
+            }
+        }
+        writeBatch(rawRecords);
+    }
+
+    // splitByPartition splits records into at most shardsCount shards, records of one partition are put into one shard
+    // partitions are assigned to the shard with the least number of records starting with the largest partitions
+    static List<List<SinkRecord>> splitByPartition(Collection<SinkRecord> records, int shardsCount) {
+        Map<TopicPartition, List<SinkRecord>> partitions = new LinkedHashMap<>();
+        for (SinkRecord record: records) {
+            partitions.computeIfAbsent(new TopicPartition(record.topic(), record.kafkaPartition()), p -> new ArrayList<>()).add(record);
+        }
+        List<List<SinkRecord>> partitionRecords = new ArrayList<>(partitions.values());
+        partitionRecords.sort((a, b) -> Integer.compare(b.size(), a.size()));
+
+        List<List<SinkRecord>> shards = new ArrayList<>();
+        for (List<SinkRecord> recordsOfPartition: partitionRecords) {
+            if (shards.size() < shardsCount) {
+                shards.add(new ArrayList<>(recordsOfPartition));
+                continue;
+            }
+            List<SinkRecord> smallest = shards.get(0);
+            for (List<SinkRecord> shard: shards) {
+                if (shard.size() < smallest.size()) {
+                    smallest = shard;
+                }
+            }
+            smallest.addAll(recordsOfPartition);
+        }
+        return shards;
+    }
+
+    // groupBySchema splits records of one table into groups of records with the same schema instance,
+    // or with the same set of keys for schemaless maps, so columns of every group are taken from its first record
+    // when the order of records matters (upsert), only consecutive records are grouped, so later records still replace earlier ones
+    static List<List<SinkRecord>> groupBySchema(Collection<SinkRecord> records, boolean preserveOrder) {
+        List<List<SinkRecord>> groups = new ArrayList<>();
+        Map<Object, List<SinkRecord>> groupsByKey = new HashMap<>();
+        Object lastKey = null;
+        List<SinkRecord> lastGroup = null;
+        for (SinkRecord record: records) {
+            Object key = schemaKey(record);
+            if (lastGroup == null || !key.equals(lastKey)) {
+                lastGroup = preserveOrder ? null : groupsByKey.get(key);
+                if (lastGroup == null) {
+                    lastGroup = new ArrayList<>();
+                    groups.add(lastGroup);
+                    if (!preserveOrder) {
+                        groupsByKey.put(key, lastGroup);
+                    }
+                }
+                lastKey = key;
+            }
+            lastGroup.add(record);
+        }
+        return groups;
+    }
+
+    private static final Object NO_SCHEMA = new Object();
+
+    private static Object schemaKey(SinkRecord record) {
+        if (record.valueSchema() != null) {
+            return new SchemaIdentity(record.valueSchema());
+        } else if (record.value() instanceof Map) {
+            return ((Map<?, ?>) record.value()).keySet();
+        }
+        return NO_SCHEMA;
+    }
+
+    private static class SchemaIdentity {
+        private final Schema schema;
+
+        private SchemaIdentity(Schema schema) {
+            this.schema = schema;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SchemaIdentity && ((SchemaIdentity) o).schema == schema;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(schema);
+        }
+    }
+
+    // writeShards writes every shard in its own transaction and waits for all of them
+    // partitions of the failed shards are written again by the retry, partitions of the committed shards are skipped
+    // because their offsets are already saved in the metadata table
+    private void writeShards(List<List<SinkRecord>> shards) throws SQLException {
+        List<Future<Void>> writes = new ArrayList<>();
+        for (List<SinkRecord> shard: shards) {
+            writes.add(partitionWriteExecutor.submit(() -> {
+                writeBatch(shard);
+                return null;
+            }));
+        }
+
+        Exception error = null;
+        for (Future<Void> write: writes) {
+            try {
+                write.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                writes.forEach(f -> f.cancel(true));
+                error = addError(error, ex);
+            } catch (ExecutionException ex) {
+                error = addError(error, ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+            }
+        }
+
+        if (error instanceof SQLException) {
+            throw (SQLException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error != null) {
+            throw new ConnectException(error.getLocalizedMessage(), error);
+        }
+    }
+
+    private void writeBatch(Collection<SinkRecord> rawRecords) throws SQLException {
+        Collection<SinkRecord> newRecords = rawRecords;
+        if (config.metadataTableAllow) {
+            tableMetadataCache.ensureMetadataTable();
+            loadCommittedOffsets(rawRecords);
+            newRecords = committedOffsets.filter(rawRecords);
+            if (newRecords.isEmpty()) {
+                // all records are already written
+                metrics.recordMetadataSkip(null);
+                return;
+            }
+        }
+
+        Map<TopicPartition, OffsetRange> ranges = OffsetRange.of(newRecords);
+        // fields.whitelist is applied by the column projection when records are encoded
+        Collection<SinkRecord> records = newRecords;
         Map<String, Collection<SinkRecord>> tableToRecords = new HashMap<>();
         SinkRecord first = records.iterator().next();
 
@@ -54,88 +276,361 @@ public class SingleStoreDbWriter {
             }
         }
 
+        // records of every schema are loaded with their own LOAD DATA query
+        Map<String, List<List<SinkRecord>>> tableToGroups = new HashMap<>();
+        Map<String, TableMetadata> tableMetadata = new HashMap<>();
         for (Map.Entry<String, Collection<SinkRecord>> entry: tableToRecords.entrySet()) {
             String table = entry.getKey();
-            SinkRecord record = entry.getValue().iterator().next();
-            JdbcHelper.createTableIfNeeded(config, table, record.valueSchema());
+            List<List<SinkRecord>> groups = groupBySchema(entry.getValue(), config.upsert);
+            tableToGroups.put(table, groups);
+            // the metadata returned for the last schema includes columns added for all of them
+            for (List<SinkRecord> group: groups) {
+                Schema schema = avroValueSchema != null ? avroValueSchema : group.get(0).valueSchema();
+                tableMetadata.put(table, tableMetadataCache.get(table, dataTransform.projectSchema(schema)));
+            }
         }
 
-        boolean writeToReferenceTable = false;
-        for (String table: tableToRecords.keySet()) {
-            if (JdbcHelper.isReferenceTable(config, table)) {
-                writeToReferenceTable = true;
-                break;
+        boolean written = false;
+        try {
+            // with the metadata table, the records of all tables and their offsets are committed in one transaction
+            if (tableWriteExecutor != null && tableToGroups.size() > 1) {
+                writeInParallel(tableToGroups, tableMetadata);
+            } else {
+                writeInTransaction(ranges, tableToGroups, tableMetadata);
+            }
+            written = true;
+        } catch (SQLException ex) {
+            if (JdbcHelper.isSchemaError(ex)) {
+                // the cached metadata is outdated, it will be loaded again by the retry
+                tableToRecords.keySet().forEach(tableMetadataCache::invalidate);
+                tableMetadataCache.invalidate(config.metadataTableName);
+            }
+            throw ex;
+        } finally {
+            if (!written) {
+                // the commit may have succeeded before the failure was reported,
+                // so offsets of these partitions are loaded from the metadata table again by the retry
+                committedOffsets.remove(ranges.keySet());
             }
         }
+    }
+
+    // loadCommittedOffsets reads the committed offsets of partitions that are written for the first time
+    // or were written by a failed batch, with one query for all of them
+    private void loadCommittedOffsets(Collection<SinkRecord> records) throws SQLException {
+        loadCommittedOffsets(committedOffsets.missing(records));
+    }
+
+    private void loadCommittedOffsets(Set<TopicPartition> partitions) throws SQLException {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        try (Connection connection = connectionPool.getDMLConnection()) {
+            committedOffsets.loaded(partitions, JdbcHelper.getCommittedOffsets(connection, config, partitions));
+        }
+    }
+
+    // openPartitions loads offsets of newly assigned partitions from the metadata table
+    // and returns the highest written offset of every partition that has written records
+    public Map<TopicPartition, Long> openPartitions(Collection<TopicPartition> partitions) throws SQLException {
+        if (!config.metadataTableAllow) {
+            return new HashMap<>();
+        }
+        tableMetadataCache.ensureMetadataTable();
+        // offsets are always loaded again, since the partitions could have been written by another task
+        committedOffsets.remove(partitions);
+        loadCommittedOffsets(new HashSet<>(partitions));
+        return committedOffsets.getLoaded(partitions);
+    }
+
+    // getCommittedOffsets returns the highest written offsets of partitions which offsets are loaded
+    public Map<TopicPartition, Long> getCommittedOffsets(Collection<TopicPartition> partitions) {
+        return committedOffsets.getLoaded(partitions);
+    }
+
+    // closePartitions forgets offsets of partitions that are no longer assigned to the task
+    // another task may write them before they are assigned back
+    public void closePartitions(Collection<TopicPartition> partitions) {
+        committedOffsets.remove(partitions);
+    }
+
+    private void writeInTransaction(Map<TopicPartition, OffsetRange> ranges, Map<String, List<List<SinkRecord>>> tableToGroups,
+                                    Map<String, TableMetadata> tableMetadata) throws SQLException {
+        boolean writeToReferenceTable = tableMetadata.values().stream().anyMatch(TableMetadata::isReference);
 
-        // TODO think about caching connection instead of opening it each time
         try (Connection connection = writeToReferenceTable
-            ? JdbcHelper.getDDLConnection(config)
-            : JdbcHelper.getDMLConnection(config);
+            ? connectionPool.getDDLConnection()
+            : connectionPool.getDMLConnection();
              Statement stmt = connection.createStatement()) {
+            // records of all tables (and the metadata records) are written in one transaction,
+            // so a failure in the middle of a stream doesn't leave partially loaded data
+            connection.setAutoCommit(false);
             if (config.metadataTableAllow) {
-                String metaId = String.format("%s-%s-%s", first.topic(), first.kafkaPartition(), first.kafkaOffset());
-                if (JdbcHelper.metadataRecordExists(connection, metaId, config)) {
+                String metaId = ranges.values().iterator().next().getId();
+                if (committedOffsets.isUnverified(ranges.keySet()) && JdbcHelper.metadataRecordExists(connection, metaId, config)) {
                     // If metadata record already exists, skip writing this batch of data
+                    metrics.recordMetadataSkip(null);
+                    committedOffsets.committed(ranges.values());
                     return;
                 }
-                connection.setAutoCommit(false);
-                Integer recordsCount = records.size();
-                try (PreparedStatement metadataStmt = SingleStoreDialect.getInsertIntoMetadataQuery(connection, config.metadataTableName, metaId, recordsCount)) {
+                try (PreparedStatement metadataStmt = SingleStoreDialect.getInsertOffsetRangesIntoMetadataQuery(connection, config.metadataTableName, ranges.values())) {
                     log.trace("Executing SQL:\n{}", metadataStmt);
                     metadataStmt.executeUpdate();
                 }
             }
 
-            // TODO: investigate parallelization of this loop
-            for (Map.Entry<String, Collection<SinkRecord>> entry: tableToRecords.entrySet()) {
-                String table = entry.getKey();
-                Collection<SinkRecord> tableRecords = entry.getValue();
-                SinkRecord firstTableRecord = tableRecords.iterator().next();
+            for (Map.Entry<String, List<List<SinkRecord>>> entry: tableToGroups.entrySet()) {
+                writeGroups(entry.getKey(), tableMetadata.get(entry.getKey()), entry.getValue(), stmt);
+            }
+
+            connection.commit();
+        }
+        if (config.metadataTableAllow) {
+            committedOffsets.committed(ranges.values());
+        }
+    }
+
+    // writeInParallel loads each table in its own transaction on its own connection
+    // every transaction is committed as soon as its table is loaded and the connection is returned to the pool,
+    // so the batch holds at most tableWriteParallelism connections regardless of the number of tables
+    // tables are not committed atomically, so it is used only when the metadata table is disabled
+    void writeInParallel(Map<String, List<List<SinkRecord>>> tableToGroups, Map<String, TableMetadata> tableMetadata) throws SQLException {
+        List<Future<Void>> loads = new ArrayList<>();
+        for (Map.Entry<String, List<List<SinkRecord>>> entry: tableToGroups.entrySet()) {
+            String table = entry.getKey();
+            List<List<SinkRecord>> groups = entry.getValue();
+            TableMetadata metadata = tableMetadata.get(table);
+            loads.add(tableWriteExecutor.submit(() -> {
+                loadTable(table, metadata, groups);
+                return null;
+            }));
+        }
 
-                try (PipedOutputStream baseStream  = new PipedOutputStream();
-                     InputStream inputStream = new PipedInputStream(baseStream, BUFFER_SIZE)) {
-                    ((com.singlestore.jdbc.Statement)stmt).setNextLocalInfileInputStream(inputStream);
+        Exception error = null;
+        for (Future<Void> load: loads) {
+            try {
+                load.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                loads.forEach(f -> f.cancel(true));
+                error = addError(error, ex);
+            } catch (ExecutionException ex) {
+                error = addError(error, ex.getCause() instanceof Exception ? (Exception) ex.getCause() : ex);
+            }
+        }
 
-                    DataExtension dataExtension = getDataExtension(baseStream);
-                    try (OutputStream outputStream = dataExtension.getOutputStream()) {
-                        write(firstTableRecord, dataExtension, table, outputStream, tableRecords, stmt);
-                    }
+        if (error instanceof SQLException) {
+            throw (SQLException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error != null) {
+            throw new ConnectException(error.getLocalizedMessage(), error);
+        }
+    }
+
+    private static Exception addError(Exception error, Exception ex) {
+        if (error == null) {
+            return ex;
+        }
+        error.addSuppressed(ex);
+        return error;
+    }
+
+    // loadTable loads and commits records of one table, the connection is returned to the pool before the next table is loaded
+    private void loadTable(String table, TableMetadata tableMetadata, List<List<SinkRecord>> groups) throws SQLException {
+        try (Connection connection = tableMetadata.isReference()
+            ? connectionPool.getDDLConnection()
+            : connectionPool.getDMLConnection();
+             Statement stmt = connection.createStatement()) {
+            connection.setAutoCommit(false);
+            writeGroups(table, tableMetadata, groups, stmt);
+            connection.commit();
+        }
+    }
+
+    // writeGroups loads records of every schema of the table with its own LOAD DATA query
+    void writeGroups(String table, TableMetadata tableMetadata, List<List<SinkRecord>> groups, Statement stmt) throws SQLException {
+        for (List<SinkRecord> group: groups) {
+            write(table, tableMetadata, group, stmt);
+        }
+    }
+
+    // getCompressionCandidates negotiates the configured codec with the server on the first write
+    // there is more than one candidate only if the compression is auto
+    private List<DataCompression> getCompressionCandidates(Connection connection) throws SQLException {
+        List<DataCompression> candidates = compressionCandidates;
+        if (candidates == null) {
+            candidates = Collections.singletonList(config.dataCompression);
+            if (config.dataCompression == DataCompression.zstd || config.dataCompression == DataCompression.auto) {
+                String serverVersion = JdbcHelper.getServerVersion(connection);
+                candidates = config.dataCompression.candidates(serverVersion);
+                if (config.dataCompression == DataCompression.zstd && candidates.get(0) != DataCompression.zstd) {
+                    log.warn("SingleStore {} doesn't support {} compression in LOAD DATA, {} is used instead",
+                        serverVersion, config.dataCompression, candidates.get(0));
                 }
             }
+            compressionCandidates = candidates;
+        }
+        return candidates;
+    }
 
-            if (config.metadataTableAllow) {
-                connection.commit();
+    // rejectZstd stops using zstd if the server fails to decompress a zstd stream, the retry of the batch uses the other codecs
+    // the server version is only a hint that the server decompresses zstd files
+    private synchronized void rejectZstd(SQLException ex) {
+        List<DataCompression> candidates = compressionCandidates;
+        if (candidates == null || !candidates.contains(DataCompression.zstd)) {
+            return;
+        }
+        List<DataCompression> remaining = new ArrayList<>(candidates);
+        remaining.remove(DataCompression.zstd);
+        if (remaining.isEmpty()) {
+            remaining.add(DataCompression.lz4);
+        }
+        compressionSelectors.clear();
+        compressionCandidates = remaining;
+        log.warn("The server failed to decompress a {} stream, {} is used instead: {}",
+            DataCompression.zstd, remaining, ex.getLocalizedMessage());
+    }
+
+    // write streams the records of one table to the server
+    // records are encoded and compressed by a separate thread while LOAD DATA is reading the stream,
+    // so the size of the batch is not limited by the size of the buffer
+    private void write(String table, TableMetadata tableMetadata, Collection<SinkRecord> records, Statement stmt) throws SQLException {
+        RecordEncoder dbWriter = getRecordEncoder(table, tableMetadata, records);
+        StreamingPipe pipe = new StreamingPipe(config.loadDataBufferSize);
+        // streams on both sides of the codec split the producer time into serialization and compression
+        MeteredOutputStream compressedStream = new MeteredOutputStream(pipe.getOutputStream());
+        List<DataCompression> candidates = getCompressionCandidates(stmt.getConnection());
+        CompressionSelector selector = candidates.size() > 1
+            ? compressionSelectors.computeIfAbsent(table, t -> new CompressionSelector(candidates,
+                compressionExecutor != null ? config.compressionParallelism : 1))
+            : null;
+        DataCompression compression = selector != null ? selector.current() : candidates.get(0);
+        DataExtension dataExtension = compressionExecutor != null
+            ? DataExtension.forParallelCompression(compression, config.compressionLevel, config.compressionBlockSize,
+                compressionExecutor, config.compressionParallelism, compressedStream)
+            : DataExtension.forCompression(compression, config.compressionLevel, compressedStream);
+        SamplingOutputStream sampler = selector != null && selector.shouldSample()
+            ? new SamplingOutputStream(dataExtension.getOutputStream(), CompressionSelector.SAMPLE_BYTES)
+            : null;
+        MeteredOutputStream rawStream = new MeteredOutputStream(sampler != null ? sampler : dataExtension.getOutputStream());
+        String dataQuery = dbWriter.generateQuery(dataExtension.getExt());
+
+        Future<Long> producer = encoderExecutor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                dbWriter.writeData(rawStream, records);
+            } catch (Throwable ex) {
+                pipe.fail(ex);
+                closeQuietly(rawStream);
+                throw ex;
             }
-        } catch (IOException ex) {
-            throw new ConnectException(ex.getLocalizedMessage());
+            rawStream.close();
+            return System.nanoTime() - start;
+        });
+
+        ((com.singlestore.jdbc.Statement)stmt).setNextLocalInfileInputStream(pipe.getInputStream());
+        long loadStart = System.nanoTime();
+        try {
+            log.trace("Executing SQL:\n{}", dataQuery);
+            stmt.executeUpdate(dataQuery);
+        } catch (SQLException ex) {
+            pipe.cancel();
+            awaitProducer(producer, ex);
+            if (compression == DataCompression.zstd && JdbcHelper.isDecompressionError(ex)) {
+                rejectZstd(ex);
+            }
+            throw ex;
+        }
+        long loadNanos = System.nanoTime() - loadStart;
+        long producerNanos = awaitProducer(producer, null);
+        metrics.recordLoad(table, records.size(), rawStream.getBytes(), compressedStream.getBytes(),
+            producerNanos - rawStream.getNanos(), rawStream.getNanos() - compressedStream.getNanos(), loadNanos);
+        metrics.recordCompression(table, compression);
+        if (selector != null) {
+            selector.recordLoad(rawStream.getBytes(), compressedStream.getBytes(),
+                producerNanos - rawStream.getNanos(), compressedStream.getNanos(), loadNanos);
+            if (sampler != null) {
+                sampleCompression(selector, sampler.getSample());
+            }
+        }
+    }
+
+    // getRecordEncoder returns the encoder of records with the same schema in the format of the table or their topic
+    // writers of Avro values are reused until the metadata of their table is reloaded
+    private RecordEncoder getRecordEncoder(String table, TableMetadata tableMetadata, Collection<SinkRecord> records) {
+        SinkRecord first = records.iterator().next();
+        LoadDataFormat format = config.getLoadDataFormat(table, first.topic());
+        if (config.avroSchema != null) {
+            AvroDbWriter avroDbWriter = avroDbWriters.get(table);
+            if (avroDbWriter == null || avroDbWriter.getTableMetadata() != tableMetadata || avroDbWriter.getFormat() != format) {
+                avroDbWriter = new AvroDbWriter(config, table, tableMetadata, format);
+                avroDbWriters.put(table, avroDbWriter);
+            }
+            return avroDbWriter;
         }
+        ColumnProjection projection = columnProjectionCache.get(table, first, tableMetadata);
+        return new CsvDbWriter(config, projection, table, columnAccessorPlanCache, format);
     }
 
-    private void write(SinkRecord record, DataExtension dataCompression, String table,
-                         OutputStream outputStream, Collection<SinkRecord> records, Statement stmt) throws IOException, SQLException {
-        CsvDbWriter dbWriter = new CsvDbWriter(config, record, table);
-        String dataQuery = dbWriter.generateQuery(dataCompression.getExt());
-        dbWriter.writeData(outputStream, records);
-        outputStream.close();
-        log.trace("Executing SQL:\n{}", dataQuery);
-        stmt.executeUpdate(dataQuery);
+    // sampleCompression measures the candidate codecs on the sample in the background
+    private void sampleCompression(CompressionSelector selector, byte[] sample) {
+        encoderExecutor.submit(() -> {
+            try {
+                selector.sample(sample, config.compressionLevel);
+            } catch (IOException | RuntimeException ex) {
+                log.debug("Failed to sample the compression", ex);
+            }
+        });
     }
 
-    private DataExtension getDataExtension(OutputStream baseStream) {
+    // awaitProducer waits for the encoding thread and rethrows its failure
+    // the failure of the encoding thread is the root cause of the failed LOAD DATA, so it takes precedence over loadError
+    private <T> T awaitProducer(Future<T> producer, SQLException loadError) throws SQLException {
         try {
-            switch (this.config.dataCompression) {
-                case gzip:
-                    return new DataExtension("gz", new GZIPOutputStream(baseStream));
-                case lz4:
-                    return new DataExtension("lz4", new LZ4FrameOutputStream(baseStream));
-                case skip:
-                    return new DataExtension("tsv", baseStream);
-                default:
-                    throw new ConnectException(String.format("Invalid data compression type. Type `%s` doesn't exist", config.dataCompression));
+            return producer.get();
+        } catch (InterruptedException ex) {
+            producer.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ConnectException("Interrupted while writing data", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (loadError != null && cause instanceof IOException) {
+                // the stream was cancelled because LOAD DATA failed
+                return null;
+            }
+            if (loadError != null) {
+                cause.addSuppressed(loadError);
             }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            throw new ConnectException(cause.getLocalizedMessage(), cause);
+        }
+    }
+
+    private static void closeQuietly(OutputStream outputStream) {
+        try {
+            outputStream.close();
         } catch (IOException ex) {
-            throw new ConnectException(ex.getLocalizedMessage());
+            log.debug("Failed to close the data stream", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        encoderExecutor.shutdownNow();
+        if (tableWriteExecutor != null) {
+            tableWriteExecutor.shutdownNow();
+        }
+        if (partitionWriteExecutor != null) {
+            partitionWriteExecutor.shutdownNow();
+        }
+        if (compressionExecutor != null) {
+            compressionExecutor.shutdownNow();
         }
     }
 }
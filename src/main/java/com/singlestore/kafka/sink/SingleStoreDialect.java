@@ -1,8 +1,11 @@
 package com.singlestore.kafka.sink;
 
 import com.singlestore.kafka.utils.ColumnMapping;
+import com.singlestore.kafka.utils.LoadDataFormat;
+import com.singlestore.kafka.utils.OffsetRange;
 import com.singlestore.kafka.utils.TableKey;
 import com.singlestore.kafka.utils.ValueWithSchema;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.errors.ConnectException;
@@ -10,7 +13,10 @@ import org.apache.kafka.connect.errors.ConnectException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -30,8 +36,118 @@ public class SingleStoreDialect {
         return stmt;
     }
 
+    public static PreparedStatement getInsertOffsetRangesIntoMetadataQuery(Connection conn, String metadataTableName, Collection<OffsetRange> ranges) throws SQLException {
+        String values = String.join(", ", Collections.nCopies(ranges.size(), "(?, ?, ?, ?, ?, ?)"));
+        PreparedStatement stmt = conn.prepareStatement(
+                String.format("INSERT INTO %s (id, count, topic, `partition`, minOffset, maxOffset) VALUES %s",
+                        quoteIdentifier(metadataTableName), values)
+        );
+        int i = 1;
+        for (OffsetRange range: ranges) {
+            stmt.setString(i++, range.getId());
+            stmt.setInt(i++, range.getCount());
+            stmt.setString(i++, range.getPartition().topic());
+            stmt.setInt(i++, range.getPartition().partition());
+            stmt.setLong(i++, range.getMinOffset());
+            stmt.setLong(i++, range.getMaxOffset());
+        }
+        return stmt;
+    }
+
+    public static PreparedStatement getCommittedOffsetsQuery(Connection conn, String metadataTableName, Collection<TopicPartition> partitions) throws SQLException {
+        String condition = String.join(" OR ", Collections.nCopies(partitions.size(), "(topic = ? AND `partition` = ?)"));
+        PreparedStatement stmt = conn.prepareStatement(
+                String.format("SELECT topic, `partition`, MAX(maxOffset) AS maxOffset FROM %s WHERE %s GROUP BY topic, `partition`",
+                        quoteIdentifier(metadataTableName), condition)
+        );
+        int i = 1;
+        for (TopicPartition partition: partitions) {
+            stmt.setString(i++, partition.topic());
+            stmt.setInt(i++, partition.partition());
+        }
+        return stmt;
+    }
+
     public static String getKafkaMetadataSchema() {
-        return "(\n  id VARCHAR(255) PRIMARY KEY,\n  count INT NOT NULL,\n  createdAt TIMESTAMP DEFAULT NOW()\n)";
+        return "(\n  id VARCHAR(255) PRIMARY KEY,\n  count INT NOT NULL,\n  createdAt TIMESTAMP DEFAULT NOW(),\n" +
+                "  topic VARCHAR(255),\n  `partition` INT,\n  minOffset BIGINT,\n  maxOffset BIGINT,\n  " +
+                String.join(",\n  ", getKafkaMetadataKeys()) + "\n)";
+    }
+
+    // getKafkaMetadataOffsetColumns returns offset columns that are added to metadata tables created by previous versions
+    public static List<String> getKafkaMetadataOffsetColumns() {
+        return Arrays.asList("topic VARCHAR(255)", "`partition` INT", "minOffset BIGINT", "maxOffset BIGINT");
+    }
+
+    // getKafkaMetadataKeys returns keys used to read committed offsets and to find records for compaction
+    public static List<String> getKafkaMetadataKeys() {
+        return Arrays.asList("KEY (topic, `partition`, maxOffset)", "KEY (createdAt)");
+    }
+
+    public static String getAddKeyQuery(String table, String key) {
+        return String.format("ALTER TABLE %s ADD %s", quoteIdentifier(table), key);
+    }
+
+    public static PreparedStatement getMetadataRetentionCutoffQuery(Connection conn, long retentionMs) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement("SELECT NOW(6) - INTERVAL ? MICROSECOND");
+        stmt.setLong(1, retentionMs * 1000);
+        return stmt;
+    }
+
+    public static PreparedStatement getExpiredOffsetRangesQuery(Connection conn, String metadataTableName, TopicPartition partition, Timestamp cutoff) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                String.format("SELECT COUNT(*) AS records, SUM(count) AS count, MIN(minOffset) AS minOffset, MAX(maxOffset) AS maxOffset, MAX(createdAt) AS createdAt " +
+                        "FROM %s WHERE topic = ? AND `partition` = ? AND createdAt < ?", quoteIdentifier(metadataTableName))
+        );
+        stmt.setString(1, partition.topic());
+        stmt.setInt(2, partition.partition());
+        stmt.setTimestamp(3, cutoff);
+        return stmt;
+    }
+
+    public static PreparedStatement getDeleteExpiredOffsetRangesQuery(Connection conn, String metadataTableName, TopicPartition partition, Timestamp cutoff) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                String.format("DELETE FROM %s WHERE topic = ? AND `partition` = ? AND createdAt < ?", quoteIdentifier(metadataTableName))
+        );
+        stmt.setString(1, partition.topic());
+        stmt.setInt(2, partition.partition());
+        stmt.setTimestamp(3, cutoff);
+        return stmt;
+    }
+
+    public static PreparedStatement getInsertCompactedOffsetRangeQuery(Connection conn, String metadataTableName, OffsetRange range, Timestamp createdAt) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                String.format("INSERT INTO %s (id, count, createdAt, topic, `partition`, minOffset, maxOffset) VALUES (?, ?, ?, ?, ?, ?, ?)",
+                        quoteIdentifier(metadataTableName))
+        );
+        stmt.setString(1, range.getId());
+        stmt.setInt(2, range.getCount());
+        stmt.setTimestamp(3, createdAt);
+        stmt.setString(4, range.getPartition().topic());
+        stmt.setInt(5, range.getPartition().partition());
+        stmt.setLong(6, range.getMinOffset());
+        stmt.setLong(7, range.getMaxOffset());
+        return stmt;
+    }
+
+    public static PreparedStatement getDeleteExpiredMetadataWithoutOffsetsQuery(Connection conn, String metadataTableName, Timestamp cutoff) throws SQLException {
+        PreparedStatement stmt = conn.prepareStatement(
+                String.format("DELETE FROM %s WHERE topic IS NULL AND createdAt < ?", quoteIdentifier(metadataTableName))
+        );
+        stmt.setTimestamp(1, cutoff);
+        return stmt;
+    }
+
+    public static String getAddColumnQuery(String table, String column) {
+        return String.format("ALTER TABLE %s ADD COLUMN %s", quoteIdentifier(table), column);
+    }
+
+    // getAddColumnsQuery adds columns for the fields with one query
+    public static String getAddColumnsQuery(String table, List<Field> fields) {
+        String columns = fields.stream()
+                .map(field -> "ADD COLUMN " + formatSchemaField(field.name(), field.schema()))
+                .collect(Collectors.joining(", "));
+        return String.format("ALTER TABLE %s %s", quoteIdentifier(table), columns);
     }
 
     public static PreparedStatement showExtendedTables(Connection conn, String database, String table) throws SQLException {
@@ -59,6 +175,47 @@ public class SingleStoreDialect {
     }
 
 
+    // getLoadDataQuery loads the stream compressed into a file with the extension into the columns of the table
+    // rows of the json format are objects with a key for every column
+    public static String getLoadDataQuery(String table, List<String> columns, String ext, boolean upsert, String filter, LoadDataFormat format) {
+        return getLoadDataQuery(table, columns, null, ext, upsert, filter, format);
+    }
+
+    // fieldPaths are the dot separated paths of the columns in the JSON documents of the json format,
+    // they are resolved by the server, so the columns of missing paths are NULL
+    public static String getLoadDataQuery(String table, List<String> columns, List<String> fieldPaths, String ext, boolean upsert, String filter,
+                                          LoadDataFormat format) {
+        String queryPrefix = String.format("LOAD DATA LOCAL INFILE '###.%s'", ext);
+        String queryReplace = upsert ? "REPLACE" : "";
+        String queryTable;
+        switch (format) {
+            case csv:
+                queryTable = String.format("INTO TABLE %s FIELDS TERMINATED BY ',' ENCLOSED BY '\"' ESCAPED BY '\\\\' (%s)",
+                    quoteIdentifier(table), escapeColumnNames(columns));
+                break;
+            case json:
+                List<String> mappings = new ArrayList<>();
+                for (int i = 0; i < columns.size(); i++) {
+                    String column = quoteIdentifier(columns.get(i));
+                    mappings.add(fieldPaths == null
+                        ? String.format("%s <- %s", column, column)
+                        : String.format("%s <- %s DEFAULT NULL", column, getSubvaluePath(fieldPaths.get(i))));
+                }
+                queryTable = String.format("INTO TABLE %s FORMAT JSON (%s)", quoteIdentifier(table), String.join(", ", mappings));
+                break;
+            default:
+                queryTable = String.format("INTO TABLE %s (%s)", quoteIdentifier(table), escapeColumnNames(columns));
+        }
+        String queryFilter = filter == null ? "" : String.format("WHERE %s", filter);
+        return String.join(" ", queryPrefix, queryReplace, queryTable, queryFilter);
+    }
+
+    private static String getSubvaluePath(String fieldPath) {
+        return Arrays.stream(fieldPath.split("\\."))
+            .map(SingleStoreDialect::quoteIdentifier)
+            .collect(Collectors.joining("::"));
+    }
+
     public static String escapeColumnNames(List<String> columns) {
         return columns.stream().map(SingleStoreDialect::quoteIdentifier)
             .collect(Collectors.joining(", "));
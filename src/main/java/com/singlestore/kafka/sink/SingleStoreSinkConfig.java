@@ -1,14 +1,23 @@
 package com.singlestore.kafka.sink;
 
+import com.singlestore.kafka.utils.AvroSchema;
 import com.singlestore.kafka.utils.ColumnMapping;
 import com.singlestore.kafka.utils.DataCompression;
+import com.singlestore.kafka.utils.EndpointBalancing;
 import com.singlestore.kafka.utils.JdbcHelper;
+import com.singlestore.kafka.utils.LoadDataFormat;
 import com.singlestore.kafka.utils.TableKey;
 import org.apache.kafka.common.config.AbstractConfig;
 import org.apache.kafka.common.config.ConfigDef;
 import org.apache.kafka.common.config.ConfigException;
 import org.apache.kafka.common.config.types.Password;
+import org.apache.kafka.connect.errors.DataException;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -52,6 +61,29 @@ public class SingleStoreSinkConfig extends AbstractConfig {
     private static final String SQL_PARAMETERS_DOC = "Specify a specific MySQL or JDBC parameter which will be injected into the connection URI";
     private static final String SQL_PARAMETERS_DISPLAY = "Additional SQL Parameters";
 
+    public static final String CONNECTION_POOL_MAX_SIZE = "connection.pool.maxSize";
+    private static final String CONNECTION_POOL_MAX_SIZE_DOC = "The maximum number of connections to each of the DDL and DML endpoints kept open by a single task (default: 8)";
+    private static final String CONNECTION_POOL_MAX_SIZE_DISPLAY = "Connection Pool Max Size";
+
+    public static final String CONNECTION_POOL_IDLE_TIMEOUT_MS = "connection.pool.idleTimeoutMs";
+    private static final String CONNECTION_POOL_IDLE_TIMEOUT_MS_DOC = "The time in milliseconds after which an unused pooled connection is closed (default: 600000)";
+    private static final String CONNECTION_POOL_IDLE_TIMEOUT_MS_DISPLAY = "Connection Pool Idle Timeout (millis)";
+
+    public static final String CONNECTION_POOL_MAX_WAIT_MS = "connection.pool.maxWaitMs";
+    private static final String CONNECTION_POOL_MAX_WAIT_MS_DOC = "The maximum time in milliseconds to wait for a free connection when the pool is exhausted (default: 30000)";
+    private static final String CONNECTION_POOL_MAX_WAIT_MS_DISPLAY = "Connection Pool Max Wait (millis)";
+
+    public static final String DML_ENDPOINTS_BALANCING = "connection.dmlEndpoints.balancing";
+    private static final String DML_ENDPOINTS_BALANCING_DOC = "How DML connections are spread across `connection.dmlEndpoints`; one of `Failover` (all connections go to the first available endpoint), " +
+        "`RoundRobin` (endpoints are used in turn) or `LeastLoaded` (the endpoint with the least number of connections in use is chosen). " +
+        "When balancing is enabled, each endpoint has its own connection pool (default: Failover)";
+    private static final String DML_ENDPOINTS_BALANCING_DISPLAY = "DML Endpoints Balancing";
+
+    public static final String DML_ENDPOINTS_EJECTION_MS = "connection.dmlEndpoints.ejectionMs";
+    private static final String DML_ENDPOINTS_EJECTION_MS_DOC = "The time in milliseconds during which a DML endpoint that failed to open a connection is used only if all other endpoints fail. " +
+        "Used when `connection.dmlEndpoints.balancing` is not Failover (default: 30000)";
+    private static final String DML_ENDPOINTS_EJECTION_MS_DISPLAY = "DML Endpoints Ejection (millis)";
+
     public static final String TABLE_KEY = "tableKey.<index_type>[.<name>]";
     private static final String TABLE_KEY_DOCS = "Specify additional keys to add to tables created by the connector; value of this property is the comma separated list with names of the columns to apply key; <index_type> one of (`PRIMARY`, `COLUMNSTORE`, `UNIQUE`, `SHARD`, `KEY`)";
     private static final String TABLE_KEY_DISPLAY = "Table key";
@@ -69,9 +101,85 @@ public class SingleStoreSinkConfig extends AbstractConfig {
     private static final String RETRY_BACKOFF_MS_DISPLAY = "Retry Backoff (millis)";
 
     public static final String LOAD_DATA_COMPRESSION = "singlestore.loadDataCompression";
-    private static final String LOAD_DATA_COMPRESSION_DOC = "Compress data on load; one of (GZip, LZ4, Skip) (default: GZip)";
+    private static final String LOAD_DATA_COMPRESSION_DOC = "Compress data on load; one of (GZip, LZ4, ZSTD, Skip, Auto). " +
+        "ZSTD falls back to LZ4 when the server doesn't support it. " +
+        "Auto selects the codec of every table by the measured compression ratio, compression time and LOAD DATA throughput (default: GZip)";
     private static final String LOAD_DATA_COMPRESSION_DISPLAY = "SingleStoreDB Load Data Compression";
 
+    public static final String LOAD_DATA_COMPRESSION_LEVEL = "singlestore.loadDataCompression.level";
+    private static final String LOAD_DATA_COMPRESSION_LEVEL_DOC = "The compression level; 1-9 for GZip, 1-17 for LZ4 (uses the LZ4 high compression mode), 1-22 for ZSTD. " +
+        "Value -1 uses the default level of the codec (default: -1)";
+    private static final String LOAD_DATA_COMPRESSION_LEVEL_DISPLAY = "SingleStoreDB Load Data Compression Level";
+
+    public static final String LOAD_DATA_COMPRESSION_PARALLELISM = "singlestore.loadDataCompression.parallelism";
+    private static final String LOAD_DATA_COMPRESSION_PARALLELISM_DOC = "The number of threads that compress blocks of the LOAD DATA stream. " +
+        "When greater than 1, the data is split into blocks that are compressed independently and sent as concatenated GZip members, LZ4 or ZSTD frames. " +
+        "Value 1 compresses the stream in the thread that encodes records (default: 1)";
+    private static final String LOAD_DATA_COMPRESSION_PARALLELISM_DISPLAY = "SingleStoreDB Load Data Compression Parallelism";
+
+    public static final String LOAD_DATA_COMPRESSION_BLOCK_SIZE = "singlestore.loadDataCompression.blockSize";
+    private static final String LOAD_DATA_COMPRESSION_BLOCK_SIZE_DOC = "The number of bytes in a block compressed independently " +
+        "when `singlestore.loadDataCompression.parallelism` is greater than 1 (default: 1048576)";
+    private static final String LOAD_DATA_COMPRESSION_BLOCK_SIZE_DISPLAY = "SingleStoreDB Load Data Compression Block Size";
+
+    public static final String LOAD_DATA_FORMAT = "singlestore.loadDataFormat";
+    private static final String LOAD_DATA_FORMAT_DOC = "The format of rows in the LOAD DATA stream. " +
+        "Available options: TSV (tab separated values), CSV (comma separated values with strings enclosed in double quotes), " +
+        "JSON (one JSON object per row loaded with FORMAT JSON). " +
+        "The format of a table or a topic can be changed with `singlestore.loadDataFormat.<table or topic>` (default: TSV)";
+    private static final String LOAD_DATA_FORMAT_DISPLAY = "SingleStoreDB Load Data Format";
+
+    public static final String LOAD_DATA_BUFFER_SIZE = "singlestore.loadDataBufferSize";
+    private static final String LOAD_DATA_BUFFER_SIZE_DOC = "The maximum number of bytes buffered between the thread that encodes records " +
+        "and the LOAD DATA query that sends them to the database (default: 524288)";
+    private static final String LOAD_DATA_BUFFER_SIZE_DISPLAY = "SingleStoreDB Load Data Buffer Size";
+
+    public static final String TABLE_WRITE_PARALLELISM = "singlestore.tableWriteParallelism";
+    private static final String TABLE_WRITE_PARALLELISM_DOC = "The maximum number of tables loaded concurrently when records of one batch are written to several tables. " +
+        "Tables are loaded in parallel only when singlestore.metadata.allow is false: each table is then loaded and committed in its own transaction " +
+        "using its own connection, so the tables of a batch are not committed atomically. " +
+        "With the metadata table, or with value 1, tables are loaded one after another in one transaction (default: 1)";
+    private static final String TABLE_WRITE_PARALLELISM_DISPLAY = "SingleStoreDB Table Write Parallelism";
+
+    public static final String PARTITION_WRITE_PARALLELISM = "singlestore.partitionWriteParallelism";
+    private static final String PARTITION_WRITE_PARALLELISM_DOC = "The number of shards that records of one batch are split into by kafka-partition. " +
+        "Shards are written concurrently, each in its own transaction using its own connection, records of one partition are always written by one shard in order. " +
+        "Value 1 writes the batch in one transaction (default: 1)";
+    private static final String PARTITION_WRITE_PARALLELISM_DISPLAY = "SingleStoreDB Partition Write Parallelism";
+
+    public static final String TABLE_METADATA_CACHE_TTL_MS = "singlestore.tableMetadataCacheTtlMs";
+    private static final String TABLE_METADATA_CACHE_TTL_MS_DOC = "The time in milliseconds during which the connector reuses the information about the existence, type and columns of a table " +
+        "instead of querying it before each batch. Value 0 disables caching (default: 300000)";
+    private static final String TABLE_METADATA_CACHE_TTL_MS_DISPLAY = "Table Metadata Cache TTL (millis)";
+
+    public static final String SCHEMA_EVOLUTION_ALLOW = "singlestore.schemaEvolution.allow";
+    private static final String SCHEMA_EVOLUTION_ALLOW_DOC = "Allows adding columns to existing tables for new optional fields of record schemas. " +
+        "Fields are added with one ALTER TABLE query before the load. Disabled by default, so existing tables are not altered (default: false)";
+    private static final String SCHEMA_EVOLUTION_ALLOW_DISPLAY = "Allow Schema Evolution";
+
+    public static final String AVRO_SCHEMA = "singlestore.avroSchema";
+    private static final String AVRO_SCHEMA_DOC = "The Avro writer schema of record values read with ByteArrayConverter, as JSON or the path of a file with it. " +
+        "When specified, values are decoded from the Avro binary encoding straight into the LOAD DATA stream without converting them to Connect records. " +
+        "All records must be written with this schema";
+    private static final String AVRO_SCHEMA_DISPLAY = "Avro Writer Schema";
+
+    public static final String AVRO_CONFLUENT_HEADER = "singlestore.avroSchema.confluentHeader";
+    private static final String AVRO_CONFLUENT_HEADER_DOC = "Skips the magic byte and the schema id that precede Avro values in the Confluent wire format (default: false)";
+    private static final String AVRO_CONFLUENT_HEADER_DISPLAY = "Avro Confluent Header";
+
+    public static final String BATCH_MAX_RECORDS = "singlestore.batch.maxRecords";
+    private static final String BATCH_MAX_RECORDS_DOC = "The number of records buffered across put() calls after which they are written to the database (default: 10000)";
+    private static final String BATCH_MAX_RECORDS_DISPLAY = "Batch Max Records";
+
+    public static final String BATCH_MAX_BYTES = "singlestore.batch.maxBytes";
+    private static final String BATCH_MAX_BYTES_DOC = "The estimated size in bytes of records buffered across put() calls after which they are written to the database (default: 16777216)";
+    private static final String BATCH_MAX_BYTES_DISPLAY = "Batch Max Bytes";
+
+    public static final String BATCH_LINGER_MS = "singlestore.batch.lingerMs";
+    private static final String BATCH_LINGER_MS_DOC = "The maximum time in milliseconds records are buffered before they are written to the database. " +
+        "Buffered records are also written before offsets are committed. Value 0 writes records on every put() call (default: 0)";
+    private static final String BATCH_LINGER_MS_DISPLAY = "Batch Linger (millis)";
+
     public static final String METADATA_TABLE_ALLOW = "singlestore.metadata.allow";
     private static final String METADATA_TABLE_ALLOW_DOCS = "Allows or denies the use of an additional meta-table to save the recording results (default: true)";
     private static final String METADATA_TABLE_ALLOW_DISPLAY = "Allow metadata store";
@@ -81,6 +189,17 @@ public class SingleStoreSinkConfig extends AbstractConfig {
                                                             "(default: `kafka-connect-transaction-metadata`)";
     private static final String METADATA_TABLE_NAME_DISPLAY = "Metadata table name";
 
+    public static final String METADATA_RETENTION_MS = "singlestore.metadata.retentionMs";
+    private static final String METADATA_RETENTION_MS_DOC = "The age in milliseconds after which records of the metadata table are compacted. " +
+        "Records of each kafka-partition are collapsed into one record that keeps the highest offset, " +
+        "records without offsets are deleted (default: 604800000)";
+    private static final String METADATA_RETENTION_MS_DISPLAY = "Metadata retention (millis)";
+
+    public static final String METADATA_COMPACTION_INTERVAL_MS = "singlestore.metadata.compactionIntervalMs";
+    private static final String METADATA_COMPACTION_INTERVAL_MS_DOC = "The interval in milliseconds between compactions of the metadata table records " +
+        "of partitions assigned to the task. Value 0 disables compaction (default: 3600000)";
+    private static final String METADATA_COMPACTION_INTERVAL_MS_DISPLAY = "Metadata compaction interval (millis)";
+
     public static final String TABLE_NAME = "singlestore.tableName.<topicName>";
     private static final String TABLE_NAME_DOC = "Specify a mapping between Kafka topic name and SingleStoreDB table name";
     private static final String TABLE_NAME_DISPLAY = "SingleStoreDB table name specifying";
@@ -109,6 +228,7 @@ public class SingleStoreSinkConfig extends AbstractConfig {
     private static  final String UPSERT_DISPLAY = "Change the behavior to update the row with the same key instead of throwing an error";
 
     private static final ConfigDef.Range NON_NEGATIVE_INT_VALIDATOR = ConfigDef.Range.atLeast(0);
+    private static final ConfigDef.Range POSITIVE_INT_VALIDATOR = ConfigDef.Range.atLeast(1);
 
     public static final ConfigDef CONFIG_DEF = new ConfigDef()
             .define(
@@ -188,6 +308,55 @@ public class SingleStoreSinkConfig extends AbstractConfig {
                     ConfigDef.Width.MEDIUM,
                     SQL_PARAMETERS_DISPLAY
             )
+            .define(CONNECTION_POOL_MAX_SIZE,
+                    ConfigDef.Type.INT,
+                    8,
+                    POSITIVE_INT_VALIDATOR,
+                    ConfigDef.Importance.LOW,
+                    CONNECTION_POOL_MAX_SIZE_DOC,
+                    CONNECTION_GROUP,
+                    8,
+                    ConfigDef.Width.SHORT,
+                    CONNECTION_POOL_MAX_SIZE_DISPLAY)
+            .define(CONNECTION_POOL_IDLE_TIMEOUT_MS,
+                    ConfigDef.Type.LONG,
+                    600000L,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    CONNECTION_POOL_IDLE_TIMEOUT_MS_DOC,
+                    CONNECTION_GROUP,
+                    9,
+                    ConfigDef.Width.MEDIUM,
+                    CONNECTION_POOL_IDLE_TIMEOUT_MS_DISPLAY)
+            .define(CONNECTION_POOL_MAX_WAIT_MS,
+                    ConfigDef.Type.LONG,
+                    30000L,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    CONNECTION_POOL_MAX_WAIT_MS_DOC,
+                    CONNECTION_GROUP,
+                    10,
+                    ConfigDef.Width.MEDIUM,
+                    CONNECTION_POOL_MAX_WAIT_MS_DISPLAY)
+            .define(DML_ENDPOINTS_BALANCING,
+                    ConfigDef.Type.STRING,
+                    "Failover",
+                    ConfigDef.Importance.LOW,
+                    DML_ENDPOINTS_BALANCING_DOC,
+                    CONNECTION_GROUP,
+                    11,
+                    ConfigDef.Width.MEDIUM,
+                    DML_ENDPOINTS_BALANCING_DISPLAY)
+            .define(DML_ENDPOINTS_EJECTION_MS,
+                    ConfigDef.Type.LONG,
+                    30000L,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    DML_ENDPOINTS_EJECTION_MS_DOC,
+                    CONNECTION_GROUP,
+                    12,
+                    ConfigDef.Width.MEDIUM,
+                    DML_ENDPOINTS_EJECTION_MS_DISPLAY)
             .define(TABLE_KEY,
                     ConfigDef.Type.LIST,
                     null,
@@ -247,6 +416,28 @@ public class SingleStoreSinkConfig extends AbstractConfig {
                     ConfigDef.Width.MEDIUM,
                     METADATA_TABLE_NAME_DISPLAY,
                     Collections.singletonList(METADATA_TABLE_ALLOW))
+            .define(METADATA_RETENTION_MS,
+                    ConfigDef.Type.LONG,
+                    604800000L,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    METADATA_RETENTION_MS_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    METADATA_RETENTION_MS_DISPLAY,
+                    Collections.singletonList(METADATA_TABLE_ALLOW))
+            .define(METADATA_COMPACTION_INTERVAL_MS,
+                    ConfigDef.Type.LONG,
+                    3600000L,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    METADATA_COMPACTION_INTERVAL_MS_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    METADATA_COMPACTION_INTERVAL_MS_DISPLAY,
+                    Collections.singletonList(METADATA_TABLE_ALLOW))
             .define(LOAD_DATA_COMPRESSION,
                     ConfigDef.Type.STRING,
                     "GZip",
@@ -256,6 +447,142 @@ public class SingleStoreSinkConfig extends AbstractConfig {
                     3,
                     ConfigDef.Width.MEDIUM,
                     LOAD_DATA_COMPRESSION_DISPLAY)
+            .define(LOAD_DATA_COMPRESSION_LEVEL,
+                    ConfigDef.Type.INT,
+                    -1,
+                    ConfigDef.Range.between(-1, 22),
+                    ConfigDef.Importance.LOW,
+                    LOAD_DATA_COMPRESSION_LEVEL_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.SHORT,
+                    LOAD_DATA_COMPRESSION_LEVEL_DISPLAY)
+            .define(LOAD_DATA_COMPRESSION_PARALLELISM,
+                    ConfigDef.Type.INT,
+                    1,
+                    POSITIVE_INT_VALIDATOR,
+                    ConfigDef.Importance.LOW,
+                    LOAD_DATA_COMPRESSION_PARALLELISM_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.SHORT,
+                    LOAD_DATA_COMPRESSION_PARALLELISM_DISPLAY)
+            .define(LOAD_DATA_COMPRESSION_BLOCK_SIZE,
+                    ConfigDef.Type.INT,
+                    1048576,
+                    ConfigDef.Range.atLeast(1024),
+                    ConfigDef.Importance.LOW,
+                    LOAD_DATA_COMPRESSION_BLOCK_SIZE_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    LOAD_DATA_COMPRESSION_BLOCK_SIZE_DISPLAY)
+            .define(LOAD_DATA_FORMAT,
+                    ConfigDef.Type.STRING,
+                    "TSV",
+                    ConfigDef.Importance.LOW,
+                    LOAD_DATA_FORMAT_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.SHORT,
+                    LOAD_DATA_FORMAT_DISPLAY)
+            .define(LOAD_DATA_BUFFER_SIZE,
+                    ConfigDef.Type.INT,
+                    524288,
+                    POSITIVE_INT_VALIDATOR,
+                    ConfigDef.Importance.LOW,
+                    LOAD_DATA_BUFFER_SIZE_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    LOAD_DATA_BUFFER_SIZE_DISPLAY)
+            .define(TABLE_WRITE_PARALLELISM,
+                    ConfigDef.Type.INT,
+                    1,
+                    POSITIVE_INT_VALIDATOR,
+                    ConfigDef.Importance.LOW,
+                    TABLE_WRITE_PARALLELISM_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.SHORT,
+                    TABLE_WRITE_PARALLELISM_DISPLAY)
+            .define(PARTITION_WRITE_PARALLELISM,
+                    ConfigDef.Type.INT,
+                    1,
+                    POSITIVE_INT_VALIDATOR,
+                    ConfigDef.Importance.LOW,
+                    PARTITION_WRITE_PARALLELISM_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.SHORT,
+                    PARTITION_WRITE_PARALLELISM_DISPLAY)
+            .define(TABLE_METADATA_CACHE_TTL_MS,
+                    ConfigDef.Type.LONG,
+                    300000L,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.LOW,
+                    TABLE_METADATA_CACHE_TTL_MS_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    TABLE_METADATA_CACHE_TTL_MS_DISPLAY)
+            .define(SCHEMA_EVOLUTION_ALLOW,
+                    ConfigDef.Type.BOOLEAN,
+                    false,
+                    ConfigDef.Importance.LOW,
+                    SCHEMA_EVOLUTION_ALLOW_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    SCHEMA_EVOLUTION_ALLOW_DISPLAY)
+            .define(AVRO_SCHEMA,
+                    ConfigDef.Type.STRING,
+                    null,
+                    ConfigDef.Importance.LOW,
+                    AVRO_SCHEMA_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.LONG,
+                    AVRO_SCHEMA_DISPLAY)
+            .define(AVRO_CONFLUENT_HEADER,
+                    ConfigDef.Type.BOOLEAN,
+                    false,
+                    ConfigDef.Importance.LOW,
+                    AVRO_CONFLUENT_HEADER_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.SHORT,
+                    AVRO_CONFLUENT_HEADER_DISPLAY)
+            .define(BATCH_MAX_RECORDS,
+                    ConfigDef.Type.INT,
+                    10000,
+                    POSITIVE_INT_VALIDATOR,
+                    ConfigDef.Importance.MEDIUM,
+                    BATCH_MAX_RECORDS_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.SHORT,
+                    BATCH_MAX_RECORDS_DISPLAY)
+            .define(BATCH_MAX_BYTES,
+                    ConfigDef.Type.LONG,
+                    16777216L,
+                    ConfigDef.Range.atLeast(1),
+                    ConfigDef.Importance.MEDIUM,
+                    BATCH_MAX_BYTES_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    BATCH_MAX_BYTES_DISPLAY)
+            .define(BATCH_LINGER_MS,
+                    ConfigDef.Type.LONG,
+                    0L,
+                    ConfigDef.Range.atLeast(0),
+                    ConfigDef.Importance.MEDIUM,
+                    BATCH_LINGER_MS_DOC,
+                    SINGLESTORE_GROUP,
+                    3,
+                    ConfigDef.Width.MEDIUM,
+                    BATCH_LINGER_MS_DISPLAY)
             .define(TABLE_NAME,
                     ConfigDef.Type.STRING,
                     null,
@@ -317,12 +644,34 @@ public class SingleStoreSinkConfig extends AbstractConfig {
     public final String user;
     public final String password;
     public final Map<String, String> sqlParams;
+    public final int connectionPoolMaxSize;
+    public final long connectionPoolIdleTimeoutMs;
+    public final long connectionPoolMaxWaitMs;
     public final int maxRetries;
     public final int retryBackoffMs;
     public final List<TableKey> tableKeys;
     public final DataCompression dataCompression;
+    public final EndpointBalancing dmlEndpointsBalancing;
+    public final long dmlEndpointsEjectionMs;
+    public final int loadDataBufferSize;
+    public final LoadDataFormat loadDataFormat;
+    public final Map<String, LoadDataFormat> loadDataFormats;
+    public final int compressionLevel;
+    public final int compressionParallelism;
+    public final int compressionBlockSize;
+    public final int tableWriteParallelism;
+    public final int partitionWriteParallelism;
+    public final long tableMetadataCacheTtlMs;
+    public final boolean schemaEvolutionAllow;
+    public final AvroSchema avroSchema;
+    public final boolean avroConfluentHeader;
+    public final int batchMaxRecords;
+    public final long batchMaxBytes;
+    public final long batchLingerMs;
     public final boolean metadataTableAllow;
     public final String metadataTableName;
+    public final long metadataRetentionMs;
+    public final long metadataCompactionIntervalMs;
     public final Map<String, String> topicToTableMap;
     public final List<String> fieldsWhitelist;
     public final String filter;
@@ -333,6 +682,11 @@ public class SingleStoreSinkConfig extends AbstractConfig {
 
 
     public SingleStoreSinkConfig(Map<String, String> props) {
+        this(props, true);
+    }
+
+    // checkConnection can be disabled to parse the configuration without a database (e.g. in benchmarks)
+    SingleStoreSinkConfig(Map<String, String> props, boolean checkConnection) {
         super(CONFIG_DEF, props);
         String ddlEndpoint = getString(DDL_ENDPOINT);
         List<String> dmlEndpoints = getList(DML_ENDPOINTS);
@@ -366,12 +720,34 @@ public class SingleStoreSinkConfig extends AbstractConfig {
         this.user = getString(CONNECTION_USER);
         this.password = getPasswordValue();
         this.sqlParams = getSqlParams(props);
+        this.connectionPoolMaxSize = getInt(CONNECTION_POOL_MAX_SIZE);
+        this.connectionPoolIdleTimeoutMs = getLong(CONNECTION_POOL_IDLE_TIMEOUT_MS);
+        this.connectionPoolMaxWaitMs = getLong(CONNECTION_POOL_MAX_WAIT_MS);
         this.maxRetries = getInt(MAX_RETRIES);
         this.retryBackoffMs = getInt(RETRY_BACKOFF_MS);
         this.tableKeys = getTableKeys(props);
         this.dataCompression = getDataCompression();
+        this.dmlEndpointsBalancing = getDmlEndpointsBalancing();
+        this.dmlEndpointsEjectionMs = getLong(DML_ENDPOINTS_EJECTION_MS);
+        this.loadDataBufferSize = getInt(LOAD_DATA_BUFFER_SIZE);
+        this.loadDataFormat = parseLoadDataFormat(LOAD_DATA_FORMAT, getString(LOAD_DATA_FORMAT));
+        this.loadDataFormats = getLoadDataFormats(props);
+        this.compressionLevel = getCompressionLevel();
+        this.compressionParallelism = getInt(LOAD_DATA_COMPRESSION_PARALLELISM);
+        this.compressionBlockSize = getInt(LOAD_DATA_COMPRESSION_BLOCK_SIZE);
+        this.tableWriteParallelism = getInt(TABLE_WRITE_PARALLELISM);
+        this.partitionWriteParallelism = getInt(PARTITION_WRITE_PARALLELISM);
+        this.tableMetadataCacheTtlMs = getLong(TABLE_METADATA_CACHE_TTL_MS);
+        this.schemaEvolutionAllow = getBoolean(SCHEMA_EVOLUTION_ALLOW);
+        this.avroSchema = getAvroSchema();
+        this.avroConfluentHeader = getBoolean(AVRO_CONFLUENT_HEADER);
+        this.batchMaxRecords = getInt(BATCH_MAX_RECORDS);
+        this.batchMaxBytes = getLong(BATCH_MAX_BYTES);
+        this.batchLingerMs = getLong(BATCH_LINGER_MS);
         this.metadataTableAllow = getBoolean(METADATA_TABLE_ALLOW);
         this.metadataTableName = getString(METADATA_TABLE_NAME);
+        this.metadataRetentionMs = getLong(METADATA_RETENTION_MS);
+        this.metadataCompactionIntervalMs = getLong(METADATA_COMPACTION_INTERVAL_MS);
         this.topicToTableMap = getTopicToTableMap(props);
         this.fieldsWhitelist = getList(FIELDS_WHITELIST);
         this.filter = getString(FILTER);
@@ -388,6 +764,18 @@ public class SingleStoreSinkConfig extends AbstractConfig {
             throw new ConfigException("Configuration \"singlestore.recordToTableMapping\" requires \"singlestore.recordToTableMappingField\" to be specified");
         }
 
+        // every shard holds a connection while it is written, parallel table loads (only without the metadata table)
+        // hold up to tableWriteParallelism more
+        int maxConnections = partitionWriteParallelism + (tableWriteParallelism > 1 && !metadataTableAllow ? tableWriteParallelism : 0);
+        if (maxConnections > connectionPoolMaxSize) {
+            throw new ConfigException(String.format("Configurations \"singlestore.partitionWriteParallelism\" and \"singlestore.tableWriteParallelism\" " +
+                "require up to %d connections, but \"connection.pool.maxSize\" is %d", maxConnections, connectionPoolMaxSize));
+        }
+
+        if (!checkConnection) {
+            return;
+        }
+
         try {
             JdbcHelper.getDDLConnection(this);
             JdbcHelper.getDMLConnection(this);
@@ -403,7 +791,69 @@ public class SingleStoreSinkConfig extends AbstractConfig {
         try {
             return DataCompression.valueOf(getString(LOAD_DATA_COMPRESSION).toLowerCase());
         } catch (IllegalArgumentException ex) {
-            throw new ConfigException("Configuration \"singlestore.loadDataCompression\" is wrong. Available options: Gzip, LZ4, Skip");
+            throw new ConfigException("Configuration \"singlestore.loadDataCompression\" is wrong. Available options: Gzip, LZ4, ZSTD, Skip, Auto");
+        }
+    }
+
+    private int getCompressionLevel() {
+        int level = getInt(LOAD_DATA_COMPRESSION_LEVEL);
+        if (dataCompression != DataCompression.skip && level > dataCompression.getMaxLevel()) {
+            throw new ConfigException(String.format("Configuration \"singlestore.loadDataCompression.level\" is wrong. " +
+                "The maximum level of %s is %d", getString(LOAD_DATA_COMPRESSION), dataCompression.getMaxLevel()));
+        }
+        return level;
+    }
+
+    // getAvroSchema parses the schema given as JSON or reads it from the file
+    private AvroSchema getAvroSchema() {
+        String value = getString(AVRO_SCHEMA);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        String json = value.trim();
+        if (!json.startsWith("{") && !json.startsWith("[") && !json.startsWith("\"")) {
+            try {
+                json = new String(Files.readAllBytes(Paths.get(json)), StandardCharsets.UTF_8);
+            } catch (IOException | InvalidPathException ex) {
+                throw new ConfigException(String.format("Configuration \"singlestore.avroSchema\" is wrong. Failed to read the file %s: %s", value, ex.getLocalizedMessage()));
+            }
+        }
+        try {
+            return AvroSchema.parse(json);
+        } catch (DataException ex) {
+            throw new ConfigException(String.format("Configuration \"singlestore.avroSchema\" is wrong. %s", ex.getLocalizedMessage()));
+        }
+    }
+
+    private LoadDataFormat parseLoadDataFormat(String key, String value) {
+        try {
+            return LoadDataFormat.valueOf(value.toLowerCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigException(String.format("Configuration \"%s\" is wrong. Available options: TSV, CSV, JSON", key));
+        }
+    }
+
+    private Map<String, LoadDataFormat> getLoadDataFormats(Map<String, String> props) {
+        Map<String, LoadDataFormat> formats = new HashMap<>();
+        getPropsWithPrefix(props, LOAD_DATA_FORMAT + ".").forEach((name, value) ->
+            formats.put(name, parseLoadDataFormat(LOAD_DATA_FORMAT + "." + name, value)));
+        return formats;
+    }
+
+    // getLoadDataFormat returns the format of the table, or of the topic if the table doesn't have it
+    public LoadDataFormat getLoadDataFormat(String table, String topic) {
+        LoadDataFormat format = loadDataFormats.get(table);
+        if (format == null && topic != null) {
+            format = loadDataFormats.get(topic);
+        }
+        return format != null ? format : loadDataFormat;
+    }
+
+    private EndpointBalancing getDmlEndpointsBalancing() {
+        try {
+            return EndpointBalancing.valueOf(getString(DML_ENDPOINTS_BALANCING).toLowerCase());
+        } catch (IllegalArgumentException ex) {
+            throw new ConfigException("Configuration \"connection.dmlEndpoints.balancing\" is wrong. Available options: Failover, RoundRobin, LeastLoaded");
         }
     }
 
@@ -1,6 +1,12 @@
 package com.singlestore.kafka.sink;
 
+import com.singlestore.kafka.utils.ConnectionPool;
+import com.singlestore.kafka.utils.MetadataTableCompactor;
+import com.singlestore.kafka.utils.RecordBuffer;
+import com.singlestore.kafka.utils.TaskMetrics;
 import com.singlestore.kafka.utils.VersionProvider;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.errors.RetriableException;
 import org.apache.kafka.connect.sink.SinkRecord;
@@ -10,60 +16,181 @@ import org.slf4j.LoggerFactory;
 
 import java.sql.SQLException;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class SingleStoreSinkTask extends SinkTask {
 
     private static final Logger log = LoggerFactory.getLogger(SingleStoreSinkTask.class);
     private SingleStoreSinkConfig config;
+    private ConnectionPool connectionPool;
     private SingleStoreDbWriter writer;
+    private TaskMetrics metrics;
+    private RecordBuffer buffer;
+    private MetadataTableCompactor compactor;
     private int retriesLeft;
 
     @Override
     public void start(Map<String, String> props) {
         log.info("Starting SingleStore Sink Task");
         this.config = new SingleStoreSinkConfig(props);
-        this.writer = new SingleStoreDbWriter(config);
+        this.metrics = new TaskMetrics();
+        this.connectionPool = new ConnectionPool(config, metrics);
+        this.metrics.register(props.get("name"));
+        this.writer = new SingleStoreDbWriter(config, connectionPool, metrics);
         this.retriesLeft = config.maxRetries;
+        this.buffer = new RecordBuffer(config.batchMaxRecords, config.batchMaxBytes, config.batchLingerMs);
+        if (config.metadataTableAllow && config.metadataCompactionIntervalMs > 0) {
+            this.compactor = new MetadataTableCompactor(config, connectionPool);
+            this.compactor.start();
+        }
     }
 
     @Override
     public void put(Collection<SinkRecord> records) {
+        // Kafka Connect calls put with an empty collection when there are no new records,
+        // which lets buffered records be written once lingerMs passes
+        if (records.isEmpty() && (buffer == null || buffer.isEmpty())) {
+            return;
+        }
+
         if (!records.isEmpty()) {
             SinkRecord first = records.iterator().next();
             log.debug(
-                    "Received {} records. First record kafka coordinates:({}-{}-{}). Writing them to the "
+                    "Received {} records. First record kafka coordinates:({}-{}-{}). Buffering them to write to the "
                             + "database",
                     records.size(), first.topic(), first.kafkaPartition(), first.kafkaOffset()
             );
+            metrics.recordPut(records.size());
+            buffer.add(records, System.currentTimeMillis());
+        }
+
+        if (buffer.shouldFlush(System.currentTimeMillis())) {
+            writeBuffer();
+        }
+    }
+
+    // open moves the consumer to the records that follow the offsets saved in the metadata table,
+    // so records that are already written are not read and converted again after a rebalance
+    @Override
+    public void open(Collection<TopicPartition> partitions) {
+        if (writer == null || partitions.isEmpty()) {
+            return;
+        }
+        if (compactor != null) {
+            compactor.addPartitions(partitions);
+        }
 
-            try {
-                writer.write(records);
-            } catch (SQLException ex) {
-                log.warn(String.format("Write of %s records failed, retriesLeft=%s", records.size(), this.retriesLeft));
-                String sqlExceptions = "";
-
-                Throwable e;
-                for(Iterator<Throwable> exIter = ex.iterator(); exIter.hasNext(); sqlExceptions += e + System.lineSeparator()) {
-                    e = exIter.next();
-                }
-
-                if (this.retriesLeft == 0) {
-                    log.error(sqlExceptions);
-                    throw new ConnectException(new SQLException(sqlExceptions));
-                }
-                this.retriesLeft -= 1;
-                this.context.timeout(config.retryBackoffMs);
-                throw new RetriableException(new SQLException(sqlExceptions));
+        Map<TopicPartition, Long> committed;
+        try {
+            committed = writer.openPartitions(partitions);
+        } catch (SQLException ex) {
+            // replayed records are still skipped by the writer, they are only read again
+            log.warn("Failed to read offsets from the metadata table, consuming from the committed offsets of the consumer group", ex);
+            return;
+        }
+        if (committed.isEmpty()) {
+            return;
+        }
+
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        committed.forEach((partition, offset) -> offsets.put(partition, offset + 1));
+        log.info("Resuming partitions from offsets saved in the metadata table: {}", offsets);
+        context.offset(offsets);
+    }
+
+    // flush is called by preCommit before offsets are committed,
+    // so offsets of buffered records are committed only after the records are written
+    @Override
+    public void flush(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        writeBuffer();
+    }
+
+    // preCommit reports offsets saved in the metadata table when they are ahead of the consumed offsets,
+    // it happens when the consumer was moved by open or when replayed records were skipped
+    @Override
+    public Map<TopicPartition, OffsetAndMetadata> preCommit(Map<TopicPartition, OffsetAndMetadata> currentOffsets) {
+        flush(currentOffsets);
+        if (writer == null) {
+            return currentOffsets;
+        }
+
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>(currentOffsets);
+        writer.getCommittedOffsets(currentOffsets.keySet()).forEach((partition, offset) -> {
+            OffsetAndMetadata current = currentOffsets.get(partition);
+            if (offset + 1 > current.offset()) {
+                offsets.put(partition, new OffsetAndMetadata(offset + 1, current.leaderEpoch(), current.metadata()));
+            }
+        });
+        return offsets;
+    }
+
+    @Override
+    public void close(Collection<TopicPartition> partitions) {
+        if (buffer != null) {
+            buffer.removePartitions(partitions);
+        }
+        if (writer != null) {
+            writer.closePartitions(partitions);
+        }
+        if (compactor != null) {
+            compactor.removePartitions(partitions);
+        }
+    }
+
+    private void writeBuffer() {
+        if (buffer == null || buffer.isEmpty()) {
+            return;
+        }
+
+        List<SinkRecord> records = buffer.getRecords();
+        log.debug("Writing {} buffered records (~{} bytes) to the database", records.size(), buffer.getBytes());
+        try {
+            writer.write(records);
+        } catch (SQLException ex) {
+            metrics.recordFailedWrite();
+            log.warn(String.format("Write of %s records failed, retriesLeft=%s", records.size(), this.retriesLeft));
+            String sqlExceptions = "";
+
+            Throwable e;
+            for(Iterator<Throwable> exIter = ex.iterator(); exIter.hasNext(); sqlExceptions += e + System.lineSeparator()) {
+                e = exIter.next();
+            }
+
+            if (this.retriesLeft == 0) {
+                log.error(sqlExceptions);
+                throw new ConnectException(new SQLException(sqlExceptions));
             }
-            this.retriesLeft = config.maxRetries;
+            this.retriesLeft -= 1;
+            metrics.recordRetry();
+            this.context.timeout(config.retryBackoffMs);
+            throw new RetriableException(new SQLException(sqlExceptions));
         }
+        buffer.clear();
+        this.retriesLeft = config.maxRetries;
     }
 
     @Override
     public void stop() {
         log.info("Stopping SingleStore Sink Task");
+        if (compactor != null) {
+            compactor.close();
+            compactor = null;
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (connectionPool != null) {
+            connectionPool.close();
+            connectionPool = null;
+        }
+        if (metrics != null) {
+            metrics.close();
+            metrics = null;
+        }
     }
 
     @Override
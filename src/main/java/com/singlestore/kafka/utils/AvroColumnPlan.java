@@ -0,0 +1,297 @@
+package com.singlestore.kafka.utils;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// AvroColumnPlan decodes Avro binary values of the writer schema straight into the LOAD DATA columns
+// Columns are written in the order their fields are encoded, so a value is decoded in one pass
+// and fields that are not loaded are skipped without decoding. Values are never materialized as Structs.
+// Nested records, arrays and maps are written as JSON the same way as ValueWithSchema writes the converted Structs
+public class AvroColumnPlan {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final AvroSchema schema;
+    private final Node root;
+    private final List<String> columns = new ArrayList<>();
+    // columns of paths that don't exist in the schema, they are always NULL
+    private final int missingColumns;
+
+    // Node is a value on the path of loaded columns
+    // columns take the whole value, children (by field index) are the loaded fields of a record value
+    private static class Node {
+        final List<String> columns = new ArrayList<>();
+        final Map<Integer, Node> childrenByIndex = new LinkedHashMap<>();
+        AvroSchema recordSchema;
+        Node[] children;
+        int firstColumn;
+        int columnCount;
+    }
+
+    // columnToPath maps every column to the path of its field, an empty path loads the whole value
+    public AvroColumnPlan(AvroSchema schema, Map<String, String[]> columnToPath) {
+        this.schema = schema;
+        this.root = new Node();
+        List<String> missing = new ArrayList<>();
+        for (Map.Entry<String, String[]> entry: columnToPath.entrySet()) {
+            if (!addPath(root, schema, entry.getValue(), entry.getKey())) {
+                missing.add(entry.getKey());
+            }
+        }
+        assignColumns(root);
+        this.columns.addAll(missing);
+        this.missingColumns = missing.size();
+    }
+
+    // addPath adds the column to the nodes of its path, false is returned if the path doesn't exist in the schema
+    private static boolean addPath(Node node, AvroSchema schema, String[] path, String column) {
+        AvroSchema current = schema;
+        for (String name: path) {
+            AvroSchema record = recordOf(current);
+            AvroSchema.Field field = record == null ? null : record.getField(name);
+            if (field == null) {
+                return false;
+            }
+            current = field.getSchema();
+        }
+
+        current = schema;
+        for (String name: path) {
+            AvroSchema record = recordOf(current);
+            AvroSchema.Field field = record.getField(name);
+            node.recordSchema = record;
+            node = node.childrenByIndex.computeIfAbsent(record.getFields().indexOf(field), index -> new Node());
+            current = field.getSchema();
+        }
+        node.columns.add(column);
+        return true;
+    }
+
+    // recordOf returns the record schema of the value that is either a record or a union of null and a record
+    private static AvroSchema recordOf(AvroSchema schema) {
+        if (schema.getType() == AvroSchema.Type.UNION) {
+            schema = schema.getNonNullBranch();
+        }
+        return schema != null && schema.getType() == AvroSchema.Type.RECORD ? schema : null;
+    }
+
+    // assignColumns orders columns of the node before columns of its fields, fields in the order of the record
+    private void assignColumns(Node node) {
+        node.firstColumn = columns.size();
+        columns.addAll(node.columns);
+        if (node.recordSchema != null) {
+            node.children = new Node[node.recordSchema.getFields().size()];
+            for (int i = 0; i < node.children.length; i++) {
+                node.children[i] = node.childrenByIndex.get(i);
+                if (node.children[i] != null) {
+                    assignColumns(node.children[i]);
+                }
+            }
+        }
+        node.columnCount = columns.size() - node.firstColumn;
+    }
+
+    public AvroSchema getSchema() {
+        return schema;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // write decodes the value that starts at the offset and writes its columns without the row separator
+    public void write(byte[] value, int offset, TsvEncoder encoder) throws IOException {
+        AvroDecoder decoder = new AvroDecoder(value, offset);
+        write(root, schema, decoder, encoder);
+        for (int i = columns.size() - missingColumns; i < columns.size(); i++) {
+            writeSeparator(i, encoder);
+            encoder.writeNull();
+        }
+    }
+
+    private static void writeSeparator(int column, TsvEncoder encoder) throws IOException {
+        if (column > 0) {
+            encoder.writeFieldSeparator();
+        }
+    }
+
+    private static void write(Node node, AvroSchema schema, AvroDecoder decoder, TsvEncoder encoder) throws IOException {
+        int start = decoder.getPosition();
+        for (int i = 0; i < node.columns.size(); i++) {
+            // the same value mapped to several columns is decoded again for every one of them
+            decoder.setPosition(start);
+            writeSeparator(node.firstColumn + i, encoder);
+            writeValue(schema, decoder, encoder);
+        }
+        if (node.children == null) {
+            return;
+        }
+
+        decoder.setPosition(start);
+        if (schema.getType() == AvroSchema.Type.UNION) {
+            schema = decoder.readBranch(schema);
+            if (schema.getType() == AvroSchema.Type.NULL) {
+                // all fields of a null record are NULL
+                for (int i = node.firstColumn + node.columns.size(); i < node.firstColumn + node.columnCount; i++) {
+                    writeSeparator(i, encoder);
+                    encoder.writeNull();
+                }
+                return;
+            }
+        }
+        List<AvroSchema.Field> fields = schema.getFields();
+        for (int i = 0; i < node.children.length; i++) {
+            AvroSchema fieldSchema = fields.get(i).getSchema();
+            if (node.children[i] == null) {
+                decoder.skip(fieldSchema);
+            } else {
+                write(node.children[i], fieldSchema, decoder, encoder);
+            }
+        }
+    }
+
+    // writeValue writes a single value in the LOAD DATA format
+    private static void writeValue(AvroSchema schema, AvroDecoder decoder, TsvEncoder encoder) throws IOException {
+        switch (schema.getType()) {
+            case NULL:
+                encoder.writeNull();
+                break;
+            case BOOLEAN:
+                encoder.writeBoolean(decoder.readBoolean());
+                break;
+            case INT:
+            case LONG:
+                encoder.writeLong(decoder.readLong());
+                break;
+            case FLOAT:
+                encoder.writeFloat(decoder.readFloat());
+                break;
+            case DOUBLE:
+                encoder.writeDouble(decoder.readDouble());
+                break;
+            case STRING:
+            case BYTES:
+            case FIXED:
+                int length = schema.getType() == AvroSchema.Type.FIXED ? schema.getSize() : decoder.readLength();
+                int position = decoder.getPosition();
+                decoder.skip(length);
+                if (schema.isDecimal()) {
+                    encoder.writeString(readDecimal(schema, decoder.getData(), position, length).toString());
+                } else {
+                    encoder.writeBytes(decoder.getData(), position, length);
+                }
+                break;
+            case ENUM:
+                encoder.writeString(readSymbol(schema, decoder));
+                break;
+            case UNION:
+                writeValue(decoder.readBranch(schema), decoder, encoder);
+                break;
+            default:
+                try (JsonGenerator jGenerator = JSON_FACTORY.createGenerator(encoder.escapingStream(), JsonEncoding.UTF8)) {
+                    generateJSON(jGenerator, schema, decoder);
+                }
+        }
+    }
+
+    private static void generateJSON(JsonGenerator jGenerator, AvroSchema schema, AvroDecoder decoder) throws IOException {
+        switch (schema.getType()) {
+            case NULL:
+                jGenerator.writeNull();
+                break;
+            case BOOLEAN:
+                jGenerator.writeBoolean(decoder.readBoolean());
+                break;
+            case INT:
+            case LONG:
+                jGenerator.writeNumber(decoder.readLong());
+                break;
+            case FLOAT:
+                jGenerator.writeNumber(decoder.readFloat());
+                break;
+            case DOUBLE:
+                jGenerator.writeNumber(decoder.readDouble());
+                break;
+            case STRING:
+                int length = decoder.readLength();
+                jGenerator.writeUTF8String(decoder.getData(), decoder.getPosition(), length);
+                decoder.skip(length);
+                break;
+            case BYTES:
+            case FIXED:
+                int size = schema.getType() == AvroSchema.Type.FIXED ? schema.getSize() : decoder.readLength();
+                int position = decoder.getPosition();
+                decoder.skip(size);
+                if (schema.isDecimal()) {
+                    jGenerator.writeNumber(readDecimal(schema, decoder.getData(), position, size));
+                } else {
+                    jGenerator.writeBinary(decoder.getData(), position, size);
+                }
+                break;
+            case ENUM:
+                jGenerator.writeString(readSymbol(schema, decoder));
+                break;
+            case UNION:
+                generateJSON(jGenerator, decoder.readBranch(schema), decoder);
+                break;
+            case RECORD:
+                jGenerator.writeStartObject();
+                for (AvroSchema.Field field: schema.getFields()) {
+                    jGenerator.writeFieldName(field.getName());
+                    generateJSON(jGenerator, field.getSchema(), decoder);
+                }
+                jGenerator.writeEndObject();
+                break;
+            case ARRAY:
+                jGenerator.writeStartArray();
+                for (long count = decoder.readBlockCount(); count != 0; count = decoder.readBlockCount()) {
+                    for (long i = 0; i < count; i++) {
+                        generateJSON(jGenerator, schema.getElementSchema(), decoder);
+                    }
+                }
+                jGenerator.writeEndArray();
+                break;
+            case MAP:
+                // maps are written as arrays of key-value objects, the same way as Connect maps
+                jGenerator.writeStartArray();
+                for (long count = decoder.readBlockCount(); count != 0; count = decoder.readBlockCount()) {
+                    for (long i = 0; i < count; i++) {
+                        jGenerator.writeStartObject();
+                        jGenerator.writeFieldName("key");
+                        int keyLength = decoder.readLength();
+                        jGenerator.writeUTF8String(decoder.getData(), decoder.getPosition(), keyLength);
+                        decoder.skip(keyLength);
+                        jGenerator.writeFieldName("value");
+                        generateJSON(jGenerator, schema.getElementSchema(), decoder);
+                        jGenerator.writeEndObject();
+                    }
+                }
+                jGenerator.writeEndArray();
+                break;
+        }
+    }
+
+    private static String readSymbol(AvroSchema schema, AvroDecoder decoder) {
+        int index = decoder.readInt();
+        if (index < 0 || index >= schema.getSymbols().size()) {
+            throw new DataException(String.format("Unknown symbol %d of Avro enum %s", index, schema));
+        }
+        return schema.getSymbols().get(index);
+    }
+
+    // decimals are encoded as two's-complement big-endian unscaled values
+    private static BigDecimal readDecimal(AvroSchema schema, byte[] data, int position, int length) {
+        return new BigDecimal(new BigInteger(Arrays.copyOfRange(data, position, position + length)), schema.getScale());
+    }
+}
@@ -0,0 +1,181 @@
+package com.singlestore.kafka.utils;
+
+import org.apache.kafka.connect.errors.DataException;
+
+// AvroDecoder reads the Avro binary encoding from a byte array
+// Strings and bytes are not copied, readLength returns their length and the caller writes them from getData at getPosition
+class AvroDecoder {
+
+    private final byte[] data;
+    private int position;
+
+    AvroDecoder(byte[] data, int position) {
+        this.data = data;
+        this.position = position;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    int getPosition() {
+        return position;
+    }
+
+    void setPosition(int position) {
+        this.position = position;
+    }
+
+    boolean readBoolean() {
+        ensureAvailable(1);
+        return data[position++] != 0;
+    }
+
+    int readInt() {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw malformed();
+        }
+        return (int) value;
+    }
+
+    // readLong reads a zig-zag encoded variable length integer
+    long readLong() {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            ensureAvailable(1);
+            int b = data[position++] & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw malformed();
+            }
+        }
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    float readFloat() {
+        return Float.intBitsToFloat(readFixedInt());
+    }
+
+    double readDouble() {
+        ensureAvailable(8);
+        long low = readFixedInt() & 0xffffffffL;
+        long high = readFixedInt() & 0xffffffffL;
+        return Double.longBitsToDouble((high << 32) | low);
+    }
+
+    private int readFixedInt() {
+        ensureAvailable(4);
+        int value = (data[position] & 0xff)
+            | (data[position + 1] & 0xff) << 8
+            | (data[position + 2] & 0xff) << 16
+            | (data[position + 3] & 0xff) << 24;
+        position += 4;
+        return value;
+    }
+
+    // readLength reads the length of a string or bytes value and checks that the value is in the array
+    int readLength() {
+        long length = readLong();
+        if (length < 0 || length > data.length - position) {
+            throw malformed();
+        }
+        return (int) length;
+    }
+
+    void skip(long length) {
+        if (length < 0) {
+            throw malformed();
+        }
+        ensureAvailable(length);
+        position += (int) length;
+    }
+
+    // skip moves the position after the value without decoding it
+    // blocks of arrays and maps written with their size in bytes are skipped at once
+    void skip(AvroSchema schema) {
+        switch (schema.getType()) {
+            case NULL:
+                break;
+            case BOOLEAN:
+                skip(1);
+                break;
+            case INT:
+            case LONG:
+            case ENUM:
+                readLong();
+                break;
+            case FLOAT:
+                skip(4);
+                break;
+            case DOUBLE:
+                skip(8);
+                break;
+            case BYTES:
+            case STRING:
+                skip(readLength());
+                break;
+            case FIXED:
+                skip(schema.getSize());
+                break;
+            case RECORD:
+                for (AvroSchema.Field field: schema.getFields()) {
+                    skip(field.getSchema());
+                }
+                break;
+            case UNION:
+                skip(readBranch(schema));
+                break;
+            case ARRAY:
+            case MAP:
+                boolean map = schema.getType() == AvroSchema.Type.MAP;
+                for (long count = readLong(); count != 0; count = readLong()) {
+                    if (count < 0) {
+                        skip(readLong());
+                        continue;
+                    }
+                    for (long i = 0; i < count; i++) {
+                        if (map) {
+                            skip(readLength());
+                        }
+                        skip(schema.getElementSchema());
+                    }
+                }
+                break;
+        }
+    }
+
+    // readBranch reads the index of the union branch and returns its schema
+    AvroSchema readBranch(AvroSchema union) {
+        int index = readInt();
+        if (index < 0 || index >= union.getBranches().size()) {
+            throw malformed();
+        }
+        return union.getBranches().get(index);
+    }
+
+    // readBlockCount returns the number of items in the next block of an array or a map, the size of the block is ignored
+    long readBlockCount() {
+        long count = readLong();
+        if (count < 0) {
+            readLong();
+            count = -count;
+        }
+        return count;
+    }
+
+    private void ensureAvailable(long length) {
+        if (length > data.length - position) {
+            throw malformed();
+        }
+    }
+
+    private DataException malformed() {
+        return new DataException(String.format("Malformed Avro value at position %d", position));
+    }
+}
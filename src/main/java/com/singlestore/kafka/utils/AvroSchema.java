@@ -0,0 +1,314 @@
+package com.singlestore.kafka.utils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.connect.data.Decimal;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// AvroSchema is the writer schema of Avro binary values parsed from its JSON definition
+// Only the parts of the specification needed to decode values are kept:
+// default values, aliases and docs are ignored, decimal is the only supported logical type
+public class AvroSchema {
+
+    public enum Type { NULL, BOOLEAN, INT, LONG, FLOAT, DOUBLE, BYTES, STRING, RECORD, ENUM, ARRAY, MAP, UNION, FIXED }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Type type;
+    private final String name;
+    private final List<Field> fields = new ArrayList<>();
+    private final List<String> symbols = new ArrayList<>();
+    private final List<AvroSchema> branches = new ArrayList<>();
+    private AvroSchema elementSchema;
+    private int size;
+    // scale of the decimal logical type or -1 if the value is not decimal
+    private int scale = -1;
+
+    private AvroSchema(Type type, String name) {
+        this.type = type;
+        this.name = name;
+    }
+
+    public static class Field {
+        private final String name;
+        private final AvroSchema schema;
+
+        private Field(String name, AvroSchema schema) {
+            this.name = name;
+            this.schema = schema;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public AvroSchema getSchema() {
+            return schema;
+        }
+    }
+
+    public static AvroSchema parse(String json) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(json);
+        } catch (IOException ex) {
+            throw new DataException("Failed to parse Avro schema: " + ex.getLocalizedMessage(), ex);
+        }
+        return parse(node, null, new HashMap<>());
+    }
+
+    // parse resolves references to named types by their full names, or by short names in the enclosing namespace
+    private static AvroSchema parse(JsonNode node, String namespace, Map<String, AvroSchema> names) {
+        if (node.isTextual()) {
+            return parseName(node.asText(), namespace, names);
+        } else if (node.isArray()) {
+            AvroSchema union = new AvroSchema(Type.UNION, null);
+            for (JsonNode branch: node) {
+                union.branches.add(parse(branch, namespace, names));
+            }
+            return union;
+        } else if (!node.isObject() || !node.has("type")) {
+            throw new DataException(String.format("Invalid Avro schema %s", node));
+        }
+
+        String typeName = node.get("type").asText();
+        AvroSchema schema;
+        switch (typeName) {
+            case "record":
+            case "error":
+            case "enum":
+            case "fixed":
+                String name = requiredText(node, "name");
+                if (node.has("namespace")) {
+                    namespace = node.get("namespace").asText();
+                }
+                if (name.contains(".")) {
+                    namespace = name.substring(0, name.lastIndexOf('.'));
+                } else if (namespace != null && !namespace.isEmpty()) {
+                    name = namespace + "." + name;
+                }
+                schema = new AvroSchema(typeName.equals("enum") ? Type.ENUM : typeName.equals("fixed") ? Type.FIXED : Type.RECORD, name);
+                // the name is registered before the fields are parsed, so records can reference themselves
+                names.put(name, schema);
+                if (schema.type == Type.RECORD) {
+                    for (JsonNode field: required(node, "fields")) {
+                        schema.fields.add(new Field(requiredText(field, "name"), parse(required(field, "type"), namespace, names)));
+                    }
+                } else if (schema.type == Type.ENUM) {
+                    for (JsonNode symbol: required(node, "symbols")) {
+                        schema.symbols.add(symbol.asText());
+                    }
+                } else {
+                    schema.size = required(node, "size").asInt();
+                }
+                break;
+            case "array":
+                schema = new AvroSchema(Type.ARRAY, null);
+                schema.elementSchema = parse(required(node, "items"), namespace, names);
+                break;
+            case "map":
+                schema = new AvroSchema(Type.MAP, null);
+                schema.elementSchema = parse(required(node, "values"), namespace, names);
+                break;
+            default:
+                // primitive type with attributes, e.g. {"type": "bytes", "logicalType": "decimal"}
+                schema = parse(node.get("type"), namespace, names);
+                if (schema.type == Type.BYTES && isDecimal(node)) {
+                    schema = new AvroSchema(Type.BYTES, null);
+                    schema.scale = node.has("scale") ? node.get("scale").asInt() : 0;
+                }
+                return schema;
+        }
+        if (schema.type == Type.FIXED && isDecimal(node)) {
+            schema.scale = node.has("scale") ? node.get("scale").asInt() : 0;
+        }
+        return schema;
+    }
+
+    private static boolean isDecimal(JsonNode node) {
+        return node.has("logicalType") && "decimal".equals(node.get("logicalType").asText());
+    }
+
+    private static AvroSchema parseName(String name, String namespace, Map<String, AvroSchema> names) {
+        switch (name) {
+            case "null": return new AvroSchema(Type.NULL, null);
+            case "boolean": return new AvroSchema(Type.BOOLEAN, null);
+            case "int": return new AvroSchema(Type.INT, null);
+            case "long": return new AvroSchema(Type.LONG, null);
+            case "float": return new AvroSchema(Type.FLOAT, null);
+            case "double": return new AvroSchema(Type.DOUBLE, null);
+            case "bytes": return new AvroSchema(Type.BYTES, null);
+            case "string": return new AvroSchema(Type.STRING, null);
+        }
+        AvroSchema schema = null;
+        if (!name.contains(".") && namespace != null && !namespace.isEmpty()) {
+            schema = names.get(namespace + "." + name);
+        }
+        if (schema == null) {
+            schema = names.get(name);
+        }
+        if (schema == null) {
+            throw new DataException(String.format("Unknown Avro type \"%s\"", name));
+        }
+        return schema;
+    }
+
+    private static JsonNode required(JsonNode node, String attribute) {
+        JsonNode value = node.get(attribute);
+        if (value == null) {
+            throw new DataException(String.format("Avro schema %s doesn't have the \"%s\" attribute", node, attribute));
+        }
+        return value;
+    }
+
+    private static String requiredText(JsonNode node, String attribute) {
+        return required(node, attribute).asText();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // getName returns the full name of records, enums and fixed types
+    public String getName() {
+        return name;
+    }
+
+    public List<Field> getFields() {
+        return fields;
+    }
+
+    public Field getField(String name) {
+        for (Field field: fields) {
+            if (field.name.equals(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+
+    public List<String> getSymbols() {
+        return symbols;
+    }
+
+    public List<AvroSchema> getBranches() {
+        return branches;
+    }
+
+    // getElementSchema returns the schema of array items or map values
+    public AvroSchema getElementSchema() {
+        return elementSchema;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public boolean isDecimal() {
+        return scale >= 0;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    // getNonNullBranch returns the only branch of the union besides null, or null if the union has several of them
+    public AvroSchema getNonNullBranch() {
+        AvroSchema result = null;
+        for (AvroSchema branch: branches) {
+            if (branch.type == Type.NULL) {
+                continue;
+            }
+            if (result != null) {
+                return null;
+            }
+            result = branch;
+        }
+        return result;
+    }
+
+    // toConnectSchema returns the Connect schema of the decoded values, it is used to create tables and add columns
+    // unions of null and another type are optional values of that type, other unions are loaded as strings
+    // recursive records can't be represented as Connect schemas, their recursive fields are loaded as strings
+    public Schema toConnectSchema() {
+        return toConnectSchema(this, false, new IdentityHashMap<>());
+    }
+
+    private static Schema toConnectSchema(AvroSchema schema, boolean optional, Map<AvroSchema, Boolean> parents) {
+        SchemaBuilder builder;
+        switch (schema.type) {
+            case NULL:
+                return Schema.OPTIONAL_STRING_SCHEMA;
+            case BOOLEAN:
+                builder = SchemaBuilder.bool();
+                break;
+            case INT:
+                builder = SchemaBuilder.int32();
+                break;
+            case LONG:
+                builder = SchemaBuilder.int64();
+                break;
+            case FLOAT:
+                builder = SchemaBuilder.float32();
+                break;
+            case DOUBLE:
+                builder = SchemaBuilder.float64();
+                break;
+            case BYTES:
+            case FIXED:
+                builder = schema.isDecimal() ? Decimal.builder(schema.scale) : SchemaBuilder.bytes();
+                break;
+            case STRING:
+            case ENUM:
+                builder = SchemaBuilder.string();
+                break;
+            case ARRAY:
+                builder = SchemaBuilder.array(toConnectSchema(schema.elementSchema, false, parents));
+                break;
+            case MAP:
+                builder = SchemaBuilder.map(Schema.STRING_SCHEMA, toConnectSchema(schema.elementSchema, false, parents));
+                break;
+            case RECORD:
+                if (parents.containsKey(schema)) {
+                    builder = SchemaBuilder.string();
+                    break;
+                }
+                parents.put(schema, true);
+                builder = SchemaBuilder.struct().name(schema.name);
+                for (Field field: schema.fields) {
+                    builder.field(field.name, toConnectSchema(field.schema, false, parents));
+                }
+                parents.remove(schema);
+                break;
+            case UNION:
+                AvroSchema branch = schema.getNonNullBranch();
+                boolean nullable = schema.branches.stream().anyMatch(b -> b.type == Type.NULL);
+                if (branch != null) {
+                    return toConnectSchema(branch, optional || nullable, parents);
+                }
+                builder = SchemaBuilder.string();
+                optional = optional || nullable;
+                break;
+            default:
+                throw new DataException(String.format("Unsupported Avro type %s", schema.type));
+        }
+        if (optional) {
+            builder.optional();
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return name != null ? name : type.toString().toLowerCase();
+    }
+}
@@ -0,0 +1,59 @@
+package com.singlestore.kafka.utils;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// BatchSizeHistogram counts batch sizes in buckets with power of ten upper bounds
+// Updates are lock-free, so the histogram can be updated from the writing threads on every batch
+public class BatchSizeHistogram {
+
+    // upper bounds (inclusive) of the buckets, the last bucket counts everything larger
+    private static final long[] BOUNDS = {1, 10, 100, 1000, 10000, 100000, Long.MAX_VALUE};
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS.length];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public BatchSizeHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long size) {
+        int i = 0;
+        while (size > BOUNDS[i]) {
+            i++;
+        }
+        buckets[i].increment();
+        count.increment();
+        sum.add(size);
+        max.accumulate(size);
+    }
+
+    public long[] getBounds() {
+        return BOUNDS.clone();
+    }
+
+    public long[] getBuckets() {
+        long[] res = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            res[i] = buckets[i].sum();
+        }
+        return res;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getAverage() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+}
@@ -0,0 +1,119 @@
+package com.singlestore.kafka.utils;
+
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+// ColumnAccessorPlan is a precompiled list of column accessors for records with the given schema
+// Field names and paths are resolved once when the plan is built,
+// so writing a record is just a sequence of index lookups in the Struct and per-type writes
+// The output is identical to ValueWithSchema.writeCSV and ValueWithSchema.writeMappedColumnsCSV
+public class ColumnAccessorPlan {
+
+    private final ColumnAccessor[] accessors;
+
+    private ColumnAccessorPlan(List<ColumnAccessor> accessors) {
+        this.accessors = accessors.toArray(new ColumnAccessor[0]);
+    }
+
+    // forColumns builds the plan for the record schema and the list of top-level columns
+    public static ColumnAccessorPlan forColumns(Schema schema, List<String> columns) {
+        List<ColumnAccessor> accessors = new ArrayList<>();
+        if (schema.type() != Schema.Type.STRUCT) {
+            accessors.add(new ColumnAccessor(new Schema[0], new Field[0], schema));
+        } else {
+            for (String column: columns) {
+                accessors.add(ColumnAccessor.forPath(schema, new String[]{column}));
+            }
+        }
+        return new ColumnAccessorPlan(accessors);
+    }
+
+    // forColumnMappings builds the plan for the record schema and the list of column to field path mappings
+    public static ColumnAccessorPlan forColumnMappings(Schema schema, List<ColumnMapping> columnMappings) {
+        List<ColumnAccessor> accessors = new ArrayList<>();
+        for (ColumnMapping mapping: columnMappings) {
+            accessors.add(ColumnAccessor.forPath(schema, mapping.getFieldPath().split("\\.")));
+        }
+        return new ColumnAccessorPlan(accessors);
+    }
+
+    public void write(Object value, TsvEncoder encoder) throws IOException {
+        for (int i = 0; i < accessors.length; i++) {
+            if (i > 0) {
+                encoder.writeFieldSeparator();
+            }
+            accessors[i].write(value, encoder);
+        }
+    }
+
+    private static class ColumnAccessor {
+        // parents[i] is the schema of the Struct that contains fields[i]
+        private final Schema[] parents;
+        private final Field[] fields;
+        // schema of the value or null if the path doesn't exist in the schema
+        private final Schema schema;
+        private final boolean primitive;
+
+        private ColumnAccessor(Schema[] parents, Field[] fields, Schema schema) {
+            this.parents = parents;
+            this.fields = fields;
+            this.schema = schema;
+            this.primitive = schema != null && schema.type().isPrimitive();
+        }
+
+        private static ColumnAccessor forPath(Schema schema, String[] path) {
+            Schema[] parents = new Schema[path.length];
+            Field[] fields = new Field[path.length];
+            Schema current = schema;
+            for (int i = 0; i < path.length; i++) {
+                Field field = current == null || current.type() != Schema.Type.STRUCT ? null : current.field(path[i]);
+                if (field == null) {
+                    return new ColumnAccessor(new Schema[0], new Field[0], null);
+                }
+                parents[i] = current;
+                fields[i] = field;
+                current = field.schema();
+            }
+            return new ColumnAccessor(parents, fields, current);
+        }
+
+        private void write(Object value, TsvEncoder encoder) throws IOException {
+            if (schema == null) {
+                encoder.writeNull();
+                return;
+            }
+            for (int i = 0; i < fields.length && value != null; i++) {
+                Struct struct = (Struct) value;
+                // the Struct is normally built with the same schema instance as the record,
+                // otherwise the field is resolved by name in its own schema
+                value = struct.schema() == parents[i] ? struct.get(fields[i]) : getByName(struct, fields[i].name());
+            }
+
+            if (value == null) {
+                encoder.writeNull();
+            } else if (!primitive) {
+                ValueWithSchema.writeJSON(value, schema, encoder);
+            } else if (value instanceof Boolean) {
+                encoder.writeBoolean((Boolean) value);
+            } else if (value instanceof byte[]) {
+                encoder.writeBytes((byte[]) value);
+            } else {
+                encoder.writeObject(value);
+            }
+        }
+
+        private static Object getByName(Struct struct, String name) {
+            try {
+                return struct.get(name);
+            } catch (DataException ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.singlestore.kafka.utils;
+
+import org.apache.kafka.connect.data.Schema;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// ColumnAccessorPlanCache stores compiled ColumnAccessorPlans by the identity of the record schema
+// Converters reuse schema instances for records with the same schema, so the identity lookup is enough
+// and doesn't require computing hash codes of the whole schema
+// The number of plans is bounded, so schemas that are created for every record don't exhaust the memory
+public class ColumnAccessorPlanCache {
+
+    private static final int MAX_SIZE = 1000;
+
+    private final Map<PlanKey, ColumnAccessorPlan> plans = new LinkedHashMap<PlanKey, ColumnAccessorPlan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PlanKey, ColumnAccessorPlan> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    public ColumnAccessorPlan forColumns(Schema schema, List<String> columns) {
+        return get(new PlanKey(schema, columns), () -> ColumnAccessorPlan.forColumns(schema, columns));
+    }
+
+    public ColumnAccessorPlan forColumnMappings(Schema schema, List<ColumnMapping> columnMappings) {
+        return get(new PlanKey(schema, columnMappings), () -> ColumnAccessorPlan.forColumnMappings(schema, columnMappings));
+    }
+
+    private synchronized ColumnAccessorPlan get(PlanKey key, Supplier<ColumnAccessorPlan> compile) {
+        ColumnAccessorPlan plan = plans.get(key);
+        if (plan == null) {
+            plan = compile.get();
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    private static class PlanKey {
+        private final Schema schema;
+        private final List<?> columns;
+
+        private PlanKey(Schema schema, List<?> columns) {
+            this.schema = schema;
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            PlanKey planKey = (PlanKey) o;
+            return schema == planKey.schema && columns.equals(planKey.columns);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(schema) + columns.hashCode();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.singlestore.kafka.utils;
+
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// ColumnProjection is the final list of columns loaded into a table from records with the given schema
+// The columns are selected from the record fields (or singlestore.columnToField mappings) that are in fields.whitelist
+// and exist in the table, so records are encoded without copying them into whitelisted records first
+// Fields that the table doesn't have are dropped
+public class ColumnProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnProjection.class);
+    // dropped columns already reported by table, projections are rebuilt for every batch of schemaless records
+    private static final Map<String, Set<List<String>>> reportedDroppedColumns = new ConcurrentHashMap<>();
+
+    private final Schema schema;
+    private final List<String> columns;
+    private final List<ColumnMapping> columnMappings;
+    private final ColumnAccessorPlan plan;
+    private final TableMetadata tableMetadata;
+
+    private ColumnProjection(Schema schema, List<String> columns, List<ColumnMapping> columnMappings,
+                             ColumnAccessorPlan plan, TableMetadata tableMetadata) {
+        this.schema = schema;
+        this.columns = columns;
+        this.columnMappings = columnMappings;
+        this.plan = plan;
+        this.tableMetadata = tableMetadata;
+    }
+
+    // of builds the projection for the schema of the record, the columns of schemaless records are taken from the record
+    // whitelist is empty if all fields are loaded, tableMetadata is null if columns of the table are unknown
+    public static ColumnProjection of(String table, SinkRecord record, Set<String> whitelist, List<ColumnMapping> columnMappings,
+                                      TableMetadata tableMetadata, ColumnAccessorPlanCache planCache) {
+        Set<String> tableColumns = null;
+        if (tableMetadata != null && tableMetadata.getColumns() != null) {
+            // column names are case insensitive
+            tableColumns = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+            tableColumns.addAll(tableMetadata.getColumns());
+        }
+        Schema schema = record.valueSchema();
+        List<String> dropped = new ArrayList<>();
+
+        ColumnProjection projection;
+        if (columnMappings != null) {
+            List<ColumnMapping> mappings = new ArrayList<>();
+            for (ColumnMapping mapping: columnMappings) {
+                String field = mapping.getFieldPath().split("\\.")[0];
+                if (!whitelist.isEmpty() && !whitelist.contains(field)) {
+                    continue;
+                }
+                if (tableColumns != null && !tableColumns.contains(mapping.getColumnName())) {
+                    dropped.add(mapping.getColumnName());
+                    continue;
+                }
+                mappings.add(mapping);
+            }
+            List<String> columns = mappings.stream().map(ColumnMapping::getColumnName).collect(Collectors.toList());
+            ColumnAccessorPlan plan = schema == null ? null : planCache.forColumnMappings(schema, mappings);
+            projection = new ColumnProjection(schema, columns, mappings, plan, tableMetadata);
+        } else {
+            List<String> columns = new ValueWithSchema(record).getColumns();
+            boolean struct = schema == null ? record.value() instanceof Map : schema.type() == Schema.Type.STRUCT;
+            if (struct) {
+                List<String> selected = new ArrayList<>();
+                for (String column: columns) {
+                    if (!whitelist.isEmpty() && !whitelist.contains(column)) {
+                        continue;
+                    }
+                    if (tableColumns != null && !tableColumns.contains(column)) {
+                        dropped.add(column);
+                        continue;
+                    }
+                    selected.add(column);
+                }
+                columns = selected;
+            }
+            ColumnAccessorPlan plan = schema == null ? null : planCache.forColumns(schema, columns);
+            projection = new ColumnProjection(schema, columns, null, plan, tableMetadata);
+        }
+
+        reportDroppedColumns(table, dropped);
+        return projection;
+    }
+
+    // reportDroppedColumns warns about fields that are not loaded because the table doesn't have their columns
+    // every set of dropped columns of a table is reported once, later occurrences are logged at debug
+    // true is returned if the warning was logged
+    public static boolean reportDroppedColumns(String table, List<String> dropped) {
+        if (dropped.isEmpty()) {
+            return false;
+        }
+        if (reportedDroppedColumns.computeIfAbsent(table, t -> ConcurrentHashMap.newKeySet()).add(new ArrayList<>(dropped))) {
+            log.warn("Table `{}` doesn't have columns {}, they are not loaded", table, dropped);
+            return true;
+        }
+        log.debug("Table `{}` doesn't have columns {}, they are not loaded", table, dropped);
+        return false;
+    }
+
+    // getSchema returns the schema the plan is compiled for or null for schemaless records
+    public Schema getSchema() {
+        return schema;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    // getColumnMappings returns the mappings of the columns or null if the columns are record fields
+    public List<ColumnMapping> getColumnMappings() {
+        return columnMappings;
+    }
+
+    public ColumnAccessorPlan getPlan() {
+        return plan;
+    }
+
+    public TableMetadata getTableMetadata() {
+        return tableMetadata;
+    }
+}
@@ -0,0 +1,78 @@
+package com.singlestore.kafka.utils;
+
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// ColumnProjectionCache stores ColumnProjections by the table and the identity of the record schema
+// A projection is built again when the metadata of its table is reloaded, so new columns of the table are picked up
+// Projections of schemaless records depend on the fields of the record and are not cached
+public class ColumnProjectionCache {
+
+    private static final int MAX_SIZE = 1000;
+
+    private final SingleStoreSinkConfig config;
+    private final Set<String> whitelist;
+    private final ColumnAccessorPlanCache planCache;
+
+    private final Map<ProjectionKey, ColumnProjection> projections = new LinkedHashMap<ProjectionKey, ColumnProjection>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ProjectionKey, ColumnProjection> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    public ColumnProjectionCache(SingleStoreSinkConfig config, ColumnAccessorPlanCache planCache) {
+        this.config = config;
+        this.whitelist = config.fieldsWhitelist == null ? new HashSet<>() : new HashSet<>(config.fieldsWhitelist);
+        this.planCache = planCache;
+    }
+
+    public ColumnProjection get(String table, SinkRecord record, TableMetadata tableMetadata) {
+        Schema schema = record.valueSchema();
+        if (schema == null) {
+            return build(table, record, tableMetadata);
+        }
+        ProjectionKey key = new ProjectionKey(table, schema);
+        synchronized (projections) {
+            ColumnProjection projection = projections.get(key);
+            if (projection == null || projection.getTableMetadata() != tableMetadata) {
+                projection = build(table, record, tableMetadata);
+                projections.put(key, projection);
+            }
+            return projection;
+        }
+    }
+
+    private ColumnProjection build(String table, SinkRecord record, TableMetadata tableMetadata) {
+        return ColumnProjection.of(table, record, whitelist, config.tableToColumnToFieldMap.get(table), tableMetadata, planCache);
+    }
+
+    private static class ProjectionKey {
+        private final String table;
+        private final Schema schema;
+
+        private ProjectionKey(String table, Schema schema) {
+            this.table = table;
+            this.schema = schema;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ProjectionKey projectionKey = (ProjectionKey) o;
+            return schema == projectionKey.schema && table.equals(projectionKey.table);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(schema) + table.hashCode();
+        }
+    }
+}
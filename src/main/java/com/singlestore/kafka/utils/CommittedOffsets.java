@@ -0,0 +1,102 @@
+package com.singlestore.kafka.utils;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// CommittedOffsets keeps the highest offset of every topic partition that is saved in the metadata table
+// Offsets of a partition are loaded once and then updated after each committed write,
+// so replayed records are filtered without querying the metadata table for every batch
+//
+// Partitions are unverified until the first write after their offsets were loaded.
+// The metadata table may have records of such partitions that don't have offsets
+// (written by previous versions of the connector or by the interrupted parallel write of a batch),
+// so writes of unverified partitions also check the ids of these records
+//
+// Shards of a batch are written concurrently, so the offsets can be updated by several threads (for different partitions)
+public class CommittedOffsets {
+
+    public static final long NONE = -1;
+
+    private final Map<TopicPartition, Long> offsets = new ConcurrentHashMap<>();
+    private final Set<TopicPartition> unverified = ConcurrentHashMap.newKeySet();
+
+    // missing returns partitions of the records whose offsets are not loaded
+    public Set<TopicPartition> missing(Collection<SinkRecord> records) {
+        Set<TopicPartition> res = new HashSet<>();
+        for (SinkRecord record: records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.kafkaPartition());
+            if (!offsets.containsKey(partition)) {
+                res.add(partition);
+            }
+        }
+        return res;
+    }
+
+    // loaded saves offsets read from the metadata table, partitions without records are saved with NONE
+    public void loaded(Collection<TopicPartition> partitions, Map<TopicPartition, Long> committed) {
+        for (TopicPartition partition: partitions) {
+            offsets.put(partition, committed.getOrDefault(partition, NONE));
+            unverified.add(partition);
+        }
+    }
+
+    public long get(TopicPartition partition) {
+        return offsets.getOrDefault(partition, NONE);
+    }
+
+    // getLoaded returns offsets of the partitions that have committed records
+    public Map<TopicPartition, Long> getLoaded(Collection<TopicPartition> partitions) {
+        Map<TopicPartition, Long> res = new HashMap<>();
+        for (TopicPartition partition: partitions) {
+            long offset = get(partition);
+            if (offset != NONE) {
+                res.put(partition, offset);
+            }
+        }
+        return res;
+    }
+
+    // filter returns records with offsets greater than the committed offsets of their partitions
+    public List<SinkRecord> filter(Collection<SinkRecord> records) {
+        List<SinkRecord> res = new ArrayList<>(records.size());
+        for (SinkRecord record: records) {
+            if (record.kafkaOffset() > get(new TopicPartition(record.topic(), record.kafkaPartition()))) {
+                res.add(record);
+            }
+        }
+        return res;
+    }
+
+    public boolean isUnverified(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition: partitions) {
+            if (unverified.contains(partition)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void committed(Collection<OffsetRange> ranges) {
+        for (OffsetRange range: ranges) {
+            offsets.merge(range.getPartition(), range.getMaxOffset(), Math::max);
+            unverified.remove(range.getPartition());
+        }
+    }
+
+    // remove forgets offsets of partitions, they are loaded again before the next write of these partitions
+    public void remove(Collection<TopicPartition> partitions) {
+        for (TopicPartition partition: partitions) {
+            offsets.remove(partition);
+            unverified.remove(partition);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.singlestore.kafka.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// CompressionSelector chooses the codec of the LOAD DATA stream of one table when the compression is auto
+// Every SAMPLE_INTERVAL batches, a sample of the encoded data is compressed with every candidate codec
+// to measure its compression ratio and time. LOAD DATA queries measure the time spent on every sent byte.
+// The end-to-end time of a byte is estimated as the maximum of the producer time (encoding and compression)
+// and the time of sending the compressed byte, because the producer and LOAD DATA run concurrently.
+// The codec is switched only when its estimate is better than the estimate of the current codec by HYSTERESIS
+public class CompressionSelector {
+
+    public static final int SAMPLE_BYTES = 256 * 1024;
+    static final int SAMPLE_INTERVAL = 20;
+    static final int MIN_LOADS_BETWEEN_SWITCHES = 5;
+    static final double HYSTERESIS = 0.2;
+    // LOAD DATA is bound by the server or network when the producer waited for it for this part of the load time
+    private static final double CONSUMER_BOUND_WAIT = 0.1;
+    private static final double ALPHA = 0.3;
+
+    private static class CodecStats {
+        double ratio = Double.NaN;
+        double compressionNanosPerByte = Double.NaN;
+    }
+
+    private final List<DataCompression> candidates;
+    private final int parallelism;
+    private final Map<DataCompression, CodecStats> stats = new EnumMap<>(DataCompression.class);
+    private DataCompression current;
+    private double serializationNanosPerByte = Double.NaN;
+    private double transferNanosPerByte = Double.NaN;
+    private long batches = 0;
+    private long loadsSinceSwitch = 0;
+
+    // parallelism is the number of threads that compress a stream
+    public CompressionSelector(List<DataCompression> candidates, int parallelism) {
+        this.candidates = candidates;
+        this.parallelism = parallelism;
+        this.current = candidates.contains(DataCompression.lz4) ? DataCompression.lz4 : candidates.get(0);
+        for (DataCompression candidate: candidates) {
+            stats.put(candidate, new CodecStats());
+        }
+        if (stats.containsKey(DataCompression.skip)) {
+            stats.get(DataCompression.skip).ratio = 1;
+            stats.get(DataCompression.skip).compressionNanosPerByte = 0;
+        }
+    }
+
+    public synchronized DataCompression current() {
+        return current;
+    }
+
+    // shouldSample is called for every batch and returns true if the data of the batch should be sampled
+    public synchronized boolean shouldSample() {
+        return batches++ % SAMPLE_INTERVAL == 0;
+    }
+
+    // sample compresses the data with every candidate codec
+    public void sample(byte[] data, int level) throws IOException {
+        if (data.length == 0) {
+            return;
+        }
+        for (DataCompression candidate: candidates) {
+            if (candidate == DataCompression.skip) {
+                continue;
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length);
+            long start = System.nanoTime();
+            try (OutputStream stream = DataExtension.forCompression(candidate, level, compressed).getOutputStream()) {
+                stream.write(data);
+            }
+            recordSample(candidate, data.length, compressed.size(), System.nanoTime() - start);
+        }
+    }
+
+    public synchronized void recordSample(DataCompression codec, long rawBytes, long compressedBytes, long nanos) {
+        CodecStats codecStats = stats.get(codec);
+        if (codecStats == null || rawBytes == 0) {
+            return;
+        }
+        codecStats.ratio = average(codecStats.ratio, (double) compressedBytes / rawBytes);
+        codecStats.compressionNanosPerByte = average(codecStats.compressionNanosPerByte, (double) nanos / rawBytes);
+        select();
+    }
+
+    // recordLoad is called after a LOAD DATA query of the table
+    // pipeWaitNanos is the time the producer waited for LOAD DATA to read the stream
+    public synchronized void recordLoad(long rawBytes, long sentBytes, long serializationNanos, long pipeWaitNanos, long loadNanos) {
+        if (rawBytes == 0 || sentBytes == 0) {
+            return;
+        }
+        loadsSinceSwitch++;
+        serializationNanosPerByte = average(serializationNanosPerByte, (double) serializationNanos / rawBytes);
+        double observed = (double) loadNanos / sentBytes;
+        if (pipeWaitNanos >= loadNanos * CONSUMER_BOUND_WAIT) {
+            transferNanosPerByte = average(transferNanosPerByte, observed);
+        } else if (Double.isNaN(transferNanosPerByte) || observed < transferNanosPerByte) {
+            // LOAD DATA waited for the producer, so the observed time is only an upper bound of the transfer time
+            transferNanosPerByte = observed;
+        }
+        select();
+    }
+
+    // estimate returns the estimated time in nanoseconds of loading one byte of the encoded data with the codec
+    synchronized double estimate(DataCompression codec) {
+        CodecStats codecStats = stats.get(codec);
+        if (codecStats == null || Double.isNaN(codecStats.ratio) || Double.isNaN(transferNanosPerByte)) {
+            return Double.NaN;
+        }
+        double producer = (Double.isNaN(serializationNanosPerByte) ? 0 : serializationNanosPerByte)
+            + codecStats.compressionNanosPerByte / parallelism;
+        return Math.max(producer, codecStats.ratio * transferNanosPerByte);
+    }
+
+    private void select() {
+        if (loadsSinceSwitch < MIN_LOADS_BETWEEN_SWITCHES) {
+            return;
+        }
+        double currentEstimate = estimate(current);
+        if (Double.isNaN(currentEstimate)) {
+            return;
+        }
+        DataCompression best = current;
+        double bestEstimate = currentEstimate;
+        for (DataCompression candidate: candidates) {
+            double candidateEstimate = estimate(candidate);
+            if (!Double.isNaN(candidateEstimate) && candidateEstimate < bestEstimate) {
+                best = candidate;
+                bestEstimate = candidateEstimate;
+            }
+        }
+        if (best != current && bestEstimate < currentEstimate * (1 - HYSTERESIS)) {
+            current = best;
+            loadsSinceSwitch = 0;
+        }
+    }
+
+    private static double average(double average, double value) {
+        return Double.isNaN(average) ? value : average + ALPHA * (value - average);
+    }
+}
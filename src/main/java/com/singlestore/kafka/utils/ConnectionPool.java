@@ -0,0 +1,344 @@
+package com.singlestore.kafka.utils;
+
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// ConnectionPool keeps physical connections to the DDL and DML endpoints open between batches.
+// Connections returned by getDDLConnection/getDMLConnection go back to the pool when they are closed,
+// so callers keep using try-with-resources exactly as with plain JDBC connections.
+// When connection.dmlEndpoints.balancing is enabled, every DML endpoint has its own pool
+// and EndpointSelector chooses the pool for each borrowed connection.
+public class ConnectionPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private static final int VALIDATION_TIMEOUT_SEC = 5;
+
+    private final Pool ddlPool;
+    private final Pool dmlPool;
+    private final Map<String, DmlEndpoint> dmlEndpoints;
+    private final EndpointSelector dmlEndpointSelector;
+    private final ScheduledExecutorService evictor;
+
+    public ConnectionPool(SingleStoreSinkConfig config) {
+        this(config, new TaskMetrics());
+    }
+
+    public ConnectionPool(SingleStoreSinkConfig config, TaskMetrics metrics) {
+        this.ddlPool = new Pool("ddl", config, () -> JdbcHelper.getDDLConnection(config));
+        if (config.dmlEndpointsBalancing == EndpointBalancing.failover || config.dmlEndpoints.size() < 2) {
+            this.dmlPool = new Pool("dml", config, () -> JdbcHelper.getDMLConnection(config));
+            this.dmlEndpoints = null;
+            this.dmlEndpointSelector = null;
+        } else {
+            this.dmlPool = null;
+            this.dmlEndpoints = new LinkedHashMap<>();
+            this.dmlEndpointSelector = new EndpointSelector(config.dmlEndpoints, config.dmlEndpointsBalancing, config.dmlEndpointsEjectionMs);
+            for (String endpoint: config.dmlEndpoints) {
+                DmlEndpoint dmlEndpoint = new DmlEndpoint(endpoint, config, dmlEndpointSelector);
+                dmlEndpoints.put(endpoint, dmlEndpoint);
+                metrics.addEndpoint(endpoint, dmlEndpoint.metrics);
+            }
+        }
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "singlestore-connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, config.connectionPoolIdleTimeoutMs / 2);
+        this.evictor.scheduleAtFixedRate(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public Connection getDDLConnection() throws SQLException {
+        return ddlPool.borrow();
+    }
+
+    public Connection getDMLConnection() throws SQLException {
+        if (dmlEndpoints == null) {
+            return dmlPool.borrow();
+        }
+
+        SQLException error = null;
+        for (String endpoint: dmlEndpointSelector.order(e -> dmlEndpoints.get(e).pool.inUse())) {
+            DmlEndpoint dmlEndpoint = dmlEndpoints.get(endpoint);
+            try {
+                Connection connection = dmlEndpoint.pool.borrow();
+                dmlEndpoint.metrics.recordBorrow();
+                return connection;
+            } catch (SQLException ex) {
+                if (error == null) {
+                    error = ex;
+                } else {
+                    error.addSuppressed(ex);
+                }
+            }
+        }
+        throw error;
+    }
+
+    private void evictIdle() {
+        try {
+            ddlPool.evictIdle();
+            for (Pool pool: dmlPools()) {
+                pool.evictIdle();
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Failed to evict idle connections", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        ddlPool.close();
+        for (Pool pool: dmlPools()) {
+            pool.close();
+        }
+    }
+
+    private List<Pool> dmlPools() {
+        if (dmlEndpoints == null) {
+            return Collections.singletonList(dmlPool);
+        }
+        List<Pool> pools = new ArrayList<>();
+        dmlEndpoints.values().forEach(dmlEndpoint -> pools.add(dmlEndpoint.pool));
+        return pools;
+    }
+
+    // DmlEndpoint is the pool of one DML endpoint
+    // failures to open a connection eject the endpoint, a successfully opened connection brings it back
+    private static class DmlEndpoint {
+        final Pool pool;
+        final EndpointMetrics metrics;
+
+        DmlEndpoint(String endpoint, SingleStoreSinkConfig config, EndpointSelector selector) {
+            EndpointMetrics endpointMetrics = new EndpointMetrics(this::inUse, () -> selector.isEjected(endpoint));
+            this.metrics = endpointMetrics;
+            this.pool = new Pool("dml " + endpoint, config, () -> {
+                try {
+                    Connection connection = JdbcHelper.getDMLConnection(config, endpoint);
+                    selector.recordSuccess(endpoint);
+                    return connection;
+                } catch (SQLException ex) {
+                    log.warn("Failed to connect to the DML endpoint {}: {}", endpoint, ex.getLocalizedMessage());
+                    selector.recordFailure(endpoint);
+                    endpointMetrics.recordConnectFailure();
+                    throw ex;
+                }
+            });
+        }
+
+        private int inUse() {
+            return pool.inUse();
+        }
+    }
+
+    private interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private static class IdleConnection {
+        final Connection connection;
+        final long idleSince;
+
+        IdleConnection(Connection connection) {
+            this.connection = connection;
+            this.idleSince = System.currentTimeMillis();
+        }
+    }
+
+    private static class Pool {
+        private final String name;
+        private final ConnectionFactory factory;
+        private final Semaphore permits;
+        private final int maxSize;
+        private final long maxWaitMs;
+        private final long idleTimeoutMs;
+        private final Deque<IdleConnection> idle = new ArrayDeque<>();
+        private boolean closed = false;
+
+        Pool(String name, SingleStoreSinkConfig config, ConnectionFactory factory) {
+            this.name = name;
+            this.factory = factory;
+            this.permits = new Semaphore(config.connectionPoolMaxSize, true);
+            this.maxSize = config.connectionPoolMaxSize;
+            this.maxWaitMs = config.connectionPoolMaxWaitMs;
+            this.idleTimeoutMs = config.connectionPoolIdleTimeoutMs;
+        }
+
+        Connection borrow() throws SQLException {
+            try {
+                if (!permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                    throw new SQLException(String.format("Timed out after %s ms waiting for a %s connection from the pool", maxWaitMs, name));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException(String.format("Interrupted while waiting for a %s connection from the pool", name), ex);
+            }
+
+            try {
+                Connection connection;
+                while ((connection = pollIdle()) != null) {
+                    if (isValid(connection)) {
+                        return wrap(connection);
+                    }
+                    log.debug("Discarding invalid {} connection", name);
+                    closeQuietly(connection);
+                }
+                return wrap(factory.create());
+            } catch (SQLException | RuntimeException ex) {
+                permits.release();
+                throw ex;
+            }
+        }
+
+        // inUse returns the number of borrowed connections
+        int inUse() {
+            return maxSize - permits.availablePermits();
+        }
+
+        private synchronized Connection pollIdle() throws SQLException {
+            if (closed) {
+                throw new SQLException("Connection pool is closed");
+            }
+            IdleConnection idleConnection = idle.pollFirst();
+            return idleConnection == null ? null : idleConnection.connection;
+        }
+
+        private void release(Connection connection) {
+            try {
+                if (connection.isClosed()) {
+                    return;
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                synchronized (this) {
+                    if (!closed) {
+                        idle.offerFirst(new IdleConnection(connection));
+                        return;
+                    }
+                }
+                closeQuietly(connection);
+            } catch (SQLException ex) {
+                log.debug("Discarding broken {} connection", name, ex);
+                closeQuietly(connection);
+            } finally {
+                permits.release();
+            }
+        }
+
+        void evictIdle() {
+            long threshold = System.currentTimeMillis() - idleTimeoutMs;
+            Deque<Connection> evicted = new ArrayDeque<>();
+            synchronized (this) {
+                Iterator<IdleConnection> it = idle.descendingIterator();
+                while (it.hasNext()) {
+                    IdleConnection idleConnection = it.next();
+                    if (idleConnection.idleSince > threshold) {
+                        break;
+                    }
+                    it.remove();
+                    evicted.add(idleConnection.connection);
+                }
+            }
+            if (!evicted.isEmpty()) {
+                log.debug("Evicting {} idle {} connections", evicted.size(), name);
+            }
+            evicted.forEach(Pool::closeQuietly);
+        }
+
+        void close() {
+            Deque<IdleConnection> toClose;
+            synchronized (this) {
+                closed = true;
+                toClose = new ArrayDeque<>(idle);
+                idle.clear();
+            }
+            toClose.forEach(idleConnection -> closeQuietly(idleConnection.connection));
+        }
+
+        private static boolean isValid(Connection connection) {
+            try {
+                return connection.isValid(VALIDATION_TIMEOUT_SEC);
+            } catch (SQLException ex) {
+                return false;
+            }
+        }
+
+        private static void closeQuietly(Connection connection) {
+            try {
+                connection.close();
+            } catch (SQLException ex) {
+                log.debug("Failed to close connection", ex);
+            }
+        }
+
+        private Connection wrap(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(
+                ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnectionHandler(this, connection));
+        }
+    }
+
+    // PooledConnectionHandler returns the physical connection to the pool on close() instead of closing it
+    private static class PooledConnectionHandler implements InvocationHandler {
+        private final Pool pool;
+        private final Connection connection;
+        private boolean released = false;
+
+        PooledConnectionHandler(Pool pool, Connection connection) {
+            this.pool = pool;
+            this.connection = connection;
+        }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!released) {
+                        released = true;
+                        pool.release(connection);
+                    }
+                    return null;
+                case "isClosed":
+                    return released || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (released) {
+                        throw new SQLException("Connection has been returned to the pool");
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -1,7 +1,76 @@
 package com.singlestore.kafka.utils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 public enum DataCompression {
-    gzip,
-    lz4,
-    skip
+    gzip(9),
+    lz4(17),
+    zstd(22),
+    skip(0),
+    // auto selects one of the other codecs per table, the level must be valid for all of them
+    auto(9);
+
+    // the earliest server version that zstd files are sent to in LOAD DATA
+    // it is a conservative gate that is checked by integration/DataCompressionTest against the server under test,
+    // if a server of a later version still fails to decompress the stream, the writer falls back to other codecs at runtime
+    static final String ZSTD_MIN_SERVER_VERSION = "8.7.0";
+
+    private final int maxLevel;
+
+    DataCompression(int maxLevel) {
+        this.maxLevel = maxLevel;
+    }
+
+    public int getMaxLevel() {
+        return maxLevel;
+    }
+
+    // negotiate returns the codec to use with the server of the given version
+    // zstd falls back to lz4 on servers that don't support it
+    public DataCompression negotiate(String serverVersion) {
+        if (this == zstd && compareVersions(serverVersion, ZSTD_MIN_SERVER_VERSION) < 0) {
+            return lz4;
+        }
+        return this;
+    }
+
+    // candidates returns the codecs that can be used with the server of the given version
+    public List<DataCompression> candidates(String serverVersion) {
+        if (this != auto) {
+            return Collections.singletonList(negotiate(serverVersion));
+        }
+        List<DataCompression> candidates = new ArrayList<>();
+        for (DataCompression compression: values()) {
+            if (compression != auto && compression.negotiate(serverVersion) == compression) {
+                candidates.add(compression);
+            }
+        }
+        return candidates;
+    }
+
+    // compareVersions compares the numeric components of dotted versions, other suffixes are ignored
+    static int compareVersions(String a, String b) {
+        String[] aParts = a.split("[.\\-]");
+        String[] bParts = b.split("[.\\-]");
+        for (int i = 0; i < Math.max(aParts.length, bParts.length); i++) {
+            int cmp = Integer.compare(versionPart(aParts, i), versionPart(bParts, i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return 0;
+    }
+
+    private static int versionPart(String[] parts, int i) {
+        if (i >= parts.length) {
+            return 0;
+        }
+        int end = 0;
+        while (end < parts[i].length() && Character.isDigit(parts[i].charAt(end))) {
+            end++;
+        }
+        return end == 0 ? 0 : Integer.parseInt(parts[i].substring(0, end));
+    }
 }
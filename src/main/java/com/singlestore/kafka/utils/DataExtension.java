@@ -1,9 +1,21 @@
 package com.singlestore.kafka.utils;
 
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.kafka.connect.errors.ConnectException;
+
+import java.io.IOException;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPOutputStream;
 
 public class DataExtension {
 
+    public static final int DEFAULT_LEVEL = -1;
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
     private final String ext;
     private final OutputStream outputStream;
 
@@ -19,4 +31,87 @@ public class DataExtension {
     public OutputStream getOutputStream() {
         return outputStream;
     }
+
+    // forCompression wraps the stream that is sent to LOAD DATA with the compression codec
+    public static DataExtension forCompression(DataCompression dataCompression, OutputStream baseStream) {
+        return forCompression(dataCompression, DEFAULT_LEVEL, baseStream);
+    }
+
+    public static DataExtension forCompression(DataCompression dataCompression, int level, OutputStream baseStream) {
+        try {
+            switch (dataCompression) {
+                case gzip:
+                    return new DataExtension("gz", gzip(baseStream, level));
+                case lz4:
+                    return new DataExtension("lz4", lz4(baseStream, level, LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB));
+                case zstd:
+                    return new DataExtension("zst", zstd(baseStream, level));
+                case skip:
+                    return new DataExtension("tsv", baseStream);
+                default:
+                    throw new ConnectException(String.format("Invalid data compression type. Type `%s` doesn't exist", dataCompression));
+            }
+        } catch (IOException ex) {
+            throw new ConnectException(ex.getLocalizedMessage());
+        }
+    }
+
+    // forParallelCompression splits the data into blocks of blockSize bytes that are compressed by the executor
+    // blocks are written as concatenated gzip members, LZ4 frames or zstd frames
+    public static DataExtension forParallelCompression(DataCompression dataCompression, int level, int blockSize,
+                                                       ExecutorService executor, int parallelism, OutputStream baseStream) {
+        switch (dataCompression) {
+            case gzip:
+                return new DataExtension("gz", new ParallelCompressionOutputStream(baseStream,
+                    out -> gzip(out, level), blockSize, executor, 2 * parallelism));
+            case lz4:
+                // the frame block size is not larger than needed for one compressed block
+                LZ4FrameOutputStream.BLOCKSIZE frameBlockSize = lz4BlockSize(blockSize);
+                return new DataExtension("lz4", new ParallelCompressionOutputStream(baseStream,
+                    out -> lz4(out, level, frameBlockSize), blockSize, executor, 2 * parallelism));
+            case zstd:
+                return new DataExtension("zst", new ParallelCompressionOutputStream(baseStream,
+                    out -> zstd(out, level), blockSize, executor, 2 * parallelism));
+            default:
+                return forCompression(dataCompression, level, baseStream);
+        }
+    }
+
+    private static OutputStream gzip(OutputStream out, int level) throws IOException {
+        if (level == DEFAULT_LEVEL) {
+            return new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+        }
+        return new GZIPOutputStream(out, GZIP_BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    // lz4 uses the fast compressor by default and the high compressor for levels from 1 to 17
+    private static OutputStream lz4(OutputStream out, int level, LZ4FrameOutputStream.BLOCKSIZE blockSize) throws IOException {
+        if (level <= 0) {
+            return new LZ4FrameOutputStream(out, blockSize);
+        }
+        return new LZ4FrameOutputStream(out, blockSize, -1L,
+            LZ4Factory.fastestInstance().highCompressor(level), XXHashFactory.fastestInstance().hash32(),
+            LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE);
+    }
+
+    // zstd writes frames with content checksums, the default level of the codec is 3
+    private static OutputStream zstd(OutputStream out, int level) throws IOException {
+        ZstdOutputStream stream = level == DEFAULT_LEVEL
+            ? new ZstdOutputStream(out)
+            : new ZstdOutputStream(out, level);
+        return stream.setChecksum(true);
+    }
+
+    private static LZ4FrameOutputStream.BLOCKSIZE lz4BlockSize(int size) {
+        for (LZ4FrameOutputStream.BLOCKSIZE blockSize: LZ4FrameOutputStream.BLOCKSIZE.values()) {
+            if (size <= 1 << (2 * blockSize.getIndicator() + 8)) {
+                return blockSize;
+            }
+        }
+        return LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB;
+    }
 }
@@ -9,9 +9,40 @@ import org.apache.kafka.connect.sink.SinkRecord;
 import java.util.*;
 import java.util.stream.Collectors;
 
+// DataTransform keeps only the whitelisted fields of record values
+// Projected schemas are cached by the identity of the source schema, so all records with the same schema
+// share one projected schema instance, and ColumnAccessorPlanCache finds their plan by identity as well
+// The number of cached schemas is bounded the same way as in ColumnAccessorPlanCache
 public class DataTransform {
+
+    private static final int MAX_CACHED_SCHEMAS = 1000;
+
     HashSet<String> fieldsWhitelist;
 
+    private final Map<SchemaKey, Projection> projections = new LinkedHashMap<SchemaKey, Projection>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SchemaKey, Projection> eldest) {
+            return size() > MAX_CACHED_SCHEMAS;
+        }
+    };
+    // records of a batch usually share the schema, so the last projection is checked before the cache
+    private volatile Projection lastProjection = null;
+
+    // Projection is the projected schema together with the fields copied from the source schema
+    private static class Projection {
+        private final Schema source;
+        private final Schema schema;
+        private final Field[] sourceFields;
+        private final Field[] fields;
+
+        private Projection(Schema source, Schema schema, Field[] sourceFields) {
+            this.source = source;
+            this.schema = schema;
+            this.sourceFields = sourceFields;
+            this.fields = schema.fields().toArray(new Field[0]);
+        }
+    }
+
     public DataTransform(List<String> fieldsWhiteList) {
         this.fieldsWhitelist = fieldsWhiteList == null ? new HashSet<>() : new HashSet<>(fieldsWhiteList);
     }
@@ -24,6 +55,14 @@ public class DataTransform {
         return records.stream().map(this::updateRecord).collect(Collectors.toList());
     }
 
+    // projectSchema returns the schema of the whitelisted fields of records with the schema
+    public Schema projectSchema(Schema schema) {
+        if (this.fieldsWhitelist.size() == 0 || schema == null || schema.type() != Schema.Type.STRUCT) {
+            return schema;
+        }
+        return getProjection(schema).schema;
+    }
+
     private static SchemaBuilder copySchemaBasics(Schema source, SchemaBuilder builder) {
         builder.name(source.name());
         builder.version(source.version());
@@ -36,15 +75,52 @@ public class DataTransform {
         return builder;
     }
 
-    private Schema updateSchema(Schema schema) {
+    private Projection project(Schema schema) {
         final SchemaBuilder builder = copySchemaBasics(schema, SchemaBuilder.struct());
+        List<Field> sourceFields = new ArrayList<>();
         for (Field field : schema.fields()) {
             if (this.fieldsWhitelist.contains(field.name())) {
                 builder.field(field.name(), field.schema());
+                sourceFields.add(field);
+            }
+        }
+
+        return new Projection(schema, builder.build(), sourceFields.toArray(new Field[0]));
+    }
+
+    private Projection getProjection(Schema schema) {
+        Projection projection = lastProjection;
+        if (projection != null && projection.source == schema) {
+            return projection;
+        }
+        synchronized (projections) {
+            SchemaKey key = new SchemaKey(schema);
+            projection = projections.get(key);
+            if (projection == null) {
+                projection = project(schema);
+                projections.put(key, projection);
             }
         }
+        lastProjection = projection;
+        return projection;
+    }
+
+    private static class SchemaKey {
+        private final Schema schema;
+
+        private SchemaKey(Schema schema) {
+            this.schema = schema;
+        }
 
-        return builder.build();
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SchemaKey && ((SchemaKey) o).schema == schema;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(schema);
+        }
     }
 
     private SinkRecord updateRecord(SinkRecord record) {
@@ -54,14 +130,14 @@ public class DataTransform {
                 return record;
             }
 
-            Schema updatedSchema = updateSchema(schema);
-            final Struct updatedValue = new Struct(updatedSchema);
+            Projection projection = getProjection(schema);
+            final Struct updatedValue = new Struct(projection.schema);
             Struct value = (Struct) record.value();
-            for (Field field : updatedSchema.fields()) {
-                updatedValue.put(field.name(), value.get(field.name()));
+            for (int i = 0; i < projection.fields.length; i++) {
+                updatedValue.put(projection.fields[i], value.get(projection.sourceFields[i]));
             }
 
-            return record.newRecord(record.topic(), record.kafkaPartition(), record.keySchema(), record.key(), updatedSchema, updatedValue, record.timestamp());
+            return record.newRecord(record.topic(), record.kafkaPartition(), record.keySchema(), record.key(), projection.schema, updatedValue, record.timestamp());
         } else {
             if (!(record.value() instanceof Map)) {
                 return record;
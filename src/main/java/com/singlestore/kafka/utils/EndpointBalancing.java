@@ -0,0 +1,7 @@
+package com.singlestore.kafka.utils;
+
+public enum EndpointBalancing {
+    failover,
+    roundrobin,
+    leastloaded
+}
@@ -0,0 +1,47 @@
+package com.singlestore.kafka.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntSupplier;
+
+// EndpointMetrics counts DML connections borrowed from the pool of one endpoint and failures to open new ones
+public class EndpointMetrics implements EndpointMetricsMBean {
+
+    private final LongAdder borrowed = new LongAdder();
+    private final LongAdder connectFailures = new LongAdder();
+    private final IntSupplier inUse;
+    private final BooleanSupplier ejected;
+
+    public EndpointMetrics(IntSupplier inUse, BooleanSupplier ejected) {
+        this.inUse = inUse;
+        this.ejected = ejected;
+    }
+
+    public void recordBorrow() {
+        borrowed.increment();
+    }
+
+    public void recordConnectFailure() {
+        connectFailures.increment();
+    }
+
+    @Override
+    public long getConnectionsBorrowed() {
+        return borrowed.sum();
+    }
+
+    @Override
+    public int getConnectionsInUse() {
+        return inUse.getAsInt();
+    }
+
+    @Override
+    public long getConnectFailures() {
+        return connectFailures.sum();
+    }
+
+    @Override
+    public boolean isEjected() {
+        return ejected.getAsBoolean();
+    }
+}
@@ -0,0 +1,13 @@
+package com.singlestore.kafka.utils;
+
+// EndpointMetricsMBean is the JMX view of the DML connections that a task uses on one endpoint
+public interface EndpointMetricsMBean {
+
+    long getConnectionsBorrowed();
+
+    int getConnectionsInUse();
+
+    long getConnectFailures();
+
+    boolean isEjected();
+}
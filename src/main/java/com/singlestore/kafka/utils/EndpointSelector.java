@@ -0,0 +1,68 @@
+package com.singlestore.kafka.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToIntFunction;
+
+// EndpointSelector chooses the DML endpoint for a new load when connection.dmlEndpoints.balancing is enabled
+// Round-robin starts every selection from the next endpoint, least-loaded prefers endpoints with fewer connections in use
+// (endpoints with the same number of connections are taken in the round-robin order).
+// An endpoint that failed to open a connection is ejected for connection.dmlEndpoints.ejectionMs,
+// it is tried only after all other endpoints until it opens a connection again
+public class EndpointSelector {
+
+    private final List<String> endpoints;
+    private final EndpointBalancing balancing;
+    private final long ejectionMs;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Long> ejectedUntil = new ConcurrentHashMap<>();
+
+    public EndpointSelector(List<String> endpoints, EndpointBalancing balancing, long ejectionMs) {
+        this.endpoints = new ArrayList<>(endpoints);
+        this.balancing = balancing;
+        this.ejectionMs = ejectionMs;
+    }
+
+    // order returns all endpoints in the order in which they should be tried
+    public List<String> order(ToIntFunction<String> inUse) {
+        long now = System.currentTimeMillis();
+        int start = Math.floorMod(next.getAndIncrement(), endpoints.size());
+        List<String> healthy = new ArrayList<>(endpoints.size());
+        List<String> ejected = new ArrayList<>();
+        for (int i = 0; i < endpoints.size(); i++) {
+            String endpoint = endpoints.get((start + i) % endpoints.size());
+            if (isEjected(endpoint, now)) {
+                ejected.add(endpoint);
+            } else {
+                healthy.add(endpoint);
+            }
+        }
+        if (balancing == EndpointBalancing.leastloaded) {
+            // the sort is stable, so endpoints with the same load keep the round-robin order
+            healthy.sort(Comparator.comparingInt(inUse));
+        }
+        healthy.addAll(ejected);
+        return healthy;
+    }
+
+    public void recordFailure(String endpoint) {
+        ejectedUntil.put(endpoint, System.currentTimeMillis() + ejectionMs);
+    }
+
+    public void recordSuccess(String endpoint) {
+        ejectedUntil.remove(endpoint);
+    }
+
+    public boolean isEjected(String endpoint) {
+        return isEjected(endpoint, System.currentTimeMillis());
+    }
+
+    private boolean isEjected(String endpoint, long now) {
+        Long until = ejectedUntil.get(endpoint);
+        return until != null && until > now;
+    }
+}
@@ -2,6 +2,8 @@ package com.singlestore.kafka.utils;
 
 import com.singlestore.kafka.sink.SingleStoreDialect;
 import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.errors.ConnectException;
 import org.apache.kafka.connect.sink.SinkRecord;
@@ -9,33 +11,148 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 
 public class JdbcHelper {
 
     private static final Logger log = LoggerFactory.getLogger(JdbcHelper.class);
 
-    public static void createTableIfNeeded(SingleStoreSinkConfig config, String table, Schema schema) throws SQLException {
-        try (Connection connection = getDDLConnection(config)) {
-            boolean tableExists = JdbcHelper.tableExists(connection, table);
-            if (!tableExists) {
-                if (schema == null) {
-                    log.error("Table {} doesn't exist and schema is not provided. Table creation is not supported without schema.", table);
-                    throw new ConnectException(String.format("Table %s doesn't exist and schema is not provided. Table creation is not supported without schema.", table));
+    private static final int ER_BAD_FIELD_ERROR = 1054;
+    private static final int ER_NO_SUCH_TABLE = 1146;
+    private static final int ER_DUP_FIELDNAME = 1060;
+
+    // createTableIfNeeded creates the table if it doesn't exist and returns the list of its columns
+    public static List<String> createTableIfNeeded(Connection connection, SingleStoreSinkConfig config, String table, Schema schema) throws SQLException {
+        List<String> columns = JdbcHelper.getTableColumns(connection, table);
+        if (columns == null) {
+            if (schema == null) {
+                log.error("Table {} doesn't exist and schema is not provided. Table creation is not supported without schema.", table);
+                throw new ConnectException(String.format("Table %s doesn't exist and schema is not provided. Table creation is not supported without schema.", table));
+            }
+            log.info(String.format("Table `%s` doesn't exist. Creating it", table));
+            JdbcHelper.createTable(connection, table, schema, config.tableKeys, config.tableToColumnToFieldMap.get(table));
+            columns = JdbcHelper.getTableColumns(connection, table);
+            if (columns == null) {
+                throw new SQLException(String.format("Failed to get columns of the table `%s`", table));
+            }
+        }
+        return columns;
+    }
+
+    public static void createMetadataTableIfNeeded(Connection connection, SingleStoreSinkConfig config) throws SQLException {
+        boolean metadataTableExists = JdbcHelper.tableExists(connection, config.metadataTableName);
+        if (!metadataTableExists) {
+            log.info(String.format("Metadata table `%s` doesn't exist. Creating it", config.metadataTableName));
+            JdbcHelper.createTable(connection, config.metadataTableName, SingleStoreDialect.getKafkaMetadataSchema());
+            return;
+        }
+
+        List<String> columns = JdbcHelper.getTableColumns(connection, config.metadataTableName);
+        if (columns != null && !columns.contains("maxOffset")) {
+            log.info(String.format("Metadata table `%s` doesn't have offset columns. Adding them", config.metadataTableName));
+            try (Statement stmt = connection.createStatement()) {
+                for (String column: SingleStoreDialect.getKafkaMetadataOffsetColumns()) {
+                    String sql = SingleStoreDialect.getAddColumnQuery(config.metadataTableName, column);
+                    log.trace("Executing SQL:\n{}", sql);
+                    stmt.executeUpdate(sql);
+                }
+                for (String key: SingleStoreDialect.getKafkaMetadataKeys()) {
+                    String sql = SingleStoreDialect.getAddKeyQuery(config.metadataTableName, key);
+                    log.trace("Executing SQL:\n{}", sql);
+                    try {
+                        stmt.executeUpdate(sql);
+                    } catch (SQLException ex) {
+                        // keys only speed up queries of the metadata table
+                        log.warn(String.format("Failed to add %s to the metadata table `%s`: %s", key, config.metadataTableName, ex.getLocalizedMessage()));
+                    }
                 }
-                log.info(String.format("Table `%s` doesn't exist. Creating it", table));
-                JdbcHelper.createTable(connection, table, schema, config.tableKeys, config.tableToColumnToFieldMap.get(table));
             }
-            if (config.metadataTableAllow) {
-                boolean metadataTableExists = JdbcHelper.tableExists(connection, config.metadataTableName);
-                if (!metadataTableExists) {
-                    log.info(String.format("Metadata table `%s` doesn't exist. Creating it", config.metadataTableName));
-                    JdbcHelper.createTable(connection, config.metadataTableName, SingleStoreDialect.getKafkaMetadataSchema());
+        }
+    }
+
+    // getCommittedOffsets returns the highest offsets saved in the metadata table for the partitions
+    // partitions that don't have records with offsets are not included in the result
+    public static Map<TopicPartition, Long> getCommittedOffsets(Connection connection, SingleStoreSinkConfig config, Collection<TopicPartition> partitions) throws SQLException {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        if (partitions.isEmpty()) {
+            return offsets;
+        }
+        try (PreparedStatement stmt = SingleStoreDialect.getCommittedOffsetsQuery(connection, config.metadataTableName, partitions)) {
+            log.trace("Executing SQL:\n{}", stmt);
+            ResultSet resultSet = stmt.executeQuery();
+            while (resultSet.next()) {
+                long offset = resultSet.getLong("maxOffset");
+                if (!resultSet.wasNull()) {
+                    offsets.put(new TopicPartition(resultSet.getString("topic"), resultSet.getInt("partition")), offset);
                 }
             }
         }
+        return offsets;
+    }
+
+    // getTableColumns returns the list of table columns or null if the table doesn't exist
+    public static List<String> getTableColumns(Connection connection, String table) {
+        String query = SingleStoreDialect.getTableExistsQuery(table);
+        log.trace("Executing SQL:\n{}", query);
+        try (Statement stmt = connection.createStatement();
+             ResultSet resultSet = stmt.executeQuery(query)) {
+            ResultSetMetaData metaData = resultSet.getMetaData();
+            List<String> columns = new ArrayList<>(metaData.getColumnCount());
+            for (int i = 1; i <= metaData.getColumnCount(); i++) {
+                columns.add(metaData.getColumnName(i));
+            }
+            return columns;
+        } catch (SQLException ex) {
+            return null;
+        }
+    }
+
+    // addColumns adds columns for the fields to the table
+    // false is returned if one of the columns was added concurrently by another task, in this case no columns are added
+    public static boolean addColumns(Connection connection, String table, List<Field> fields) throws SQLException {
+        String query = SingleStoreDialect.getAddColumnsQuery(table, fields);
+        log.trace("Executing SQL:\n{}", query);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(query);
+            return true;
+        } catch (SQLException ex) {
+            if (ex.getErrorCode() != ER_DUP_FIELDNAME) {
+                throw ex;
+            }
+            log.info("Columns of the table `{}` were added concurrently: {}", table, ex.getLocalizedMessage());
+            return false;
+        }
+    }
+
+    // isSchemaError checks if the query failed because the table or one of its columns doesn't exist
+    public static boolean isSchemaError(SQLException ex) {
+        for (Throwable e: ex) {
+            if (e instanceof SQLException) {
+                int errorCode = ((SQLException) e).getErrorCode();
+                if (errorCode == ER_NO_SUCH_TABLE || errorCode == ER_BAD_FIELD_ERROR) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // isDecompressionError checks if LOAD DATA failed because the server couldn't decompress the file
+    // the server doesn't have a dedicated error code for it, so the messages of the error chain are checked
+    public static boolean isDecompressionError(SQLException ex) {
+        for (Throwable e: ex) {
+            String message = e.getMessage() == null ? "" : e.getMessage().toLowerCase();
+            if (message.contains("decompress") || message.contains("zstd") || message.contains("compression")) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public static boolean tableExists(Connection connection, String table) {
@@ -58,6 +175,14 @@ public class JdbcHelper {
         }
     }
 
+    public static String getServerVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet resultSet = stmt.executeQuery("SELECT @@memsql_version")) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
     public static String getTableName(SinkRecord record, SingleStoreSinkConfig config) {
         if (config.recordToTableMappingField != null) {
             Object value = new ValueWithSchema(record).getByPath(config.recordToTableMappingField).getValue();
@@ -82,10 +207,17 @@ public class JdbcHelper {
         }
     }
 
-    public static boolean isReferenceTable(SingleStoreSinkConfig config, String table) {
+    public static boolean isReferenceTable(ConnectionPool pool, SingleStoreSinkConfig config, String table) {
+        try (Connection connection = pool.getDDLConnection()) {
+            return isReferenceTable(connection, config, table);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    public static boolean isReferenceTable(Connection connection, SingleStoreSinkConfig config, String table) {
         String database = config.database;
-        try (Connection connection = getDDLConnection(config);
-             PreparedStatement stmt = SingleStoreDialect.showExtendedTables(connection, database, table)) {
+        try (PreparedStatement stmt = SingleStoreDialect.showExtendedTables(connection, database, table)) {
             log.trace("Executing SQL:\n{}", stmt);
             ResultSet resultSet = stmt.executeQuery();
             if (resultSet.next()) {
@@ -106,6 +238,10 @@ public class JdbcHelper {
         return getConnection(config.dmlEndpoints, config);
     }
 
+    public static Connection getDMLConnection(SingleStoreSinkConfig config, String endpoint) throws SQLException {
+        return getConnection(Collections.singletonList(endpoint), config);
+    }
+
     private static Connection getConnection(List<String> hosts, SingleStoreSinkConfig config) throws SQLException {
         Properties connectionProps = new Properties();
         String username = config.user;
@@ -0,0 +1,179 @@
+package com.singlestore.kafka.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// JsonLinesEncoder writes every row as a JSON object with a key for every column, one object per line
+// It is used with LOAD DATA ... FORMAT JSON. Nested values produced by JSON generators are written as they are,
+// so they are loaded into JSON columns without being escaped as strings
+public class JsonLinesEncoder extends TsvEncoder {
+
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    // keys[i] is the JSON key of the column i followed by the colon
+    private final byte[][] keys;
+    private final RawOutputStream rawStream = new RawOutputStream();
+    private int column = 0;
+
+    public JsonLinesEncoder(OutputStream outputStream, List<String> columns) {
+        super(outputStream);
+        this.keys = new byte[columns.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (quote(columns.get(i)) + ":").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // quote returns the JSON string literal of the value
+    static String quote(String value) {
+        StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c < 0x20) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private void writeRaw(byte[] value) throws IOException {
+        for (byte b: value) {
+            writeByte(b);
+        }
+    }
+
+    @Override
+    public void writeRowStart() throws IOException {
+        column = 0;
+        writeByte('{');
+        if (keys.length > 0) {
+            writeRaw(keys[0]);
+        }
+    }
+
+    @Override
+    public void writeFieldSeparator() throws IOException {
+        column++;
+        writeByte(',');
+        writeRaw(keys[column]);
+    }
+
+    @Override
+    public void writeRowSeparator() throws IOException {
+        writeByte('}');
+        writeByte('\n');
+    }
+
+    @Override
+    public void writeNull() throws IOException {
+        writeRaw(NULL);
+    }
+
+    // NaN and infinities are not JSON numbers, they are written as strings
+    @Override
+    public void writeFloat(float value) throws IOException {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            writeString(Float.toString(value));
+        } else {
+            super.writeFloat(value);
+        }
+    }
+
+    @Override
+    public void writeDouble(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            writeString(Double.toString(value));
+        } else {
+            super.writeDouble(value);
+        }
+    }
+
+    // writeString writes the JSON string, non-ASCII characters are written as UTF-8
+    @Override
+    public void writeString(CharSequence value) throws IOException {
+        writeByte('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                continue;
+            }
+            if (start < i) {
+                // runs of non-ASCII characters don't contain special characters of TsvEncoder
+                writeUtf8(value.subSequence(start, i));
+            }
+            start = i + 1;
+            writeAsciiChar(c);
+        }
+        if (start < length) {
+            writeUtf8(value.subSequence(start, length));
+        }
+        writeByte('"');
+    }
+
+    @Override
+    public void writeBytes(byte[] value, int offset, int length) throws IOException {
+        if (!isValidUtf8(value, offset, length)) {
+            writeString(new String(value, offset, length, StandardCharsets.UTF_8));
+            return;
+        }
+        writeByte('"');
+        for (int i = offset; i < offset + length; i++) {
+            byte b = value[i];
+            if (b >= 0) {
+                writeAsciiChar((char) b);
+            } else {
+                writeByte(b);
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeAsciiChar(char c) throws IOException {
+        if (c == '"' || c == '\\') {
+            writeByte('\\');
+            writeByte(c);
+        } else if (c < 0x20) {
+            writeByte('\\');
+            writeByte('u');
+            writeByte('0');
+            writeByte('0');
+            writeByte(HEX[c >> 4]);
+            writeByte(HEX[c & 0xf]);
+        } else {
+            writeByte(c);
+        }
+    }
+
+    // escapingStream writes the JSON produced by serializers without escaping it
+    @Override
+    public OutputStream escapingStream() {
+        return rawStream;
+    }
+
+    private class RawOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                writeByte(b[i]);
+            }
+        }
+
+        @Override
+        public void close() {
+            // the encoder is closed by its owner
+        }
+    }
+}
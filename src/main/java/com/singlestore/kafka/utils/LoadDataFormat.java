@@ -0,0 +1,26 @@
+package com.singlestore.kafka.utils;
+
+import java.io.OutputStream;
+import java.util.List;
+
+// LoadDataFormat is the format of rows in the LOAD DATA stream
+// tsv escapes special characters of values and separates them with tabs,
+// csv separates values with commas and encloses strings in double quotes,
+// json writes every row as a JSON object that is loaded with FORMAT JSON, so nested values are not escaped
+public enum LoadDataFormat {
+    tsv,
+    csv,
+    json;
+
+    // createEncoder returns the encoder of rows with the columns
+    public TsvEncoder createEncoder(OutputStream outputStream, List<String> columns) {
+        switch (this) {
+            case csv:
+                return new TsvEncoder(outputStream, (byte) ',', (byte) '"');
+            case json:
+                return new JsonLinesEncoder(outputStream, columns);
+            default:
+                return new TsvEncoder(outputStream);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.singlestore.kafka.utils;
+
+import com.singlestore.kafka.sink.SingleStoreDialect;
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// MetadataTableCompactor keeps the metadata table small, so reading committed offsets doesn't slow down as the table grows
+// Every singlestore.metadata.compactionIntervalMs, records of each partition assigned to the task that are older than
+// singlestore.metadata.retentionMs are collapsed into one record that keeps the highest written offset.
+// Older records without offsets (written by previous versions of the connector or by parallel writes of tables) are deleted.
+//
+// Only the task that is assigned to a partition writes its records, so tasks compact records of their own partitions only
+public class MetadataTableCompactor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetadataTableCompactor.class);
+
+    private final SingleStoreSinkConfig config;
+    private final ConnectionPool connectionPool;
+    private final Set<TopicPartition> partitions = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+
+    public MetadataTableCompactor(SingleStoreSinkConfig config, ConnectionPool connectionPool) {
+        this.config = config;
+        this.connectionPool = connectionPool;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "singlestore-metadata-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        long interval = config.metadataCompactionIntervalMs;
+        executor.scheduleWithFixedDelay(this::compactQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public void addPartitions(Collection<TopicPartition> assigned) {
+        partitions.addAll(assigned);
+    }
+
+    public void removePartitions(Collection<TopicPartition> revoked) {
+        partitions.removeAll(revoked);
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("Failed to compact the metadata table `{}`: {}", config.metadataTableName, ex.getLocalizedMessage());
+        }
+    }
+
+    public void compact() throws SQLException {
+        Timestamp cutoff;
+        try (Connection connection = connectionPool.getDMLConnection()) {
+            try (PreparedStatement stmt = SingleStoreDialect.getMetadataRetentionCutoffQuery(connection, config.metadataRetentionMs)) {
+                ResultSet resultSet = stmt.executeQuery();
+                resultSet.next();
+                cutoff = resultSet.getTimestamp(1);
+            }
+            try (PreparedStatement stmt = SingleStoreDialect.getDeleteExpiredMetadataWithoutOffsetsQuery(connection, config.metadataTableName, cutoff)) {
+                log.trace("Executing SQL:\n{}", stmt);
+                int deleted = stmt.executeUpdate();
+                if (deleted > 0) {
+                    log.debug("Deleted {} records without offsets from the metadata table `{}`", deleted, config.metadataTableName);
+                }
+            }
+        }
+
+        for (TopicPartition partition: new ArrayList<>(partitions)) {
+            compact(partition, cutoff);
+        }
+    }
+
+    // compact replaces expired records of the partition with one record in a transaction
+    private void compact(TopicPartition partition, Timestamp cutoff) throws SQLException {
+        try (Connection connection = connectionPool.getDMLConnection()) {
+            connection.setAutoCommit(false);
+            OffsetRange range;
+            Timestamp createdAt;
+            try (PreparedStatement stmt = SingleStoreDialect.getExpiredOffsetRangesQuery(connection, config.metadataTableName, partition, cutoff)) {
+                log.trace("Executing SQL:\n{}", stmt);
+                ResultSet resultSet = stmt.executeQuery();
+                if (!resultSet.next() || resultSet.getLong("records") <= 1) {
+                    return;
+                }
+                int count = (int) Math.min(Integer.MAX_VALUE, resultSet.getLong("count"));
+                range = new OffsetRange(partition, resultSet.getLong("minOffset"), resultSet.getLong("maxOffset"), count);
+                createdAt = resultSet.getTimestamp("createdAt");
+            }
+
+            int deleted;
+            try (PreparedStatement stmt = SingleStoreDialect.getDeleteExpiredOffsetRangesQuery(connection, config.metadataTableName, partition, cutoff)) {
+                log.trace("Executing SQL:\n{}", stmt);
+                deleted = stmt.executeUpdate();
+            }
+            // the compacted record keeps the time of the newest collapsed record, so it is collapsed again with later records
+            try (PreparedStatement stmt = SingleStoreDialect.getInsertCompactedOffsetRangeQuery(connection, config.metadataTableName, range, createdAt)) {
+                log.trace("Executing SQL:\n{}", stmt);
+                stmt.executeUpdate();
+            }
+            connection.commit();
+            log.debug("Compacted {} records of the partition {} in the metadata table `{}`", deleted, partition, config.metadataTableName);
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+package com.singlestore.kafka.utils;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// OffsetRange is the range of offsets of one topic partition written by a batch
+// Every range is saved as a row of the metadata table in the transaction that writes the records
+public class OffsetRange {
+    private final TopicPartition partition;
+    private long minOffset;
+    private long maxOffset;
+    private int count;
+
+    public OffsetRange(TopicPartition partition, long minOffset, long maxOffset, int count) {
+        this.partition = partition;
+        this.minOffset = minOffset;
+        this.maxOffset = maxOffset;
+        this.count = count;
+    }
+
+    // of groups records by topic partition keeping the order in which partitions first appear
+    public static Map<TopicPartition, OffsetRange> of(Collection<SinkRecord> records) {
+        Map<TopicPartition, OffsetRange> ranges = new LinkedHashMap<>();
+        for (SinkRecord record: records) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.kafkaPartition());
+            OffsetRange range = ranges.get(partition);
+            if (range == null) {
+                ranges.put(partition, new OffsetRange(partition, record.kafkaOffset(), record.kafkaOffset(), 1));
+            } else {
+                range.minOffset = Math.min(range.minOffset, record.kafkaOffset());
+                range.maxOffset = Math.max(range.maxOffset, record.kafkaOffset());
+                range.count++;
+            }
+        }
+        return ranges;
+    }
+
+    public TopicPartition getPartition() {
+        return partition;
+    }
+
+    public long getMinOffset() {
+        return minOffset;
+    }
+
+    public long getMaxOffset() {
+        return maxOffset;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    // getId returns the id of the metadata record of the range
+    // it is the same as the id of the batch metadata record of previous versions for batches of one partition
+    public String getId() {
+        return String.format("%s-%s-%s", partition.topic(), partition.partition(), minOffset);
+    }
+}
@@ -0,0 +1,134 @@
+package com.singlestore.kafka.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+// ParallelCompressionOutputStream splits the data into blocks that are compressed independently by a pool of threads
+// Every block is a complete gzip member or LZ4 frame, and the concatenation of them is a valid gzip or LZ4 stream.
+// Compressed blocks are written to the underlying stream in order, at most maxPendingBlocks blocks are compressed at once,
+// so the memory used by the stream is limited to about maxPendingBlocks * blockSize bytes
+public class ParallelCompressionOutputStream extends OutputStream {
+
+    // BlockCodec creates the stream that compresses one block
+    public interface BlockCodec {
+        OutputStream compress(OutputStream out) throws IOException;
+    }
+
+    private final OutputStream out;
+    private final BlockCodec codec;
+    private final ExecutorService executor;
+    private final int maxPendingBlocks;
+    private final Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private byte[] block;
+    private int blockLength = 0;
+    private boolean closed = false;
+
+    public ParallelCompressionOutputStream(OutputStream out, BlockCodec codec, int blockSize,
+                                           ExecutorService executor, int maxPendingBlocks) {
+        this.out = out;
+        this.codec = codec;
+        this.executor = executor;
+        this.maxPendingBlocks = maxPendingBlocks;
+        this.block = new byte[blockSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (blockLength == block.length) {
+            submitBlock();
+        }
+        block[blockLength++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (blockLength == block.length) {
+                submitBlock();
+            }
+            int n = Math.min(len, block.length - blockLength);
+            System.arraycopy(b, off, block, blockLength, n);
+            blockLength += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        submit(block, blockLength);
+        block = new byte[block.length];
+        blockLength = 0;
+        while (pendingBlocks.size() >= maxPendingBlocks) {
+            writeFirstBlock();
+        }
+    }
+
+    private void submit(byte[] data, int length) {
+        pendingBlocks.add(executor.submit(() -> compress(data, length)));
+    }
+
+    private byte[] compress(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+        try (OutputStream compressor = codec.compress(compressed)) {
+            compressor.write(data, 0, length);
+        }
+        return compressed.toByteArray();
+    }
+
+    private void writeFirstBlock() throws IOException {
+        Future<byte[]> compressed = pendingBlocks.poll();
+        try {
+            out.write(compressed.get());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new InterruptedIOException("Interrupted while compressing data");
+        } catch (ExecutionException ex) {
+            cancel();
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            throw new IOException("Failed to compress data", ex.getCause());
+        }
+    }
+
+    private void cancel() {
+        pendingBlocks.forEach(f -> f.cancel(true));
+        pendingBlocks.clear();
+    }
+
+    // flush writes blocks that are already compressed, the incomplete block is compressed when the stream is closed
+    @Override
+    public void flush() throws IOException {
+        while (!pendingBlocks.isEmpty() && pendingBlocks.peek().isDone()) {
+            writeFirstBlock();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockLength > 0) {
+                submit(block, blockLength);
+            }
+            while (!pendingBlocks.isEmpty()) {
+                writeFirstBlock();
+            }
+        } finally {
+            cancel();
+            out.close();
+        }
+    }
+}
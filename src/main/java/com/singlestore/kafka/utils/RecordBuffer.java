@@ -0,0 +1,139 @@
+package com.singlestore.kafka.utils;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// RecordBuffer accumulates records across put() calls, so they can be loaded with fewer and larger LOAD DATA queries
+// The buffer is flushed when it holds maxRecords records, about maxBytes bytes, or when its oldest record waited for lingerMs
+//
+// When a write of the buffer fails with a retriable error, Kafka Connect delivers the last put() batch again.
+// These records are already buffered, so records with offsets that were already added for their partition are skipped
+public class RecordBuffer {
+
+    private static final int RECORD_OVERHEAD_BYTES = 16;
+
+    private final int maxRecords;
+    private final long maxBytes;
+    private final long lingerMs;
+
+    private List<SinkRecord> records = new ArrayList<>();
+    private long bytes = 0;
+    private long firstRecordAt = -1;
+    private final Map<TopicPartition, Long> bufferedOffsets = new HashMap<>();
+
+    public RecordBuffer(int maxRecords, long maxBytes, long lingerMs) {
+        this.maxRecords = maxRecords;
+        this.maxBytes = maxBytes;
+        this.lingerMs = lingerMs;
+    }
+
+    public void add(Collection<SinkRecord> newRecords, long now) {
+        // after context.offset() rewinds a partition, its buffered records are delivered again by later put() calls,
+        // possibly split differently, so records are compared with the highest offsets buffered by earlier put() calls
+        Map<TopicPartition, Long> addedOffsets = new HashMap<>();
+        for (SinkRecord record: newRecords) {
+            TopicPartition partition = new TopicPartition(record.topic(), record.kafkaPartition());
+            Long bufferedOffset = bufferedOffsets.get(partition);
+            if (bufferedOffset != null && record.kafkaOffset() <= bufferedOffset) {
+                continue;
+            }
+            addedOffsets.merge(partition, record.kafkaOffset(), Math::max);
+
+            if (records.isEmpty()) {
+                firstRecordAt = now;
+            }
+            records.add(record);
+            bytes += RECORD_OVERHEAD_BYTES + estimateSize(record.value());
+        }
+        addedOffsets.forEach((partition, offset) -> bufferedOffsets.merge(partition, offset, Math::max));
+    }
+
+    public boolean shouldFlush(long now) {
+        if (records.isEmpty()) {
+            return false;
+        }
+        return records.size() >= maxRecords || bytes >= maxBytes || now - firstRecordAt >= lingerMs;
+    }
+
+    public boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    public List<SinkRecord> getRecords() {
+        return records;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    // clear is called after buffered records are written
+    public void clear() {
+        records = new ArrayList<>();
+        bytes = 0;
+        firstRecordAt = -1;
+        bufferedOffsets.clear();
+    }
+
+    // removePartitions drops records of partitions that are no longer assigned to the task
+    // their offsets are not committed, so they will be consumed again by the new owner
+    public void removePartitions(Collection<TopicPartition> partitions) {
+        if (partitions.isEmpty()) {
+            return;
+        }
+        List<SinkRecord> remaining = new ArrayList<>();
+        long remainingBytes = 0;
+        for (SinkRecord record: records) {
+            if (!partitions.contains(new TopicPartition(record.topic(), record.kafkaPartition()))) {
+                remaining.add(record);
+                remainingBytes += RECORD_OVERHEAD_BYTES + estimateSize(record.value());
+            }
+        }
+        partitions.forEach(bufferedOffsets::remove);
+        records = remaining;
+        bytes = remainingBytes;
+        if (records.isEmpty()) {
+            firstRecordAt = -1;
+        }
+    }
+
+    // estimateSize approximates the size of the value in the LOAD DATA input without encoding it
+    static long estimateSize(Object value) {
+        if (value == null) {
+            return 2;
+        } else if (value instanceof CharSequence) {
+            return ((CharSequence) value).length();
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof Struct) {
+            Struct struct = (Struct) value;
+            long size = 0;
+            for (Field field: struct.schema().fields()) {
+                size += estimateSize(struct.get(field)) + 1;
+            }
+            return size;
+        } else if (value instanceof Map) {
+            long size = 2;
+            for (Map.Entry<?, ?> entry: ((Map<?, ?>) value).entrySet()) {
+                size += estimateSize(entry.getKey()) + estimateSize(entry.getValue()) + 2;
+            }
+            return size;
+        } else if (value instanceof Collection) {
+            long size = 2;
+            for (Object element: (Collection<?>) value) {
+                size += estimateSize(element) + 1;
+            }
+            return size;
+        } else {
+            return 8;
+        }
+    }
+}
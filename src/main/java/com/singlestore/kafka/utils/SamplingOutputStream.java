@@ -0,0 +1,40 @@
+package com.singlestore.kafka.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// SamplingOutputStream keeps a copy of the first limit bytes written to the underlying stream
+public class SamplingOutputStream extends FilterOutputStream {
+
+    private final int limit;
+    private final ByteArrayOutputStream sample;
+
+    public SamplingOutputStream(OutputStream out, int limit) {
+        super(out);
+        this.limit = limit;
+        this.sample = new ByteArrayOutputStream(limit);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        if (sample.size() < limit) {
+            sample.write(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        int sampled = Math.min(len, limit - sample.size());
+        if (sampled > 0) {
+            sample.write(b, off, sampled);
+        }
+    }
+
+    public byte[] getSample() {
+        return sample.toByteArray();
+    }
+}
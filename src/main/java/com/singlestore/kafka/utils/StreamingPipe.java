@@ -0,0 +1,193 @@
+package com.singlestore.kafka.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// StreamingPipe connects a producer thread that encodes records with the JDBC thread that sends them with LOAD DATA.
+// The amount of buffered data is bounded by the queue capacity, so the producer blocks when the server reads slower than
+// records are encoded. A failure on either side is propagated to the other one:
+// the producer reports it with fail() and the reader gets an IOException, the reader calls cancel() and the producer gets an IOException.
+public class StreamingPipe {
+
+    private static final int MAX_CHUNK_SIZE = 65536;
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final byte[] EOF = new byte[0];
+
+    private final BlockingQueue<byte[]> queue;
+    private final int chunkSize;
+    private final PipeOutputStream outputStream;
+    private final PipeInputStream inputStream;
+
+    private volatile Throwable producerError;
+    private volatile boolean cancelled = false;
+
+    public StreamingPipe(int bufferSize) {
+        this.chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, bufferSize));
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, bufferSize / chunkSize));
+        this.outputStream = new PipeOutputStream();
+        this.inputStream = new PipeInputStream();
+    }
+
+    public OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    public InputStream getInputStream() {
+        return inputStream;
+    }
+
+    // fail is called by the producer when it can't finish the stream
+    // it must be called before the output stream is closed, otherwise the reader will treat the data as complete
+    public void fail(Throwable error) {
+        producerError = error;
+    }
+
+    // cancel is called by the reader when it stops consuming the stream
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+    }
+
+    private class PipeOutputStream extends OutputStream {
+        private byte[] chunk = new byte[chunkSize];
+        private int position = 0;
+        private boolean closed = false;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (position == chunk.length) {
+                flushChunk();
+            }
+            chunk[position++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (position == chunk.length) {
+                    flushChunk();
+                }
+                int n = Math.min(len, chunk.length - position);
+                System.arraycopy(b, off, chunk, position, n);
+                position += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void flushChunk() throws IOException {
+            if (position == 0) {
+                return;
+            }
+            byte[] full = position == chunk.length ? chunk : Arrays.copyOf(chunk, position);
+            put(full);
+            chunk = new byte[chunkSize];
+            position = 0;
+        }
+
+        private void put(byte[] data) throws IOException {
+            try {
+                while (!queue.offer(data, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled) {
+                        throw new IOException("Stream was closed by the reader");
+                    }
+                }
+                if (cancelled) {
+                    throw new IOException("Stream was closed by the reader");
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing to the stream");
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (producerError != null || cancelled) {
+                // the stream is incomplete, so the reader must not see the end of it
+                return;
+            }
+            flushChunk();
+            put(EOF);
+        }
+    }
+
+    private class PipeInputStream extends InputStream {
+        private byte[] chunk = null;
+        private int position = 0;
+        private boolean finished = false;
+
+        private boolean nextChunk() throws IOException {
+            while (chunk == null || position == chunk.length) {
+                if (finished) {
+                    return false;
+                }
+                try {
+                    byte[] next = null;
+                    while (next == null) {
+                        checkState();
+                        next = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                    }
+                    if (next == EOF) {
+                        finished = true;
+                        return false;
+                    }
+                    chunk = next;
+                    position = 0;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while reading from the stream");
+                }
+            }
+            return true;
+        }
+
+        private void checkState() throws IOException {
+            if (producerError != null) {
+                throw new IOException("Failed to produce data: " + producerError.getLocalizedMessage(), producerError);
+            }
+            if (cancelled) {
+                throw new IOException("Stream was cancelled");
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk()) {
+                return -1;
+            }
+            return chunk[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = Math.min(len, chunk.length - position);
+            System.arraycopy(chunk, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+            if (!finished) {
+                cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.singlestore.kafka.utils;
+
+import java.util.List;
+
+// TableMetadata holds information about an existing table that is needed to write data into it
+public class TableMetadata {
+    private final boolean reference;
+    private final List<String> columns;
+    private final long loadedAt;
+
+    public TableMetadata(boolean reference, List<String> columns, long loadedAt) {
+        this.reference = reference;
+        this.columns = columns;
+        this.loadedAt = loadedAt;
+    }
+
+    public boolean isReference() {
+        return reference;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public long getLoadedAt() {
+        return loadedAt;
+    }
+}
@@ -0,0 +1,197 @@
+package com.singlestore.kafka.utils;
+
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// TableMetadataCache saves the round trips that check the existence, type and columns of the target tables before each batch
+// Entries expire after singlestore.tableMetadataCacheTtlMs and are invalidated when a load fails because of a missing table or column
+//
+// When singlestore.schemaEvolution.allow is enabled, new optional fields of record schemas are added to the table as columns.
+// Schemas that were checked against the current metadata of the table are remembered by identity,
+// so records with the same schema instance don't compare the fields with the columns again
+public class TableMetadataCache {
+
+    private static final Logger log = LoggerFactory.getLogger(TableMetadataCache.class);
+    private static final int MAX_CHECKED_SCHEMAS = 1000;
+    private static final int MAX_ADD_COLUMNS_ATTEMPTS = 3;
+
+    private final SingleStoreSinkConfig config;
+    private final ConnectionPool connectionPool;
+    private final TaskMetrics metrics;
+    private final long ttlMs;
+    private final Map<String, TableMetadata> tables = new ConcurrentHashMap<>();
+    // the metadata of the table which columns were checked for every schema
+    private final Map<SchemaKey, TableMetadata> checkedSchemas = new ConcurrentHashMap<>();
+    private volatile long metadataTableCheckedAt = -1;
+
+    public TableMetadataCache(SingleStoreSinkConfig config, ConnectionPool connectionPool) {
+        this(config, connectionPool, new TaskMetrics());
+    }
+
+    public TableMetadataCache(SingleStoreSinkConfig config, ConnectionPool connectionPool, TaskMetrics metrics) {
+        this.config = config;
+        this.connectionPool = connectionPool;
+        this.metrics = metrics;
+        this.ttlMs = config.tableMetadataCacheTtlMs;
+    }
+
+    private boolean isExpired(long loadedAt, long now) {
+        return loadedAt < 0 || now - loadedAt >= ttlMs;
+    }
+
+    // get returns metadata of the table creating the table if it doesn't exist
+    // and adding columns for new fields of the schema when the schema evolution is allowed
+    public TableMetadata get(String table, Schema schema) throws SQLException {
+        TableMetadata metadata = getOrCreate(table, schema);
+        if (config.schemaEvolutionAllow) {
+            metadata = evolve(table, schema, metadata);
+        }
+        return metadata;
+    }
+
+    private TableMetadata getOrCreate(String table, Schema schema) throws SQLException {
+        long now = System.currentTimeMillis();
+        TableMetadata metadata = tables.get(table);
+        if (metadata != null && !isExpired(metadata.getLoadedAt(), now)) {
+            return metadata;
+        }
+
+        metrics.recordTableMetadataRoundTrip();
+        try (Connection connection = connectionPool.getDDLConnection()) {
+            List<String> columns = JdbcHelper.createTableIfNeeded(connection, config, table, schema);
+            boolean reference = JdbcHelper.isReferenceTable(connection, config, table);
+            metadata = new TableMetadata(reference, Collections.unmodifiableList(columns), now);
+        }
+        if (ttlMs > 0) {
+            tables.put(table, metadata);
+        }
+        return metadata;
+    }
+
+    private TableMetadata evolve(String table, Schema schema, TableMetadata metadata) throws SQLException {
+        // columns of mapped tables are defined by singlestore.columnToField
+        if (schema == null || schema.type() != Schema.Type.STRUCT || config.tableToColumnToFieldMap.containsKey(table)) {
+            return metadata;
+        }
+        SchemaKey key = new SchemaKey(table, schema);
+        if (checkedSchemas.get(key) == metadata) {
+            return metadata;
+        }
+        if (!getMissingFields(schema, metadata.getColumns()).isEmpty()) {
+            metadata = addColumns(table, schema, metadata);
+        }
+        if (checkedSchemas.size() >= MAX_CHECKED_SCHEMAS) {
+            checkedSchemas.clear();
+        }
+        checkedSchemas.put(key, metadata);
+        return metadata;
+    }
+
+    // addColumns adds columns for the missing fields with one ALTER TABLE query and reloads the columns of the table
+    private synchronized TableMetadata addColumns(String table, Schema schema, TableMetadata metadata) throws SQLException {
+        metrics.recordTableMetadataRoundTrip();
+        List<String> columns;
+        try (Connection connection = connectionPool.getDDLConnection()) {
+            columns = JdbcHelper.getTableColumns(connection, table);
+            for (int attempt = 0; attempt < MAX_ADD_COLUMNS_ATTEMPTS && columns != null; attempt++) {
+                List<Field> missing = getMissingFields(schema, columns);
+                if (missing.isEmpty()) {
+                    break;
+                }
+                log.info("Adding columns {} to the table `{}`",
+                    missing.stream().map(Field::name).collect(Collectors.toList()), table);
+                boolean added = JdbcHelper.addColumns(connection, table, missing);
+                columns = JdbcHelper.getTableColumns(connection, table);
+                if (added) {
+                    break;
+                }
+            }
+        }
+        if (columns == null) {
+            throw new SQLException(String.format("Failed to get columns of the table `%s`", table));
+        }
+        TableMetadata updated = new TableMetadata(metadata.isReference(), Collections.unmodifiableList(columns), System.currentTimeMillis());
+        if (ttlMs > 0) {
+            tables.put(table, updated);
+        }
+        return updated;
+    }
+
+    // getMissingFields returns the optional fields of the schema that the table doesn't have
+    // required fields can't be added to a table with rows, they are not loaded
+    private static List<Field> getMissingFields(Schema schema, List<String> columns) {
+        Set<String> tableColumns = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        tableColumns.addAll(columns);
+        List<Field> missing = new ArrayList<>();
+        for (Field field: schema.fields()) {
+            if (field.schema().isOptional() && !tableColumns.contains(field.name())) {
+                missing.add(field);
+            }
+        }
+        return missing;
+    }
+
+    public void ensureMetadataTable() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (!isExpired(metadataTableCheckedAt, now)) {
+            return;
+        }
+
+        metrics.recordTableMetadataRoundTrip();
+        try (Connection connection = connectionPool.getDDLConnection()) {
+            JdbcHelper.createMetadataTableIfNeeded(connection, config);
+        }
+        metadataTableCheckedAt = now;
+    }
+
+    public void invalidate(String table) {
+        log.debug("Invalidating cached metadata of the table `{}`", table);
+        tables.remove(table);
+        if (table.equals(config.metadataTableName)) {
+            metadataTableCheckedAt = -1;
+        }
+    }
+
+    public void invalidateAll() {
+        tables.clear();
+        checkedSchemas.clear();
+        metadataTableCheckedAt = -1;
+    }
+
+    private static class SchemaKey {
+        private final String table;
+        private final Schema schema;
+
+        private SchemaKey(String table, Schema schema) {
+            this.table = table;
+            this.schema = schema;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SchemaKey schemaKey = (SchemaKey) o;
+            return schema == schemaKey.schema && table.equals(schemaKey.table);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(schema) + table.hashCode();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.singlestore.kafka.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// TaskMetrics collects write statistics of a sink task and of every table it writes to
+// After register is called, the task and the tables are exposed as MBeans:
+//   com.singlestore.kafka:type=sink-task-metrics,connector=<name>,task=<n>
+//   com.singlestore.kafka:type=sink-table-metrics,connector=<name>,task=<n>,table=<table>
+//   com.singlestore.kafka:type=sink-endpoint-metrics,connector=<name>,task=<n>,endpoint=<endpoint>
+// Kafka Connect doesn't expose the task id to the task, so tasks are numbered in the order they are started in the worker
+public class TaskMetrics extends WriteMetrics implements TaskMetricsMBean, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskMetrics.class);
+    private static final String DOMAIN = "com.singlestore.kafka";
+    private static final AtomicInteger taskCounter = new AtomicInteger();
+
+    private final Map<String, WriteMetrics> tables = new ConcurrentHashMap<>();
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder tableMetadataRoundTrips = new LongAdder();
+    private final BatchSizeHistogram putBatchSizes = new BatchSizeHistogram();
+
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+    private volatile String namePrefix = null;
+
+    public synchronized void register(String connectorName) {
+        namePrefix = String.format("connector=%s,task=%d",
+            ObjectName.quote(connectorName == null ? "unknown" : connectorName), taskCounter.getAndIncrement());
+        registerMBean(String.format("%s:type=sink-task-metrics,%s", DOMAIN, namePrefix), this);
+        tables.forEach(this::registerTable);
+        endpoints.forEach(this::registerEndpoint);
+    }
+
+    private void registerTable(String table, WriteMetrics metrics) {
+        registerMBean(String.format("%s:type=sink-table-metrics,%s,table=%s", DOMAIN, namePrefix, ObjectName.quote(table)), metrics);
+    }
+
+    private void registerEndpoint(String endpoint, EndpointMetrics metrics) {
+        registerMBean(String.format("%s:type=sink-endpoint-metrics,%s,endpoint=%s", DOMAIN, namePrefix, ObjectName.quote(endpoint)), metrics);
+    }
+
+    // addEndpoint adds metrics of the DML endpoint, which are created by the connection pool
+    public synchronized void addEndpoint(String endpoint, EndpointMetrics metrics) {
+        endpoints.put(endpoint, metrics);
+        if (namePrefix != null) {
+            registerEndpoint(endpoint, metrics);
+        }
+    }
+
+    private synchronized void registerMBean(String name, Object mbean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+            registeredNames.add(objectName);
+        } catch (JMException ex) {
+            log.warn("Failed to register metrics {}: {}", name, ex.getLocalizedMessage());
+        }
+    }
+
+    private WriteMetrics table(String table) {
+        WriteMetrics metrics = tables.get(table);
+        if (metrics == null) {
+            metrics = tables.computeIfAbsent(table, t -> {
+                WriteMetrics created = new WriteMetrics();
+                if (namePrefix != null) {
+                    registerTable(t, created);
+                }
+                return created;
+            });
+        }
+        return metrics;
+    }
+
+    public void recordLoad(String table, long recordsCount, long rawBytesCount, long compressedBytesCount,
+                           long serializationTimeNanos, long compressionTimeNanos, long loadDataTimeNanos) {
+        table(table).recordLoad(recordsCount, rawBytesCount, compressedBytesCount,
+            serializationTimeNanos, compressionTimeNanos, loadDataTimeNanos);
+        recordLoad(recordsCount, rawBytesCount, compressedBytesCount,
+            serializationTimeNanos, compressionTimeNanos, loadDataTimeNanos);
+    }
+
+    public void recordCompression(String table, DataCompression compression) {
+        table(table).recordCompression(compression);
+        recordCompression(compression);
+    }
+
+    // recordMetadataSkip counts a skipped write of one table (or of the whole batch if the table is null)
+    public void recordMetadataSkip(String table) {
+        if (table != null) {
+            table(table).recordMetadataSkip();
+        }
+        recordMetadataSkip();
+    }
+
+    public void recordPut(int recordsCount) {
+        puts.increment();
+        putBatchSizes.record(recordsCount);
+    }
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+    public void recordFailedWrite() {
+        failedWrites.increment();
+    }
+
+    public void recordTableMetadataRoundTrip() {
+        tableMetadataRoundTrips.increment();
+    }
+
+    @Override
+    public long getPutCount() {
+        return puts.sum();
+    }
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    @Override
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    @Override
+    public long getTableMetadataRoundTrips() {
+        return tableMetadataRoundTrips.sum();
+    }
+
+    @Override
+    public long[] getPutBatchSizeBounds() {
+        return putBatchSizes.getBounds();
+    }
+
+    @Override
+    public long[] getPutBatchSizeHistogram() {
+        return putBatchSizes.getBuckets();
+    }
+
+    @Override
+    public double getPutBatchSizeAvg() {
+        return putBatchSizes.getAverage();
+    }
+
+    @Override
+    public long getPutBatchSizeMax() {
+        return putBatchSizes.getMax();
+    }
+
+    // the codecs of different tables are selected independently, so switches are summed over tables
+    @Override
+    public long getCompressionSwitches() {
+        long switches = 0;
+        for (WriteMetrics table: tables.values()) {
+            switches += table.getCompressionSwitches();
+        }
+        return switches;
+    }
+
+    public WriteMetrics getTableMetrics(String table) {
+        return tables.get(table);
+    }
+
+    public EndpointMetrics getEndpointMetrics(String endpoint) {
+        return endpoints.get(endpoint);
+    }
+
+    @Override
+    public synchronized void close() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name: registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ex) {
+                log.warn("Failed to unregister metrics {}: {}", name, ex.getLocalizedMessage());
+            }
+        }
+        registeredNames.clear();
+        namePrefix = null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.singlestore.kafka.utils;
+
+// TaskMetricsMBean is the JMX view of a sink task
+// LOAD DATA statistics are summed over all tables, put batches are the collections passed to SinkTask.put
+public interface TaskMetricsMBean extends WriteMetricsMBean {
+
+    long getPutCount();
+
+    long getRetries();
+
+    long getFailedWrites();
+
+    long getTableMetadataRoundTrips();
+
+    long[] getPutBatchSizeBounds();
+
+    long[] getPutBatchSizeHistogram();
+
+    double getPutBatchSizeAvg();
+
+    long getPutBatchSizeMax();
+}
@@ -0,0 +1,313 @@
+package com.singlestore.kafka.utils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// TsvEncoder writes values in the format expected by LOAD DATA directly as UTF-8 bytes
+// Special characters (backslash, tab and new line) are escaped with a backslash in the same pass,
+// so no intermediate strings are created for the values
+// The output is identical to the concatenation of escaped value.toString() strings encoded with UTF-8
+// The field separator and the enclosure of string values can be changed to write CSV,
+// subclasses write other row formats (see LoadDataFormat)
+public class TsvEncoder {
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] NULL = {'\\', 'N'};
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream outputStream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private final byte[] digits = new byte[20];
+    private final StringBuilder numberBuilder = new StringBuilder(32);
+    private final EscapingOutputStream escapingStream = new EscapingOutputStream();
+    private final byte fieldSeparator;
+    private final byte enclosure;
+    // the character escaped besides the backslash, the new line and the field separator
+    private final byte escapedEnclosure;
+
+    public TsvEncoder(OutputStream outputStream) {
+        this(outputStream, (byte) '\t', (byte) 0);
+    }
+
+    // enclosure is written around string values, 0 writes them without the enclosure
+    public TsvEncoder(OutputStream outputStream, byte fieldSeparator, byte enclosure) {
+        this.outputStream = outputStream;
+        this.fieldSeparator = fieldSeparator;
+        this.enclosure = enclosure;
+        this.escapedEnclosure = enclosure != 0 ? enclosure : fieldSeparator;
+    }
+
+    private boolean isSpecial(int c) {
+        return c == '\\' || c == '\n' || c == fieldSeparator || c == escapedEnclosure;
+    }
+
+    protected void ensureCapacity(int n) throws IOException {
+        if (BUFFER_SIZE - position < n) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            outputStream.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    protected void writeByte(int b) throws IOException {
+        if (position == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    // writeRowStart is called before the first value of every row
+    public void writeRowStart() throws IOException {
+    }
+
+    public void writeFieldSeparator() throws IOException {
+        writeByte(fieldSeparator);
+    }
+
+    public void writeRowSeparator() throws IOException {
+        writeByte('\n');
+    }
+
+    public void writeNull() throws IOException {
+        ensureCapacity(NULL.length);
+        buffer[position++] = NULL[0];
+        buffer[position++] = NULL[1];
+    }
+
+    public void writeBoolean(boolean value) throws IOException {
+        writeByte(value ? '1' : '0');
+    }
+
+    public void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            ensureCapacity(LONG_MIN_VALUE.length);
+            System.arraycopy(LONG_MIN_VALUE, 0, buffer, position, LONG_MIN_VALUE.length);
+            position += LONG_MIN_VALUE.length;
+            return;
+        }
+
+        ensureCapacity(digits.length);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int n = 0;
+        do {
+            digits[n++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (n > 0) {
+            buffer[position++] = digits[--n];
+        }
+    }
+
+    // writeFloat and writeDouble produce the same text as Float.toString and Double.toString
+    // StringBuilder is reused, so only the JDK formatting state is allocated
+    public void writeFloat(float value) throws IOException {
+        numberBuilder.setLength(0);
+        numberBuilder.append(value);
+        writeAscii(numberBuilder);
+    }
+
+    public void writeDouble(double value) throws IOException {
+        numberBuilder.setLength(0);
+        numberBuilder.append(value);
+        writeAscii(numberBuilder);
+    }
+
+    protected void writeAscii(CharSequence value) throws IOException {
+        int length = value.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[position++] = (byte) value.charAt(i);
+        }
+    }
+
+    // writeString writes UTF-8 representation of the string escaping special characters
+    // unpaired surrogates are replaced with '?' the same way as String.getBytes does
+    public void writeString(CharSequence value) throws IOException {
+        if (enclosure != 0) {
+            writeByte(enclosure);
+        }
+        writeUtf8(value);
+        if (enclosure != 0) {
+            writeByte(enclosure);
+        }
+    }
+
+    // writeUtf8 writes UTF-8 representation of the string escaping special characters without the enclosure
+    protected void writeUtf8(CharSequence value) throws IOException {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (isSpecial(c)) {
+                    ensureCapacity(2);
+                    buffer[position++] = '\\';
+                } else if (position == BUFFER_SIZE) {
+                    flushBuffer();
+                }
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                ensureCapacity(2);
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    ensureCapacity(4);
+                    buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+                } else {
+                    writeByte('?');
+                }
+            } else {
+                ensureCapacity(3);
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    // writeBytes writes the value interpreted as a UTF-8 string escaping special characters
+    // malformed input is decoded and encoded again, so invalid sequences are replaced the same way as new String(value, UTF_8) does
+    public void writeBytes(byte[] value) throws IOException {
+        writeBytes(value, 0, value.length);
+    }
+
+    public void writeBytes(byte[] value, int offset, int length) throws IOException {
+        if (!isValidUtf8(value, offset, length)) {
+            writeString(new String(value, offset, length, StandardCharsets.UTF_8));
+            return;
+        }
+
+        if (enclosure != 0) {
+            writeByte(enclosure);
+        }
+        writeEscaped(value, offset, length);
+        if (enclosure != 0) {
+            writeByte(enclosure);
+        }
+    }
+
+    // writeObject writes the result of value.toString() avoiding the conversion for the common types
+    public void writeObject(Object value) throws IOException {
+        if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            writeLong(((Number) value).longValue());
+        } else if (value instanceof Double) {
+            writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            writeFloat((Float) value);
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    // escapingStream returns a stream that writes UTF-8 bytes into the encoder escaping special characters on the fly
+    // it is used by serializers (like JSON generators) that produce the value incrementally
+    // closing the stream doesn't close the encoder
+    public OutputStream escapingStream() {
+        return escapingStream;
+    }
+
+    private void writeEscaped(byte[] value, int offset, int length) throws IOException {
+        for (int i = offset; i < offset + length; i++) {
+            byte b = value[i];
+            if (isSpecial(b)) {
+                ensureCapacity(2);
+                buffer[position++] = '\\';
+            } else if (position == BUFFER_SIZE) {
+                flushBuffer();
+            }
+            buffer[position++] = b;
+        }
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+        outputStream.flush();
+    }
+
+    protected static boolean isValidUtf8(byte[] value, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            int b = value[i] & 0xff;
+            if (b < 0x80) {
+                i++;
+                continue;
+            }
+
+            int sequenceLength;
+            int min = 0x80;
+            int max = 0xbf;
+            if (b >= 0xc2 && b <= 0xdf) {
+                sequenceLength = 2;
+            } else if (b >= 0xe0 && b <= 0xef) {
+                sequenceLength = 3;
+                if (b == 0xe0) {
+                    min = 0xa0;
+                } else if (b == 0xed) {
+                    max = 0x9f;
+                }
+            } else if (b >= 0xf0 && b <= 0xf4) {
+                sequenceLength = 4;
+                if (b == 0xf0) {
+                    min = 0x90;
+                } else if (b == 0xf4) {
+                    max = 0x8f;
+                }
+            } else {
+                return false;
+            }
+
+            if (i + sequenceLength > end) {
+                return false;
+            }
+            int second = value[i + 1] & 0xff;
+            if (second < min || second > max) {
+                return false;
+            }
+            for (int j = 2; j < sequenceLength; j++) {
+                int next = value[i + j] & 0xff;
+                if (next < 0x80 || next > 0xbf) {
+                    return false;
+                }
+            }
+            i += sequenceLength;
+        }
+        return true;
+    }
+
+    private class EscapingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            if (isSpecial(b)) {
+                writeByte('\\');
+            }
+            writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeEscaped(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            // the encoder is closed by its owner
+        }
+    }
+}
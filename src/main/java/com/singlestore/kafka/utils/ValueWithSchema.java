@@ -3,6 +3,7 @@ package com.singlestore.kafka.utils;
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import org.apache.kafka.connect.data.Field;
@@ -15,7 +16,6 @@ import org.apache.kafka.connect.sink.SinkRecord;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +32,12 @@ public class ValueWithSchema {
 
     private static final ValueWithSchema NULL_VALUE = new ValueWithSchema(null, null);
 
+    // JsonFactory and ObjectWriter are thread-safe and expensive to create, so they are shared by all tasks
+    // schemaless values were serialized to a String before, combining surrogates keeps the output the same
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final ObjectWriter OBJECT_WRITER = new ObjectMapper().writer()
+        .with(JsonWriteFeature.COMBINE_UNICODE_SURROGATES_IN_UTF8);
+
     static String DEFAULT_COLUMN_NAME = "data";
 
     public ValueWithSchema(SinkRecord record) {
@@ -78,9 +84,13 @@ public class ValueWithSchema {
         }
 
         if (schema != null) {
+            Field field = schema.field(key);
+            if (field == null) {
+                return NULL_VALUE;
+            }
             try {
                 Object fieldValue = value == null ? null : ((Struct) value).get(key);
-                Schema fieldSchema = schema.field(key).schema();
+                Schema fieldSchema = field.schema();
                 return new ValueWithSchema(fieldValue, fieldSchema);
             } catch (DataException ex) {
                 return new ValueWithSchema(null, null);
@@ -104,80 +114,87 @@ public class ValueWithSchema {
     }
 
     public String mapColumnsToCSV(List<ColumnMapping> columnMappings) throws IOException {
-        ArrayList<String> fields = new ArrayList<>();
-        for (ColumnMapping mapping: columnMappings) {
-            fields.add(this.getByPath(mapping.getFieldPath()).toCSV());
-        }
-
-        return String.join("\t", fields);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        TsvEncoder encoder = new TsvEncoder(stream);
+        writeMappedColumnsCSV(columnMappings, encoder);
+        encoder.flush();
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
     }
 
     public String toCSV(List<String> columns) throws IOException {
-        ArrayList<String> fields = new ArrayList<>();
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        TsvEncoder encoder = new TsvEncoder(stream);
+        writeCSV(columns, encoder);
+        encoder.flush();
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
 
+    public void writeMappedColumnsCSV(List<ColumnMapping> columnMappings, TsvEncoder encoder) throws IOException {
+        boolean first = true;
+        for (ColumnMapping mapping: columnMappings) {
+            if (!first) {
+                encoder.writeFieldSeparator();
+            }
+            first = false;
+            this.getByPath(mapping.getFieldPath()).writeCSV(encoder);
+        }
+    }
+
+    public void writeCSV(List<String> columns, TsvEncoder encoder) throws IOException {
         if (schema != null && schema.type() != Schema.Type.STRUCT) {
-            fields.add(this.toCSV());
+            this.writeCSV(encoder);
         } else if (schema == null && !(value instanceof Map)) {
-            fields.add(this.toCSV());
+            this.writeCSV(encoder);
         } else {
+            boolean first = true;
             for (String column: columns) {
-                fields.add(this.getByKey(column).toCSV());
+                if (!first) {
+                    encoder.writeFieldSeparator();
+                }
+                first = false;
+                this.getByKey(column).writeCSV(encoder);
             }
         }
+    }
 
-        return String.join("\t", fields);
+    private void writeCSV(TsvEncoder encoder) throws IOException {
+        writeValue(value, schema, encoder);
     }
 
-    private String toCSV() throws IOException {
+    // writeValue writes a single value of the record in the LOAD DATA format
+    static void writeValue(Object value, Schema schema, TsvEncoder encoder) throws IOException {
         if (value == null) {
-            return "\\N";
+            encoder.writeNull();
         } else if (schema == null) {
             if (value instanceof Boolean) {
-                return (Boolean) value ? "1" : "0";
+                encoder.writeBoolean((Boolean) value);
             } else if (value instanceof Map || value instanceof List) {
-                ObjectWriter ow = new ObjectMapper().writer();
-                String json = ow.writeValueAsString(value);
-                return escapeCSV(json);
+                OBJECT_WRITER.writeValue(encoder.escapingStream(), value);
             } else if (value instanceof byte[]) {
-                return escapeCSV(new String((byte [])value, StandardCharsets.UTF_8));
+                encoder.writeBytes((byte[]) value);
             } else {
-                return escapeCSV(value.toString());
+                encoder.writeObject(value);
             }
         } else {
             if(schema.type().isPrimitive()) {
                 if (value instanceof Boolean) {
-                    return (Boolean) value ? "1" : "0";
+                    encoder.writeBoolean((Boolean) value);
                 } else if (value instanceof byte[]) {
-                    return escapeCSV(new String((byte [])value, StandardCharsets.UTF_8));
+                    encoder.writeBytes((byte[]) value);
                 } else {
-                    return escapeCSV(value.toString());
+                    encoder.writeObject(value);
                 }
             } else {
-                return escapeCSV(toJSON(schema, value));
+                writeJSON(value, schema, encoder);
             }
         }
     }
 
-    private static String escapeCSV(String value) {
-        if (value.indexOf('\\') != -1) {
-            value = value.replace("\\", "\\\\");
-        }
-        if (value.indexOf('\n') != -1) {
-            value = value.replace("\n", "\\\n");
+    // writeJSON generates JSON of the nested value directly into the encoder
+    static void writeJSON(Object value, Schema schema, TsvEncoder encoder) throws IOException {
+        try (JsonGenerator jGenerator = JSON_FACTORY.createGenerator(encoder.escapingStream(), JsonEncoding.UTF8)) {
+            generateJSON(jGenerator, schema, value);
         }
-        if (value.indexOf('\t') != -1) {
-            value = value.replace("\t", "\\\t");
-        }
-        return value;
-    }
-
-    private static String toJSON(Schema schema, Object value) throws IOException {
-        ByteArrayOutputStream stream = new ByteArrayOutputStream();
-        JsonGenerator jGenerator = new JsonFactory()
-            .createGenerator(stream, JsonEncoding.UTF8);
-        generateJSON(jGenerator, schema, value);
-        jGenerator.close();
-        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
     }
 
     private static void generateJSON(JsonGenerator jGenerator, Schema schema, Object value) throws IOException {
@@ -0,0 +1,123 @@
+package com.singlestore.kafka.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// WriteMetrics accumulates statistics of LOAD DATA queries
+// LongAdder counters are used, so concurrent table writers don't contend on the same memory location
+public class WriteMetrics implements WriteMetricsMBean {
+
+    private final LongAdder records = new LongAdder();
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder serializationNanos = new LongAdder();
+    private final LongAdder compressionNanos = new LongAdder();
+    private final LongAdder loadDataNanos = new LongAdder();
+    private final LongAdder metadataSkips = new LongAdder();
+    private final BatchSizeHistogram loadBatchSizes = new BatchSizeHistogram();
+    private final LongAdder compressionSwitches = new LongAdder();
+    private volatile DataCompression compression = null;
+
+    // recordLoad is called after a successful LOAD DATA query
+    public void recordLoad(long recordsCount, long rawBytesCount, long compressedBytesCount,
+                           long serializationTimeNanos, long compressionTimeNanos, long loadDataTimeNanos) {
+        records.add(recordsCount);
+        rawBytes.add(rawBytesCount);
+        compressedBytes.add(compressedBytesCount);
+        loads.increment();
+        serializationNanos.add(serializationTimeNanos);
+        compressionNanos.add(compressionTimeNanos);
+        loadDataNanos.add(loadDataTimeNanos);
+        loadBatchSizes.record(recordsCount);
+    }
+
+    // recordMetadataSkip is called when the batch is skipped because its metadata record already exists
+    public void recordMetadataSkip() {
+        metadataSkips.increment();
+    }
+
+    // recordCompression is called with the codec of every LOAD DATA query
+    public void recordCompression(DataCompression dataCompression) {
+        DataCompression previous = compression;
+        if (previous != null && previous != dataCompression) {
+            compressionSwitches.increment();
+        }
+        compression = dataCompression;
+    }
+
+    private static double toMillis(LongAdder nanos) {
+        return (double) nanos.sum() / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public long getRecordsWritten() {
+        return records.sum();
+    }
+
+    @Override
+    public long getRawBytesWritten() {
+        return rawBytes.sum();
+    }
+
+    @Override
+    public long getCompressedBytesWritten() {
+        return compressedBytes.sum();
+    }
+
+    @Override
+    public long getLoadDataCount() {
+        return loads.sum();
+    }
+
+    @Override
+    public double getSerializationTimeMs() {
+        return toMillis(serializationNanos);
+    }
+
+    @Override
+    public double getCompressionTimeMs() {
+        return toMillis(compressionNanos);
+    }
+
+    @Override
+    public double getLoadDataTimeMs() {
+        return toMillis(loadDataNanos);
+    }
+
+    @Override
+    public long getMetadataSkips() {
+        return metadataSkips.sum();
+    }
+
+    @Override
+    public String getCompression() {
+        DataCompression dataCompression = compression;
+        return dataCompression == null ? null : dataCompression.name();
+    }
+
+    @Override
+    public long getCompressionSwitches() {
+        return compressionSwitches.sum();
+    }
+
+    @Override
+    public long[] getLoadBatchSizeBounds() {
+        return loadBatchSizes.getBounds();
+    }
+
+    @Override
+    public long[] getLoadBatchSizeHistogram() {
+        return loadBatchSizes.getBuckets();
+    }
+
+    @Override
+    public double getLoadBatchSizeAvg() {
+        return loadBatchSizes.getAverage();
+    }
+
+    @Override
+    public long getLoadBatchSizeMax() {
+        return loadBatchSizes.getMax();
+    }
+}
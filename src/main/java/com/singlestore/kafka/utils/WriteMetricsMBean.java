@@ -0,0 +1,35 @@
+package com.singlestore.kafka.utils;
+
+// WriteMetricsMBean is the JMX view of the data loaded by LOAD DATA queries of a task or of one table
+// Times are cumulative and are reported in milliseconds
+// Compression is the codec of the last LOAD DATA query, it changes when the compression is auto
+public interface WriteMetricsMBean {
+
+    long getRecordsWritten();
+
+    long getRawBytesWritten();
+
+    long getCompressedBytesWritten();
+
+    long getLoadDataCount();
+
+    double getSerializationTimeMs();
+
+    double getCompressionTimeMs();
+
+    double getLoadDataTimeMs();
+
+    long getMetadataSkips();
+
+    String getCompression();
+
+    long getCompressionSwitches();
+
+    long[] getLoadBatchSizeBounds();
+
+    long[] getLoadBatchSizeHistogram();
+
+    double getLoadBatchSizeAvg();
+
+    long getLoadBatchSizeMax();
+}
@@ -2,6 +2,7 @@ package com.singlestore.kafka.benchmark;
 
 import com.singlestore.kafka.sink.SingleStoreDbWriter;
 import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import com.singlestore.kafka.utils.ConnectionPool;
 import com.singlestore.kafka.utils.SinkRecordCreator;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.junit.Ignore;
@@ -23,7 +24,7 @@ public class BenchmarkTest {
         }};
 
         SingleStoreSinkConfig config = new SingleStoreSinkConfig(props);
-        SingleStoreDbWriter writer = new SingleStoreDbWriter(config);
+        SingleStoreDbWriter writer = new SingleStoreDbWriter(config, new ConnectionPool(config));
 
         int numberOfRecords = 1000000;
         List<SinkRecord> records = SinkRecordCreator.createRecords(numberOfRecords);
@@ -40,24 +41,27 @@ public class BenchmarkTest {
         int iterations = 100;
         int recordCount = 5000;
 
+        List<SinkRecord> records = SinkRecordCreator.createRecords(recordCount);
+
+        write(iterations, "skip", records, "Skip time: ");
+        write(iterations, "gzip", records, "Gzip time: ");
+        write(iterations, "lz4", records, "LZ4 time:  ");
+    }
+
+    // the compression is read when the config is created, so every codec needs its own config and writer
+    private void write(int n, String compression, List<SinkRecord> records, String message) throws SQLException {
         Map<String, String> props = new HashMap<String, String>() {{
             put(SingleStoreSinkConfig.DDL_ENDPOINT, "localhost:5506");
             put(SingleStoreSinkConfig.CONNECTION_DATABASE, "testdb");
             put(SingleStoreSinkConfig.CONNECTION_USER, "root");
             put(SingleStoreSinkConfig.METADATA_TABLE_ALLOW, "false");
+            put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, compression);
         }};
         SingleStoreSinkConfig config = new SingleStoreSinkConfig(props);
-        SingleStoreDbWriter writer = new SingleStoreDbWriter(config);
-        List<SinkRecord> records = SinkRecordCreator.createRecords(recordCount);
-
-        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, "skip");
-        write(iterations, writer, records, "Skip time: ");
-
-        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, "gzip");
-        write(iterations, writer, records, "Gzip time: ");
-
-        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, "lz4");
-        write(iterations, writer, records, "LZ4 time:  ");
+        try (ConnectionPool pool = new ConnectionPool(config);
+             SingleStoreDbWriter writer = new SingleStoreDbWriter(config, pool)) {
+            write(n, writer, records, message);
+        }
     }
 
     private void write(int n, SingleStoreDbWriter writer, List<SinkRecord> records, String message) throws SQLException {
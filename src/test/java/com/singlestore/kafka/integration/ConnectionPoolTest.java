@@ -0,0 +1,81 @@
+package com.singlestore.kafka.integration;
+
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import com.singlestore.kafka.utils.ConfigHelper;
+import com.singlestore.kafka.utils.ConnectionPool;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConnectionPoolTest extends IntegrationBase {
+
+    private static long getConnectionId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT CONNECTION_ID()")) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    public void connectionIsReused() throws SQLException {
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        try (ConnectionPool pool = new ConnectionPool(new SingleStoreSinkConfig(props))) {
+            long firstId;
+            try (Connection conn = pool.getDMLConnection()) {
+                firstId = getConnectionId(conn);
+            }
+            try (Connection conn = pool.getDMLConnection()) {
+                assertEquals(firstId, getConnectionId(conn));
+            }
+        }
+    }
+
+    @Test
+    public void invalidConnectionIsReplaced() throws SQLException {
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        try (ConnectionPool pool = new ConnectionPool(new SingleStoreSinkConfig(props))) {
+            long firstId;
+            try (Connection conn = pool.getDDLConnection()) {
+                firstId = getConnectionId(conn);
+            }
+            executeQuery(String.format("KILL CONNECTION %d", firstId));
+            try (Connection conn = pool.getDDLConnection()) {
+                assertNotEquals(firstId, getConnectionId(conn));
+            }
+        }
+    }
+
+    @Test
+    public void autoCommitIsResetOnRelease() throws SQLException {
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        try (ConnectionPool pool = new ConnectionPool(new SingleStoreSinkConfig(props))) {
+            try (Connection conn = pool.getDMLConnection()) {
+                conn.setAutoCommit(false);
+            }
+            try (Connection conn = pool.getDMLConnection()) {
+                assertTrue(conn.getAutoCommit());
+            }
+        }
+    }
+
+    @Test
+    public void exhaustedPoolTimesOut() throws SQLException {
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.CONNECTION_POOL_MAX_SIZE, "1");
+        props.put(SingleStoreSinkConfig.CONNECTION_POOL_MAX_WAIT_MS, "100");
+        try (ConnectionPool pool = new ConnectionPool(new SingleStoreSinkConfig(props));
+             Connection ignored = pool.getDMLConnection()) {
+            try {
+                pool.getDMLConnection();
+                fail("SQLException should be thrown");
+            } catch (SQLException ignoredEx) {}
+        }
+    }
+}
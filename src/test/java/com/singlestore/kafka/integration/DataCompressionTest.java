@@ -0,0 +1,66 @@
+package com.singlestore.kafka.integration;
+
+import com.singlestore.kafka.sink.SingleStoreDbWriter;
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import com.singlestore.kafka.utils.ConfigHelper;
+import com.singlestore.kafka.utils.ConnectionPool;
+import com.singlestore.kafka.utils.DataCompression;
+import com.singlestore.kafka.utils.TaskMetrics;
+import com.vdurmont.semver4j.Semver;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.util.*;
+
+import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
+import static org.junit.Assert.*;
+
+public class DataCompressionTest extends IntegrationBase {
+
+    private void testCompression(String compression, String expected) throws Exception {
+        String table = "dataCompression" + compression;
+        executeQuery("DROP TABLE IF EXISTS testdb." + table);
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.METADATA_TABLE_ALLOW, "false");
+        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, compression);
+        SingleStoreSinkConfig config = new SingleStoreSinkConfig(props);
+
+        Schema schema = SchemaBuilder.struct()
+            .field("id", Schema.INT32_SCHEMA)
+            .field("name", Schema.STRING_SCHEMA)
+            .build();
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            records.add(createRecord(schema, new Struct(schema).put("id", i).put("name", "name " + i), table));
+        }
+
+        TaskMetrics metrics = new TaskMetrics();
+        try (ConnectionPool pool = new ConnectionPool(config, metrics);
+             SingleStoreDbWriter writer = new SingleStoreDbWriter(config, pool, metrics)) {
+            writer.write(records);
+        }
+        assertEquals(expected, metrics.getCompression());
+
+        ResultSet res = executeQueryWithResultSet("SELECT COUNT(*), SUM(id), MAX(name) FROM testdb." + table);
+        assertTrue(res.next());
+        assertEquals(1000, res.getInt(1));
+        assertEquals(499500, res.getLong(2));
+        assertEquals("name 999", res.getString(3));
+    }
+
+    @Test
+    public void zstd() throws Exception {
+        // servers starting with 8.7 load zstd streams, a failed load of the stream fails the write
+        boolean supported = getSingleStoreVersion().isGreaterThanOrEqualTo(new Semver("8.7.0"));
+        testCompression("ZSTD", supported ? DataCompression.zstd.name() : DataCompression.lz4.name());
+    }
+
+    @Test
+    public void lz4() throws Exception {
+        testCompression("LZ4", DataCompression.lz4.name());
+    }
+}
@@ -16,7 +16,7 @@ import java.sql.SQLException;
 import java.util.*;
 
 import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
-import static org.junit.Assert.fail;
+import static org.junit.Assert.*;
 
 public class DataTransformTest extends IntegrationBase {
     SinkRecord record;
@@ -39,6 +39,25 @@ public class DataTransformTest extends IntegrationBase {
         }}, false);
     }
 
+    @Test
+    public void fieldsMissingInTableAreDropped() throws Exception {
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.METADATA_TABLE_ALLOW, "false");
+
+        executeQuery("DROP TABLE IF EXISTS testdb." + record.topic());
+        executeQuery("CREATE TABLE testdb." + record.topic() + " (Name TEXT)");
+
+        SingleStoreSinkTask task = new SingleStoreSinkTask();
+        task.start(props);
+        task.put(Collections.singleton(record));
+        task.stop();
+
+        ResultSet res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props), "SELECT * from testdb." + record.topic());
+        assertTrue(res.next());
+        assertEquals("John", res.getString("Name"));
+        assertFalse(res.next());
+    }
+
     public void testFieldsWhitelist(Map<String, String> keys, boolean shouldHaveID) {
         try {
             Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
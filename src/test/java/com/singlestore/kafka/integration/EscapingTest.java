@@ -4,6 +4,7 @@ import com.singlestore.kafka.sink.SingleStoreDialect;
 import com.singlestore.kafka.sink.SingleStoreSinkConfig;
 import com.singlestore.kafka.sink.SingleStoreSinkTask;
 import com.singlestore.kafka.utils.ConfigHelper;
+import com.singlestore.kafka.utils.ConnectionPool;
 import com.singlestore.kafka.utils.JdbcHelper;
 import com.singlestore.kafka.utils.SQLHelper;
 import org.apache.kafka.connect.data.Schema;
@@ -109,11 +110,11 @@ public class EscapingTest extends IntegrationBase {
 
     @Test
     public void isReferenceTable() {
-        try {
-            assertFalse(JdbcHelper.isReferenceTable(conf, weirdName));
-            assertFalse(JdbcHelper.isReferenceTable(conf, weirdMetadataName));
+        try (ConnectionPool pool = new ConnectionPool(conf)) {
+            assertFalse(JdbcHelper.isReferenceTable(pool, conf, weirdName));
+            assertFalse(JdbcHelper.isReferenceTable(pool, conf, weirdMetadataName));
             executeQuery(String.format("USING testdb CREATE REFERENCE TABLE %s (a int, PRIMARY KEY(a))", SingleStoreDialect.quoteIdentifier(weirdReferenceName)));
-            assertTrue(JdbcHelper.isReferenceTable(conf, weirdReferenceName));
+            assertTrue(JdbcHelper.isReferenceTable(pool, conf, weirdReferenceName));
         } catch (Exception e) {
             log.error("", e);
             fail("Should not have thrown any exception");
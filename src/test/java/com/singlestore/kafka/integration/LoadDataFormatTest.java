@@ -0,0 +1,112 @@
+package com.singlestore.kafka.integration;
+
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import com.singlestore.kafka.sink.SingleStoreSinkTask;
+import com.singlestore.kafka.utils.ConfigHelper;
+import com.singlestore.kafka.utils.SQLHelper;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.util.*;
+
+import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
+import static org.junit.Assert.*;
+
+public class LoadDataFormatTest extends IntegrationBase {
+
+    private static final String TRICKY = "a,b\"c\\d\te\nf 'g' \\N Zürich";
+
+    private void testFormat(String format) throws Exception {
+        String table = "loadDataFormat" + format;
+        executeQuery("DROP TABLE IF EXISTS testdb." + table);
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.METADATA_TABLE_ALLOW, "false");
+        props.put("singlestore.loadDataFormat." + table, format);
+
+        Schema nested = SchemaBuilder.struct().optional().field("city", Schema.STRING_SCHEMA).build();
+        Schema schema = SchemaBuilder.struct()
+            .field("id", Schema.INT32_SCHEMA)
+            .field("name", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("score", Schema.FLOAT64_SCHEMA)
+            .field("address", nested)
+            .build();
+        List<SinkRecord> records = Arrays.asList(
+            createRecord(schema, new Struct(schema).put("id", 1).put("name", TRICKY).put("score", 0.5)
+                .put("address", new Struct(nested).put("city", TRICKY)), table),
+            createRecord(schema, new Struct(schema).put("id", 2).put("name", null).put("score", 1.5), table));
+
+        SingleStoreSinkTask task = new SingleStoreSinkTask();
+        task.start(props);
+        task.put(records);
+        task.stop();
+
+        ResultSet res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props),
+            "SELECT id, name, score, address::$city AS city FROM testdb." + table + " ORDER BY id");
+        assertTrue(res.next());
+        assertEquals(1, res.getInt("id"));
+        assertEquals(TRICKY, res.getString("name"));
+        assertEquals(0.5, res.getDouble("score"), 0);
+        assertEquals(TRICKY, res.getString("city"));
+        assertTrue(res.next());
+        assertEquals(2, res.getInt("id"));
+        assertNull(res.getString("name"));
+        assertEquals(1.5, res.getDouble("score"), 0);
+        assertNull(res.getString("city"));
+        assertFalse(res.next());
+    }
+
+    @Test
+    public void tsv() throws Exception {
+        testFormat("TSV");
+    }
+
+    @Test
+    public void csv() throws Exception {
+        testFormat("CSV");
+    }
+
+    @Test
+    public void json() throws Exception {
+        testFormat("JSON");
+    }
+
+    @Test
+    public void jsonMappedPaths() throws Exception {
+        Schema inner = SchemaBuilder.struct().optional().field("zip", Schema.INT32_SCHEMA).build();
+        Schema nested = SchemaBuilder.struct().optional()
+            .field("city", Schema.STRING_SCHEMA)
+            .field("inner", inner)
+            .build();
+        Schema schema = SchemaBuilder.struct()
+            .field("id", Schema.INT32_SCHEMA)
+            .field("address", nested)
+            .build();
+        List<SinkRecord> records = Arrays.asList(
+            createRecord(schema, new Struct(schema).put("id", 1)
+                .put("address", new Struct(nested).put("city", TRICKY).put("inner", new Struct(inner).put("zip", 8000))),
+                "loadDataFormatMapped"),
+            createRecord(schema, new Struct(schema).put("id", 2), "loadDataFormatMapped"));
+
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.LOAD_DATA_FORMAT, "JSON");
+        props.put("singlestore.columnToField.loadDataFormatMapped.c_id", "id");
+        props.put("singlestore.columnToField.loadDataFormatMapped.c_city", "address.city");
+        props.put("singlestore.columnToField.loadDataFormatMapped.c_zip", "address.inner.zip");
+        put(props, records);
+
+        ResultSet res = executeQueryWithResultSet("SELECT * FROM testdb.loadDataFormatMapped ORDER BY c_id");
+        assertTrue(res.next());
+        assertEquals(1, res.getInt("c_id"));
+        assertEquals(TRICKY, res.getString("c_city"));
+        assertEquals(8000, res.getInt("c_zip"));
+        assertTrue(res.next());
+        assertEquals(2, res.getInt("c_id"));
+        assertNull(res.getString("c_city"));
+        assertNull(res.getString("c_zip"));
+        assertFalse(res.next());
+    }
+}
@@ -3,18 +3,27 @@ package com.singlestore.kafka.integration;
 import com.singlestore.kafka.sink.SingleStoreSinkConfig;
 import com.singlestore.kafka.sink.SingleStoreSinkTask;
 import com.singlestore.kafka.utils.ConfigHelper;
+import com.singlestore.kafka.utils.ConnectionPool;
+import com.singlestore.kafka.utils.JdbcHelper;
+import com.singlestore.kafka.utils.MetadataTableCompactor;
+import com.singlestore.kafka.utils.RecordingSinkTaskContext;
 import com.singlestore.kafka.utils.SQLHelper;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.sink.SinkRecord;
 import org.junit.Test;
 import java.time.*;
 
+import java.sql.Connection;
 import java.sql.ResultSet;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 public class MetadataTableTest extends IntegrationBase {
@@ -48,10 +57,229 @@ public class MetadataTableTest extends IntegrationBase {
 
                 assertEquals(2, res.getInt("count"));
                 assertEquals("checkValues-0-0", res.getString("id"));
+                assertEquals("checkValues", res.getString("topic"));
+                assertEquals(0, res.getInt("partition"));
+                assertEquals(0, res.getLong("minOffset"));
+                assertEquals(0, res.getLong("maxOffset"));
             }
         } catch (Exception e) {
             log.error("", e);
             fail("Should not have thrown any exception");
         }
     }
+
+    private static List<SinkRecord> replayRecords(int partition, long fromOffset, long toOffset) {
+        List<SinkRecord> records = new ArrayList<>();
+        for (long offset = fromOffset; offset <= toOffset; offset++) {
+            records.add(new SinkRecord("replay", partition, null, null, Schema.INT64_SCHEMA, offset, offset));
+        }
+        return records;
+    }
+
+    @Test
+    public void replayedRecordsAreSkipped() {
+        try {
+            executeQuery("USING testdb DROP TABLE IF EXISTS `kafka_connect_transaction_metadata`");
+            executeQuery("USING testdb DROP TABLE IF EXISTS `replay`");
+            Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+
+            SingleStoreSinkTask task = new SingleStoreSinkTask();
+            task.start(props);
+            List<SinkRecord> records = replayRecords(0, 0, 4);
+            records.addAll(replayRecords(1, 0, 1));
+            task.put(records);
+            task.stop();
+
+            // a new task loads committed offsets and writes only records that are not written yet
+            task = new SingleStoreSinkTask();
+            task.start(props);
+            records = replayRecords(0, 3, 7);
+            records.addAll(replayRecords(1, 0, 1));
+            task.put(records);
+            task.put(replayRecords(0, 5, 9));
+            task.stop();
+
+            ResultSet res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props), "USING testdb SELECT COUNT(*), COUNT(DISTINCT data) FROM `replay`");
+            assertTrue(res.next());
+            assertEquals(12, res.getInt(1));
+            assertEquals(10, res.getInt(2));
+
+            res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props), "USING testdb SELECT id, count, minOffset, maxOffset FROM `kafka_connect_transaction_metadata` WHERE topic = 'replay' ORDER BY `partition`, minOffset");
+            String[] ids = {"replay-0-0", "replay-0-5", "replay-0-8", "replay-1-0"};
+            long[][] ranges = {{0, 4}, {5, 7}, {8, 9}, {0, 1}};
+            for (int i = 0; i < ids.length; i++) {
+                assertTrue(res.next());
+                assertEquals(ids[i], res.getString("id"));
+                assertEquals(ranges[i][1] - ranges[i][0] + 1, res.getInt("count"));
+                assertEquals(ranges[i][0], res.getLong("minOffset"));
+                assertEquals(ranges[i][1], res.getLong("maxOffset"));
+            }
+            assertFalse(res.next());
+        } catch (Exception e) {
+            log.error("", e);
+            fail("Should not have thrown any exception");
+        }
+    }
+
+    @Test
+    public void offsetColumnsAreAddedToOldMetadataTable() {
+        try {
+            executeQuery("USING testdb DROP TABLE IF EXISTS `kafka_connect_transaction_metadata`");
+            executeQuery("USING testdb DROP TABLE IF EXISTS `oldMetadata`");
+            executeQuery("USING testdb CREATE TABLE `kafka_connect_transaction_metadata` (id VARCHAR(255) PRIMARY KEY, count INT NOT NULL, createdAt TIMESTAMP DEFAULT NOW())");
+            executeQuery("USING testdb INSERT INTO `kafka_connect_transaction_metadata` (id, count) VALUES ('oldMetadata-0-0', 1)");
+            Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+
+            SingleStoreSinkTask task = new SingleStoreSinkTask();
+            task.start(props);
+            // the batch was written by the previous version of the connector
+            task.put(Collections.singletonList(new SinkRecord("oldMetadata", 0, null, null, Schema.INT64_SCHEMA, 0L, 0)));
+            task.put(Collections.singletonList(new SinkRecord("oldMetadata", 0, null, null, Schema.INT64_SCHEMA, 1L, 1)));
+            task.stop();
+
+            ResultSet res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props), "USING testdb SELECT data FROM `oldMetadata`");
+            assertTrue(res.next());
+            assertEquals(1, res.getLong(1));
+            assertFalse(res.next());
+
+            res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props), "USING testdb SELECT maxOffset FROM `kafka_connect_transaction_metadata` WHERE id = 'oldMetadata-0-1'");
+            assertTrue(res.next());
+            assertEquals(1, res.getLong(1));
+        } catch (Exception e) {
+            log.error("", e);
+            fail("Should not have thrown any exception");
+        }
+    }
+
+    @Test
+    public void openSeeksToWrittenOffsets() {
+        try {
+            executeQuery("USING testdb DROP TABLE IF EXISTS `kafka_connect_transaction_metadata`");
+            executeQuery("USING testdb DROP TABLE IF EXISTS `replay`");
+            Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+            TopicPartition p0 = new TopicPartition("replay", 0);
+            TopicPartition p1 = new TopicPartition("replay", 1);
+            TopicPartition p2 = new TopicPartition("replay", 2);
+
+            SingleStoreSinkTask task = new SingleStoreSinkTask();
+            task.start(props);
+            List<SinkRecord> records = replayRecords(0, 0, 4);
+            records.addAll(replayRecords(1, 0, 1));
+            task.put(records);
+            task.stop();
+
+            task = new SingleStoreSinkTask();
+            Set<TopicPartition> assignment = new HashSet<>(Arrays.asList(p0, p1, p2));
+            RecordingSinkTaskContext context = new RecordingSinkTaskContext(assignment);
+            task.initialize(context);
+            task.start(props);
+            task.open(assignment);
+
+            Map<TopicPartition, Long> expected = new HashMap<>();
+            expected.put(p0, 5L);
+            expected.put(p1, 2L);
+            assertEquals(expected, context.getOffsets());
+
+            // offsets of the metadata table are reported when they are ahead of the consumed offsets
+            Map<TopicPartition, OffsetAndMetadata> current = new HashMap<>();
+            current.put(p0, new OffsetAndMetadata(3));
+            current.put(p1, new OffsetAndMetadata(10));
+            current.put(p2, new OffsetAndMetadata(0));
+            Map<TopicPartition, OffsetAndMetadata> committed = task.preCommit(current);
+            assertEquals(5, committed.get(p0).offset());
+            assertEquals(10, committed.get(p1).offset());
+            assertEquals(0, committed.get(p2).offset());
+            task.close(assignment);
+            task.stop();
+        } catch (Exception e) {
+            log.error("", e);
+            fail("Should not have thrown any exception");
+        }
+    }
+
+    @Test
+    public void compaction() {
+        try {
+            executeQuery("USING testdb DROP TABLE IF EXISTS `kafka_connect_transaction_metadata`");
+            Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+            props.put(SingleStoreSinkConfig.METADATA_RETENTION_MS, "86400000");
+            SingleStoreSinkConfig config = new SingleStoreSinkConfig(props);
+
+            try (ConnectionPool pool = new ConnectionPool(config);
+                 MetadataTableCompactor compactor = new MetadataTableCompactor(config, pool)) {
+                try (Connection connection = pool.getDDLConnection()) {
+                    JdbcHelper.createMetadataTableIfNeeded(connection, config);
+                }
+                String insert = "USING testdb INSERT INTO `kafka_connect_transaction_metadata` (id, count, createdAt, topic, `partition`, minOffset, maxOffset) VALUES ";
+                executeQuery(insert + "('compaction-0-0', 10, NOW() - INTERVAL 3 DAY, 'compaction', 0, 0, 9), " +
+                        "('compaction-0-10', 5, NOW() - INTERVAL 2 DAY, 'compaction', 0, 10, 14), " +
+                        "('compaction-0-15', 5, NOW(), 'compaction', 0, 15, 19), " +
+                        "('compaction-1-0', 3, NOW() - INTERVAL 2 DAY, 'compaction', 1, 0, 2), " +
+                        "('compaction-1-3', 3, NOW() - INTERVAL 2 DAY, 'compaction', 1, 3, 5)");
+                executeQuery("USING testdb INSERT INTO `kafka_connect_transaction_metadata` (id, count, createdAt) VALUES " +
+                        "('old-0-0', 1, NOW() - INTERVAL 2 DAY), ('new-0-0', 1, NOW())");
+
+                // only partitions assigned to the task are compacted
+                compactor.addPartitions(Collections.singletonList(new TopicPartition("compaction", 0)));
+                compactor.compact();
+
+                ResultSet res = SQLHelper.executeQuery(config, "USING testdb SELECT id, count, topic, `partition`, minOffset, maxOffset FROM `kafka_connect_transaction_metadata` ORDER BY id");
+                String[] ids = {"compaction-0-0", "compaction-0-15", "compaction-1-0", "compaction-1-3", "new-0-0"};
+                int[] counts = {15, 5, 3, 3, 1};
+                long[] maxOffsets = {14, 19, 2, 5, 0};
+                for (int i = 0; i < ids.length; i++) {
+                    assertTrue(res.next());
+                    assertEquals(ids[i], res.getString("id"));
+                    assertEquals(counts[i], res.getInt("count"));
+                    if (res.getString("topic") != null) {
+                        assertEquals(maxOffsets[i], res.getLong("maxOffset"));
+                    }
+                }
+                assertFalse(res.next());
+
+                try (Connection connection = pool.getDMLConnection()) {
+                    Map<TopicPartition, Long> offsets = JdbcHelper.getCommittedOffsets(connection, config,
+                        Arrays.asList(new TopicPartition("compaction", 0), new TopicPartition("compaction", 1)));
+                    assertEquals(Long.valueOf(19), offsets.get(new TopicPartition("compaction", 0)));
+                    assertEquals(Long.valueOf(5), offsets.get(new TopicPartition("compaction", 1)));
+                }
+            }
+        } catch (Exception e) {
+            log.error("", e);
+            fail("Should not have thrown any exception");
+        }
+    }
+
+    @Test
+    public void partitionWriteParallelism() {
+        try {
+            executeQuery("USING testdb DROP TABLE IF EXISTS `kafka_connect_transaction_metadata`");
+            executeQuery("USING testdb DROP TABLE IF EXISTS `replay`");
+            Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+            props.put(SingleStoreSinkConfig.PARTITION_WRITE_PARALLELISM, "3");
+
+            SingleStoreSinkTask task = new SingleStoreSinkTask();
+            task.start(props);
+            List<SinkRecord> records = new ArrayList<>();
+            for (int partition = 0; partition < 5; partition++) {
+                records.addAll(replayRecords(partition, 0, 9));
+            }
+            task.put(records);
+            // replayed records are skipped by every shard
+            task.put(records);
+            task.stop();
+
+            ResultSet res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props), "USING testdb SELECT COUNT(*) FROM `replay`");
+            assertTrue(res.next());
+            assertEquals(50, res.getInt(1));
+
+            res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props), "USING testdb SELECT COUNT(*), SUM(count) FROM `kafka_connect_transaction_metadata` WHERE topic = 'replay'");
+            assertTrue(res.next());
+            assertEquals(5, res.getInt(1));
+            assertEquals(50, res.getInt(2));
+        } catch (Exception e) {
+            log.error("", e);
+            fail("Should not have thrown any exception");
+        }
+    }
 }
@@ -22,6 +22,19 @@ import static org.junit.Assert.assertTrue;
 public class MiltyTableWriteTest extends IntegrationBase {
     @Test
     public void multiTableWrite() throws SQLException {
+        multiTableWrite(new HashMap<>(), "multiTableWrite");
+    }
+
+    @Test
+    public void multiTableParallelWrite() throws SQLException {
+        Map<String, String> props = new HashMap<>();
+        props.put("singlestore.tableWriteParallelism", "4");
+        // tables are loaded in parallel only without the metadata table
+        props.put("singlestore.metadata.allow", "false");
+        multiTableWrite(props, "multiTableParallelWrite");
+    }
+
+    private void multiTableWrite(Map<String, String> props, String tablePrefix) throws SQLException {
         Schema schema1 = SchemaBuilder.struct()
             .field("tableId", Schema.STRING_SCHEMA)
             .field("c1", Schema.INT32_SCHEMA);
@@ -49,20 +62,19 @@ public class MiltyTableWriteTest extends IntegrationBase {
 
         List<SinkRecord> records = Arrays.asList(record1, record2, record3, record4);
 
-        Map<String, String> props = new HashMap<>();
         props.put("singlestore.recordToTable.mappingField", "tableId");
-        props.put("singlestore.recordToTable.mapping.t1", "multiTableWrite1");
-        props.put("singlestore.recordToTable.mapping.t2", "multiTableWrite2");
+        props.put("singlestore.recordToTable.mapping.t1", tablePrefix + "1");
+        props.put("singlestore.recordToTable.mapping.t2", tablePrefix + "2");
 
         put(props, records);
 
-        ResultSet rs = executeQueryWithResultSet("SELECT * FROM testdb.multiTableWrite1");
+        ResultSet rs = executeQueryWithResultSet("SELECT * FROM testdb." + tablePrefix + "1");
         assertTrue(rs.next());
         assertEquals(10, rs.getInt("c1"));
         assertFalse(rs.next());
         rs.close();
 
-        rs = executeQueryWithResultSet("SELECT * FROM testdb.multiTableWrite2");
+        rs = executeQueryWithResultSet("SELECT * FROM testdb." + tablePrefix + "2");
         assertTrue(rs.next());
         assertEquals(10, rs.getInt("c3"));
         assertEquals("abc", rs.getString("c4"));
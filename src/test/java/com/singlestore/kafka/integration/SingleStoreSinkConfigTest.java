@@ -51,6 +51,24 @@ public class SingleStoreSinkConfigTest extends IntegrationBase {
         }
     }
 
+    @Test
+    public void failWithWriteParallelismAbovePoolSize() {
+        Map<String, String> props = getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.PARTITION_WRITE_PARALLELISM, "3");
+        props.put(SingleStoreSinkConfig.TABLE_WRITE_PARALLELISM, "6");
+        props.put(SingleStoreSinkConfig.METADATA_TABLE_ALLOW, "false");
+        try {
+            new SingleStoreSinkConfig(props);
+            fail("Exception should be thrown");
+        } catch (ConfigException ex) {
+            assertEquals("Configurations \"singlestore.partitionWriteParallelism\" and \"singlestore.tableWriteParallelism\" " +
+                "require up to 9 connections, but \"connection.pool.maxSize\" is 8", ex.getLocalizedMessage());
+        }
+
+        props.put(SingleStoreSinkConfig.CONNECTION_POOL_MAX_SIZE, "9");
+        assertEquals(6, new SingleStoreSinkConfig(props).tableWriteParallelism);
+    }
+
     @Test
     public void successWithMinimalRequiredParameters() {
         Map<String, String> props = getMinimalRequiredParameters();
@@ -277,6 +295,14 @@ public class SingleStoreSinkConfigTest extends IntegrationBase {
         props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, "skip");
         config = new SingleStoreSinkConfig(props);
         assertEquals(config.dataCompression, DataCompression.skip);
+
+        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, "ZSTD");
+        config = new SingleStoreSinkConfig(props);
+        assertEquals(config.dataCompression, DataCompression.zstd);
+
+        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, "Auto");
+        config = new SingleStoreSinkConfig(props);
+        assertEquals(config.dataCompression, DataCompression.auto);
     }
 
     @Test
@@ -287,7 +313,23 @@ public class SingleStoreSinkConfigTest extends IntegrationBase {
             new SingleStoreSinkConfig(props);
             fail("Exception should be thrown");
         } catch (ConfigException ex) {
-            assertEquals(ex.getLocalizedMessage(), "Configuration \"singlestore.loadDataCompression\" is wrong. Available options: Gzip, LZ4, Skip");
+            assertEquals(ex.getLocalizedMessage(), "Configuration \"singlestore.loadDataCompression\" is wrong. Available options: Gzip, LZ4, ZSTD, Skip, Auto");
+        }
+    }
+
+    @Test
+    public void failCompressionLevelParameter() {
+        Map<String, String> props = getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, "zstd");
+        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION_LEVEL, "19");
+        assertEquals(19, new SingleStoreSinkConfig(props).compressionLevel);
+
+        props.put(SingleStoreSinkConfig.LOAD_DATA_COMPRESSION, "GZip");
+        try {
+            new SingleStoreSinkConfig(props);
+            fail("Exception should be thrown");
+        } catch (ConfigException ex) {
+            assertEquals(ex.getLocalizedMessage(), "Configuration \"singlestore.loadDataCompression.level\" is wrong. The maximum level of GZip is 9");
         }
     }
 
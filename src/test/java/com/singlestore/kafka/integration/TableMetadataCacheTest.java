@@ -0,0 +1,139 @@
+package com.singlestore.kafka.integration;
+
+import com.singlestore.kafka.sink.SingleStoreSinkConfig;
+import com.singlestore.kafka.sink.SingleStoreSinkTask;
+import com.singlestore.kafka.utils.ConfigHelper;
+import com.singlestore.kafka.utils.ConnectionPool;
+import com.singlestore.kafka.utils.SQLHelper;
+import com.singlestore.kafka.utils.TableMetadata;
+import com.singlestore.kafka.utils.TableMetadataCache;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
+
+import static org.junit.Assert.*;
+
+public class TableMetadataCacheTest extends IntegrationBase {
+
+    @Test
+    public void tableIsCreatedAndCached() throws SQLException {
+        executeQuery("DROP TABLE IF EXISTS testdb.tableMetadataCache");
+        Schema schema = SchemaBuilder.struct()
+            .field("c1", Schema.INT32_SCHEMA)
+            .field("c2", Schema.STRING_SCHEMA)
+            .build();
+
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        SingleStoreSinkConfig config = new SingleStoreSinkConfig(props);
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            TableMetadataCache cache = new TableMetadataCache(config, pool);
+            TableMetadata metadata = cache.get("tableMetadataCache", schema);
+            assertEquals(Arrays.asList("c1", "c2"), metadata.getColumns());
+            assertFalse(metadata.isReference());
+            assertSame(metadata, cache.get("tableMetadataCache", schema));
+
+            cache.invalidate("tableMetadataCache");
+            assertNotSame(metadata, cache.get("tableMetadataCache", schema));
+        }
+    }
+
+    @Test
+    public void optionalFieldsAreAddedToTable() throws SQLException {
+        executeQuery("DROP TABLE IF EXISTS testdb.tableMetadataCacheEvolution");
+        Schema schema = SchemaBuilder.struct()
+            .field("c1", Schema.INT32_SCHEMA)
+            .build();
+        Schema evolved = SchemaBuilder.struct()
+            .field("c1", Schema.INT32_SCHEMA)
+            .field("C2", Schema.OPTIONAL_STRING_SCHEMA)
+            .field("c3", Schema.OPTIONAL_INT64_SCHEMA)
+            .field("c4", Schema.STRING_SCHEMA)
+            .build();
+
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.SCHEMA_EVOLUTION_ALLOW, "true");
+        SingleStoreSinkConfig config = new SingleStoreSinkConfig(props);
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            TableMetadataCache cache = new TableMetadataCache(config, pool);
+            TableMetadata metadata = cache.get("tableMetadataCacheEvolution", schema);
+            assertEquals(Arrays.asList("c1"), metadata.getColumns());
+
+            // the required field c4 is not added
+            TableMetadata evolvedMetadata = cache.get("tableMetadataCacheEvolution", evolved);
+            assertEquals(Arrays.asList("c1", "C2", "c3"), evolvedMetadata.getColumns());
+            assertSame(evolvedMetadata, cache.get("tableMetadataCacheEvolution", evolved));
+            assertSame(evolvedMetadata, cache.get("tableMetadataCacheEvolution", schema));
+        }
+
+        // schema evolution is disabled by default
+        props.remove(SingleStoreSinkConfig.SCHEMA_EVOLUTION_ALLOW);
+        config = new SingleStoreSinkConfig(props);
+        Schema other = SchemaBuilder.struct()
+            .field("c5", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            TableMetadataCache cache = new TableMetadataCache(config, pool);
+            assertEquals(Arrays.asList("c1", "C2", "c3"), cache.get("tableMetadataCacheEvolution", other).getColumns());
+        }
+    }
+
+    @Test
+    public void batchWithSchemaVersionsIsLoaded() throws Exception {
+        executeQuery("DROP TABLE IF EXISTS testdb.schemaVersions");
+        Schema v1 = SchemaBuilder.struct()
+            .field("id", Schema.INT32_SCHEMA)
+            .build();
+        Schema v2 = SchemaBuilder.struct()
+            .field("id", Schema.INT32_SCHEMA)
+            .field("name", Schema.OPTIONAL_STRING_SCHEMA)
+            .build();
+        List<SinkRecord> records = Arrays.asList(
+            createRecord(v1, new Struct(v1).put("id", 1), "schemaVersions"),
+            createRecord(v2, new Struct(v2).put("id", 2).put("name", "b"), "schemaVersions"),
+            createRecord(v1, new Struct(v1).put("id", 3), "schemaVersions"));
+
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.METADATA_TABLE_ALLOW, "false");
+        props.put(SingleStoreSinkConfig.SCHEMA_EVOLUTION_ALLOW, "true");
+        SingleStoreSinkTask task = new SingleStoreSinkTask();
+        task.start(props);
+        task.put(records);
+        task.stop();
+
+        ResultSet res = SQLHelper.executeQuery(new SingleStoreSinkConfig(props), "SELECT id, name FROM testdb.schemaVersions ORDER BY id");
+        assertTrue(res.next());
+        assertEquals(1, res.getInt("id"));
+        assertNull(res.getString("name"));
+        assertTrue(res.next());
+        assertEquals("b", res.getString("name"));
+        assertTrue(res.next());
+        assertEquals(3, res.getInt("id"));
+        assertFalse(res.next());
+    }
+
+    @Test
+    public void cachingCanBeDisabled() throws SQLException {
+        executeQuery("DROP TABLE IF EXISTS testdb.tableMetadataCacheDisabled");
+        executeQuery("CREATE REFERENCE TABLE testdb.tableMetadataCacheDisabled (a INT, PRIMARY KEY(a))");
+
+        Map<String, String> props = ConfigHelper.getMinimalRequiredParameters();
+        props.put(SingleStoreSinkConfig.TABLE_METADATA_CACHE_TTL_MS, "0");
+        SingleStoreSinkConfig config = new SingleStoreSinkConfig(props);
+        try (ConnectionPool pool = new ConnectionPool(config)) {
+            TableMetadataCache cache = new TableMetadataCache(config, pool);
+            TableMetadata metadata = cache.get("tableMetadataCacheDisabled", null);
+            assertTrue(metadata.isReference());
+            assertNotSame(metadata, cache.get("tableMetadataCacheDisabled", null));
+        }
+    }
+}
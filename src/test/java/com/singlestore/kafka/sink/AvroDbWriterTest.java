@@ -0,0 +1,281 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.AvroSchema;
+import com.singlestore.kafka.utils.ColumnAccessorPlanCache;
+import com.singlestore.kafka.utils.TableMetadata;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
+import static org.junit.Assert.*;
+
+public class AvroDbWriterTest {
+
+    private static final String SCHEMA = "{\"type\": \"record\", \"name\": \"Person\", \"namespace\": \"test\", \"fields\": [" +
+        "{\"name\": \"id\", \"type\": \"long\"}," +
+        "{\"name\": \"name\", \"type\": \"string\"}," +
+        "{\"name\": \"job\", \"type\": [\"null\", \"string\"]}," +
+        "{\"name\": \"score\", \"type\": \"double\"}," +
+        "{\"name\": \"admin\", \"type\": \"boolean\"}," +
+        "{\"name\": \"address\", \"type\": [\"null\", {\"type\": \"record\", \"name\": \"Address\", \"fields\": [" +
+            "{\"name\": \"city\", \"type\": \"string\"}, {\"name\": \"zip\", \"type\": \"int\"}]}]}," +
+        "{\"name\": \"tags\", \"type\": {\"type\": \"array\", \"items\": \"string\"}}," +
+        "{\"name\": \"counts\", \"type\": {\"type\": \"map\", \"values\": \"int\"}}," +
+        "{\"name\": \"color\", \"type\": {\"type\": \"enum\", \"name\": \"Color\", \"symbols\": [\"RED\", \"GREEN\"]}}" +
+        "]}";
+
+    // AvroBytes writes values in the Avro binary encoding
+    private static class AvroBytes {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        AvroBytes writeLong(long value) {
+            long n = (value << 1) ^ (value >> 63);
+            while ((n & ~0x7fL) != 0) {
+                out.write((int) ((n & 0x7f) | 0x80));
+                n >>>= 7;
+            }
+            out.write((int) n);
+            return this;
+        }
+
+        AvroBytes writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeLong(bytes.length);
+            out.write(bytes, 0, bytes.length);
+            return this;
+        }
+
+        AvroBytes writeDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int i = 0; i < 8; i++) {
+                out.write((int) (bits >>> (8 * i)));
+            }
+            return this;
+        }
+
+        AvroBytes writeBoolean(boolean value) {
+            out.write(value ? 1 : 0);
+            return this;
+        }
+
+        AvroBytes write(byte[] value) {
+            out.write(value, 0, value.length);
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] person(long id, String job, String city) {
+        AvroBytes bytes = new AvroBytes()
+            .writeLong(id)
+            .writeString("name\t" + id)
+            .writeLong(job == null ? 0 : 1);
+        if (job != null) {
+            bytes.writeString(job);
+        }
+        bytes.writeDouble(id / 2.0).writeBoolean(id % 2 == 0).writeLong(city == null ? 0 : 1);
+        if (city != null) {
+            bytes.writeString(city).writeLong(10000 + id);
+        }
+        // two tags in one block, one map entry, GREEN
+        return bytes.writeLong(2).writeString("a").writeString("b\"c").writeLong(0)
+            .writeLong(1).writeString("k").writeLong(7).writeLong(0)
+            .writeLong(1)
+            .toByteArray();
+    }
+
+    private static SingleStoreSinkConfig config(Map<String, String> overrides) {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.DDL_ENDPOINT, "localhost:3306");
+        props.put(SingleStoreSinkConfig.CONNECTION_DATABASE, "db");
+        props.put(SingleStoreSinkConfig.AVRO_SCHEMA, SCHEMA);
+        props.putAll(overrides);
+        return new SingleStoreSinkConfig(props, false);
+    }
+
+    private static SinkRecord record(byte[] value) {
+        return createRecord(Schema.OPTIONAL_BYTES_SCHEMA, value);
+    }
+
+    private static String write(RecordEncoder encoder, List<SinkRecord> records) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        encoder.writeData(stream, records);
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void topLevelFields() throws IOException {
+        AvroDbWriter writer = new AvroDbWriter(config(Collections.emptyMap()), "t", null);
+        assertEquals(Arrays.asList("id", "name", "job", "score", "admin", "address", "tags", "counts", "color"), writer.getColumns());
+        assertEquals("LOAD DATA LOCAL INFILE '###.gz'  INTO TABLE `t` (`id`, `name`, `job`, `score`, `admin`, `address`, `tags`, `counts`, `color`) ",
+            writer.generateQuery("gz"));
+        assertEquals(
+            "1\tname\\\t1\t\\N\t0.5\t0\t{\"city\":\"Paris\",\"zip\":10001}\t[\"a\",\"b\\\\\"c\"]\t[{\"key\":\"k\",\"value\":7}]\tGREEN\n" +
+            "2\tname\\\t2\tdev\t1.0\t1\t\\N\t[\"a\",\"b\\\\\"c\"]\t[{\"key\":\"k\",\"value\":7}]\tGREEN\n",
+            write(writer, Arrays.asList(record(person(1, null, "Paris")), record(person(2, "dev", null)))));
+    }
+
+    @Test
+    public void outputMatchesConvertedRecords() throws IOException {
+        SingleStoreSinkConfig config = config(Collections.emptyMap());
+        Schema schema = config.avroSchema.toConnectSchema();
+        Schema address = schema.field("address").schema();
+        Map<String, Integer> counts = Collections.singletonMap("k", 7);
+        Struct value = new Struct(schema)
+            .put("id", 1L)
+            .put("name", "name\t1")
+            .put("job", null)
+            .put("score", 0.5)
+            .put("admin", false)
+            .put("address", new Struct(address).put("city", "Paris").put("zip", 10001))
+            .put("tags", Arrays.asList("a", "b\"c"))
+            .put("counts", counts)
+            .put("color", "GREEN");
+
+        assertTrue(schema.field("job").schema().isOptional());
+        assertEquals(Schema.Type.STRUCT, address.type());
+        assertEquals(
+            write(new CsvDbWriter(config, createRecord(schema, value), "t", new ColumnAccessorPlanCache()), Collections.singletonList(createRecord(schema, value))),
+            write(new AvroDbWriter(config, "t", null), Collections.singletonList(record(person(1, null, "Paris")))));
+    }
+
+    @Test
+    public void columnMappings() throws IOException {
+        Map<String, String> props = new HashMap<>();
+        props.put("singlestore.columnToField.t.c_zip", "address.zip");
+        props.put("singlestore.columnToField.t.c_id", "id");
+        props.put("singlestore.columnToField.t.c_address", "address");
+        props.put("singlestore.columnToField.t.c_missing", "address.street");
+        props.put("singlestore.columnToField.t.c_absent", "name");
+        props.put("singlestore.columnToField.t.c_color", "color");
+        props.put(SingleStoreSinkConfig.FIELDS_WHITELIST, "id,address,name");
+        TableMetadata metadata = new TableMetadata(false, Arrays.asList("c_zip", "C_ID", "c_address", "c_missing", "c_color"), System.currentTimeMillis());
+        AvroDbWriter writer = new AvroDbWriter(config(props), "t", metadata);
+
+        // columns are ordered by the position of their fields in the value, color is not whitelisted, the table doesn't have c_absent
+        assertEquals(Arrays.asList("c_id", "c_address", "c_zip", "c_missing"), writer.getColumns());
+        assertEquals(
+            "1\t{\"city\":\"Paris\",\"zip\":10001}\t10001\t\\N\n" +
+            "2\t\\N\t\\N\t\\N\n",
+            write(writer, Arrays.asList(record(person(1, null, "Paris")), record(person(2, "dev", null)))));
+    }
+
+    @Test
+    public void jsonDocumentsOfMappedPaths() throws IOException {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.LOAD_DATA_FORMAT, "json");
+        props.put("singlestore.columnToField.t.c_city", "address.city");
+        props.put("singlestore.columnToField.t.c_id", "id");
+        AvroDbWriter writer = new AvroDbWriter(config(props), "t", null);
+
+        String query = writer.generateQuery("gz");
+        assertTrue(query, query.contains("`c_city` <- `address`::`city` DEFAULT NULL"));
+        assertTrue(query, query.contains("`c_id` <- `id` DEFAULT NULL"));
+        // documents contain the top-level fields of the paths in the order they are decoded
+        assertEquals(
+            "{\"id\":1,\"address\":{\"city\":\"Paris\",\"zip\":10001}}\n" +
+            "{\"id\":2,\"address\":null}\n",
+            write(writer, Arrays.asList(record(person(1, null, "Paris")), record(person(2, "dev", null)))));
+    }
+
+    @Test
+    public void skippedFieldsAreNotDecoded() throws IOException {
+        String schema = "{\"type\": \"record\", \"name\": \"R\", \"fields\": [" +
+            "{\"name\": \"items\", \"type\": {\"type\": \"array\", \"items\": \"long\"}}," +
+            "{\"name\": \"id\", \"type\": \"int\"}]}";
+        // the array block is written with its size in bytes and skipped at once
+        byte[] value = new AvroBytes().writeLong(-2).writeLong(2).writeLong(1).writeLong(2).writeLong(0).writeLong(42).toByteArray();
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.AVRO_SCHEMA, schema);
+        props.put(SingleStoreSinkConfig.FIELDS_WHITELIST, "id");
+        assertEquals("42\n", write(new AvroDbWriter(config(props), "t", null), Collections.singletonList(record(value))));
+
+        props.put(SingleStoreSinkConfig.FIELDS_WHITELIST, "items");
+        assertEquals("[1,2]\n", write(new AvroDbWriter(config(props), "t", null), Collections.singletonList(record(value))));
+    }
+
+    @Test
+    public void primitiveSchema() throws IOException {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.AVRO_SCHEMA, "\"string\"");
+        AvroDbWriter writer = new AvroDbWriter(config(props), "t", null);
+        assertEquals(Collections.singletonList("data"), writer.getColumns());
+        assertEquals("a\\\\b\n", write(writer, Collections.singletonList(record(new AvroBytes().writeString("a\\b").toByteArray()))));
+    }
+
+    @Test
+    public void decimal() throws IOException {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.AVRO_SCHEMA, "{\"type\": \"record\", \"name\": \"R\", \"fields\": [" +
+            "{\"name\": \"price\", \"type\": {\"type\": \"bytes\", \"logicalType\": \"decimal\", \"precision\": 10, \"scale\": 2}}]}");
+        // -12345 as a two's-complement big-endian number
+        byte[] value = new AvroBytes().writeLong(2).write(new byte[]{(byte) 0xcf, (byte) 0xc7}).toByteArray();
+        assertEquals("-123.45\n", write(new AvroDbWriter(config(props), "t", null), Collections.singletonList(record(value))));
+    }
+
+    @Test
+    public void confluentHeader() throws IOException {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.AVRO_SCHEMA, "{\"type\": \"record\", \"name\": \"R\", \"fields\": [{\"name\": \"id\", \"type\": \"int\"}]}");
+        props.put(SingleStoreSinkConfig.AVRO_CONFLUENT_HEADER, "true");
+        AvroDbWriter writer = new AvroDbWriter(config(props), "t", null);
+        byte[] value = new AvroBytes().write(new byte[]{0, 0, 0, 0, 7}).writeLong(5).toByteArray();
+        assertEquals("5\n", write(writer, Collections.singletonList(record(value))));
+
+        try {
+            write(writer, Collections.singletonList(record(new AvroBytes().writeLong(5).toByteArray())));
+            fail("Exception should be thrown");
+        } catch (DataException ex) {
+            assertTrue(ex.getMessage().contains("Confluent wire format"));
+        }
+    }
+
+    @Test
+    public void invalidValues() throws IOException {
+        AvroDbWriter writer = new AvroDbWriter(config(Collections.emptyMap()), "t", null);
+        try {
+            write(writer, Collections.singletonList(createRecord(null, "text")));
+            fail("Exception should be thrown");
+        } catch (DataException ex) {
+            assertTrue(ex.getMessage().contains("ByteArrayConverter"));
+        }
+        try {
+            byte[] value = person(1, "dev", "Paris");
+            write(writer, Collections.singletonList(record(Arrays.copyOf(value, value.length - 3))));
+            fail("Exception should be thrown");
+        } catch (DataException ex) {
+            assertTrue(ex.getMessage().contains("Malformed Avro value"));
+        }
+    }
+
+    @Test
+    public void schemaFromFile() throws IOException {
+        File file = File.createTempFile("schema", ".avsc");
+        file.deleteOnExit();
+        Files.write(file.toPath(), SCHEMA.getBytes(StandardCharsets.UTF_8));
+        AvroSchema schema = config(Collections.singletonMap(SingleStoreSinkConfig.AVRO_SCHEMA, file.getAbsolutePath())).avroSchema;
+        assertEquals("test.Person", schema.getName());
+        assertEquals("test.Address", schema.getField("address").getSchema().getNonNullBranch().getName());
+
+        try {
+            config(Collections.singletonMap(SingleStoreSinkConfig.AVRO_SCHEMA, "{\"type\": \"record\", \"name\": \"R\", \"fields\": [{\"name\": \"a\", \"type\": \"Unknown\"}]}"));
+            fail("Exception should be thrown");
+        } catch (ConfigException ex) {
+            assertTrue(ex.getMessage().contains("Unknown Avro type"));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.ColumnAccessorPlan;
+import com.singlestore.kafka.utils.ColumnAccessorPlanCache;
+import com.singlestore.kafka.utils.ColumnMapping;
+import com.singlestore.kafka.utils.TsvEncoder;
+import com.singlestore.kafka.utils.ValueWithSchema;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
+import static org.junit.Assert.*;
+
+public class ColumnAccessorPlanTest {
+
+    private static final Schema NESTED_SCHEMA = SchemaBuilder.struct()
+        .field("c1", Schema.STRING_SCHEMA)
+        .field("c2", SchemaBuilder.int32().optional().defaultValue(5).build())
+        .optional()
+        .build();
+
+    private static final Schema SCHEMA = SchemaBuilder.struct()
+        .field("bool", Schema.BOOLEAN_SCHEMA)
+        .field("int8", Schema.INT8_SCHEMA)
+        .field("int64", Schema.INT64_SCHEMA)
+        .field("float64", Schema.FLOAT64_SCHEMA)
+        .field("string", Schema.OPTIONAL_STRING_SCHEMA)
+        .field("bytes", Schema.BYTES_SCHEMA)
+        .field("array", SchemaBuilder.array(Schema.STRING_SCHEMA).build())
+        .field("map", SchemaBuilder.map(Schema.STRING_SCHEMA, Schema.INT32_SCHEMA).build())
+        .field("struct", SchemaBuilder.struct()
+            .field("c1", Schema.STRING_SCHEMA)
+            .field("c2", SchemaBuilder.int32().optional().defaultValue(5).build())
+            .optional()
+            .build())
+        .build();
+
+    private static Struct createStruct(String string, boolean withNested) {
+        Map<String, Integer> mp = new HashMap<>();
+        mp.put("k", 1);
+        Struct struct = new Struct(SCHEMA)
+            .put("bool", true)
+            .put("int8", (byte) 10)
+            .put("int64", Long.MIN_VALUE)
+            .put("float64", 10.1d)
+            .put("string", string)
+            .put("bytes", "a\tb".getBytes(StandardCharsets.UTF_8))
+            .put("array", Arrays.asList("asd", "b\\cd"))
+            .put("map", mp);
+        if (withNested) {
+            struct.put("struct", new Struct(SCHEMA.field("struct").schema()).put("c1", "v\n1"));
+        }
+        return struct;
+    }
+
+    private static String write(ColumnAccessorPlan plan, Object value) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        TsvEncoder encoder = new TsvEncoder(stream);
+        plan.write(value, encoder);
+        encoder.flush();
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void columnsMatchValueWithSchema() throws IOException {
+        List<String> columns = Arrays.asList("bool", "int8", "int64", "float64", "string", "bytes", "array", "map", "struct", "missing");
+        ColumnAccessorPlan plan = ColumnAccessorPlan.forColumns(SCHEMA, columns);
+        for (Struct value: Arrays.asList(createStruct("ab\tc", true), createStruct(null, false))) {
+            assertEquals(new ValueWithSchema(createRecord(SCHEMA, value)).toCSV(columns), write(plan, value));
+        }
+        assertEquals("\\N", write(ColumnAccessorPlan.forColumns(SCHEMA, Collections.singletonList("bool")), null));
+
+        Schema arraySchema = SchemaBuilder.array(Schema.INT32_SCHEMA).build();
+        plan = ColumnAccessorPlan.forColumns(arraySchema, Collections.singletonList("data"));
+        assertEquals("[1,2]", write(plan, Arrays.asList(1, 2)));
+        plan = ColumnAccessorPlan.forColumns(Schema.STRING_SCHEMA, Collections.singletonList("data"));
+        assertEquals("a\\\tb", write(plan, "a\tb"));
+    }
+
+    @Test
+    public void columnMappingsMatchValueWithSchema() throws IOException {
+        List<ColumnMapping> mappings = Arrays.asList(
+            new ColumnMapping("c1", "bool"),
+            new ColumnMapping("c2", "struct.c1"),
+            new ColumnMapping("c3", "struct.c2"),
+            new ColumnMapping("c4", "struct"),
+            new ColumnMapping("c5", "struct.missing"),
+            new ColumnMapping("c6", "string.c1"),
+            new ColumnMapping("c7", "missing")
+        );
+        ColumnAccessorPlan plan = ColumnAccessorPlan.forColumnMappings(SCHEMA, mappings);
+        for (Struct value: Arrays.asList(createStruct("asd", true), createStruct("asd", false))) {
+            assertEquals(new ValueWithSchema(createRecord(SCHEMA, value)).mapColumnsToCSV(mappings), write(plan, value));
+        }
+        assertEquals("1\tv\\\n1\t5\t{\"c1\":\"v\\\\n1\",\"c2\":5}\t\\N\t\\N\t\\N", write(plan, createStruct("asd", true)));
+    }
+
+    @Test
+    public void structWithAnotherSchemaInstance() throws IOException {
+        // the nested Struct is created with an equal but different schema instance
+        Struct value = createStruct("asd", false)
+            .put("struct", new Struct(NESTED_SCHEMA).put("c1", "v1").put("c2", 7));
+        ColumnAccessorPlan plan = ColumnAccessorPlan.forColumnMappings(SCHEMA, Arrays.asList(
+            new ColumnMapping("c1", "struct.c1"),
+            new ColumnMapping("c2", "struct.c2")
+        ));
+        assertEquals("v1\t7", write(plan, value));
+    }
+
+    @Test
+    public void plansAreCachedBySchemaIdentity() {
+        ColumnAccessorPlanCache cache = new ColumnAccessorPlanCache();
+        List<String> columns = Arrays.asList("bool", "int8");
+        ColumnAccessorPlan plan = cache.forColumns(SCHEMA, columns);
+        assertSame(plan, cache.forColumns(SCHEMA, Arrays.asList("bool", "int8")));
+        assertNotSame(plan, cache.forColumns(SCHEMA, Collections.singletonList("bool")));
+
+        Schema equalSchema = SchemaBuilder.struct()
+            .field("bool", Schema.BOOLEAN_SCHEMA)
+            .field("int8", Schema.INT8_SCHEMA)
+            .build();
+        Schema anotherEqualSchema = SchemaBuilder.struct()
+            .field("bool", Schema.BOOLEAN_SCHEMA)
+            .field("int8", Schema.INT8_SCHEMA)
+            .build();
+        assertNotSame(cache.forColumns(equalSchema, columns), cache.forColumns(anotherEqualSchema, columns));
+
+        List<ColumnMapping> mappings = Collections.singletonList(new ColumnMapping("c1", "bool"));
+        ColumnAccessorPlan mappingPlan = cache.forColumnMappings(SCHEMA, mappings);
+        assertSame(mappingPlan, cache.forColumnMappings(SCHEMA, mappings));
+    }
+}
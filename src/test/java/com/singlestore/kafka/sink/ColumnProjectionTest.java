@@ -0,0 +1,120 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.ColumnAccessorPlanCache;
+import com.singlestore.kafka.utils.ColumnProjection;
+import com.singlestore.kafka.utils.ColumnProjectionCache;
+import com.singlestore.kafka.utils.TableMetadata;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
+import static org.junit.Assert.*;
+
+public class ColumnProjectionTest {
+
+    private static final Schema SCHEMA = SchemaBuilder.struct()
+        .field("id", Schema.INT32_SCHEMA)
+        .field("name", Schema.STRING_SCHEMA)
+        .field("job", Schema.STRING_SCHEMA)
+        .field("extra", Schema.STRING_SCHEMA)
+        .build();
+
+    private static SingleStoreSinkConfig config(Map<String, String> overrides) {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.DDL_ENDPOINT, "localhost:3306");
+        props.put(SingleStoreSinkConfig.CONNECTION_DATABASE, "db");
+        props.putAll(overrides);
+        return new SingleStoreSinkConfig(props, false);
+    }
+
+    private static SinkRecord record(int id) {
+        return createRecord(SCHEMA, new Struct(SCHEMA).put("id", id).put("name", "n" + id).put("job", "j" + id).put("extra", "e" + id), "topic");
+    }
+
+    private static TableMetadata table(String... columns) {
+        return new TableMetadata(false, Arrays.asList(columns), System.currentTimeMillis());
+    }
+
+    private static String write(SingleStoreSinkConfig config, ColumnProjection projection, List<SinkRecord> records) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new CsvDbWriter(config, projection, "t", new ColumnAccessorPlanCache()).writeData(stream, records);
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void whitelistAndTableColumns() throws IOException {
+        SingleStoreSinkConfig config = config(Collections.singletonMap(SingleStoreSinkConfig.FIELDS_WHITELIST, "id,name,extra"));
+        ColumnProjectionCache cache = new ColumnProjectionCache(config, new ColumnAccessorPlanCache());
+        ColumnProjection projection = cache.get("t", record(1), table("ID", "name", "job"));
+
+        assertEquals(Arrays.asList("id", "name"), projection.getColumns());
+        assertSame(SCHEMA, projection.getSchema());
+        CsvDbWriter writer = new CsvDbWriter(config, projection, "t", new ColumnAccessorPlanCache());
+        assertEquals("LOAD DATA LOCAL INFILE '###.gz'  INTO TABLE `t` (`id`, `name`) ", writer.generateQuery("gz"));
+        assertEquals("1\tn1\n2\tn2\n", write(config, projection, Arrays.asList(record(1), record(2))));
+    }
+
+    @Test
+    public void columnMappings() throws IOException {
+        Map<String, String> props = new HashMap<>();
+        props.put("singlestore.columnToField.t.c_id", "id");
+        props.put("singlestore.columnToField.t.c_job", "job");
+        props.put("singlestore.columnToField.t.c_missing", "name");
+        props.put(SingleStoreSinkConfig.FIELDS_WHITELIST, "id,name");
+        SingleStoreSinkConfig config = config(props);
+        ColumnProjection projection = new ColumnProjectionCache(config, new ColumnAccessorPlanCache())
+            .get("t", record(1), table("c_id", "c_job"));
+
+        // job is not whitelisted, the table doesn't have c_missing
+        assertEquals(Collections.singletonList("c_id"), projection.getColumns());
+        assertEquals(1, projection.getColumnMappings().size());
+        assertEquals("1\n", write(config, projection, Collections.singletonList(record(1))));
+    }
+
+    @Test
+    public void schemalessRecords() throws IOException {
+        SingleStoreSinkConfig config = config(Collections.singletonMap(SingleStoreSinkConfig.FIELDS_WHITELIST, "id,name"));
+        Map<Object, Object> value = new LinkedHashMap<>();
+        value.put("id", 1);
+        value.put("name", "n1");
+        value.put("job", "j1");
+        SinkRecord record = createRecord(null, value);
+        ColumnProjection projection = new ColumnProjectionCache(config, new ColumnAccessorPlanCache())
+            .get("t", record, table("id", "job"));
+
+        assertEquals(Collections.singletonList("id"), projection.getColumns());
+        assertNull(projection.getPlan());
+        assertEquals("1\n", write(config, projection, Collections.singletonList(record)));
+    }
+
+    @Test
+    public void projectionsAreCachedUntilTableMetadataChanges() {
+        ColumnProjectionCache cache = new ColumnProjectionCache(config(Collections.emptyMap()), new ColumnAccessorPlanCache());
+        TableMetadata metadata = table("id", "name");
+        ColumnProjection projection = cache.get("t", record(1), metadata);
+        assertSame(projection, cache.get("t", record(2), metadata));
+        assertNotSame(projection, cache.get("t2", record(2), metadata));
+
+        TableMetadata altered = table("id", "name", "job", "extra");
+        ColumnProjection reloaded = cache.get("t", record(3), altered);
+        assertNotSame(projection, reloaded);
+        assertEquals(Arrays.asList("id", "name", "job", "extra"), reloaded.getColumns());
+    }
+
+    @Test
+    public void droppedColumnsAreReportedOnce() {
+        assertFalse(ColumnProjection.reportDroppedColumns("reported", Collections.emptyList()));
+        assertTrue(ColumnProjection.reportDroppedColumns("reported", Arrays.asList("a", "b")));
+        assertFalse(ColumnProjection.reportDroppedColumns("reported", Arrays.asList("a", "b")));
+        assertTrue(ColumnProjection.reportDroppedColumns("reported", Collections.singletonList("a")));
+        assertTrue(ColumnProjection.reportDroppedColumns("reported2", Arrays.asList("a", "b")));
+    }
+}
@@ -0,0 +1,69 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.CommittedOffsets;
+import com.singlestore.kafka.utils.OffsetRange;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CommittedOffsetsTest {
+
+    private static final TopicPartition T0 = new TopicPartition("t", 0);
+    private static final TopicPartition T1 = new TopicPartition("t", 1);
+
+    private static SinkRecord record(TopicPartition partition, long offset) {
+        return new SinkRecord(partition.topic(), partition.partition(), null, null, Schema.INT64_SCHEMA, offset, offset);
+    }
+
+    @Test
+    public void offsetRanges() {
+        List<SinkRecord> records = Arrays.asList(record(T1, 7), record(T0, 3), record(T1, 5), record(T1, 9));
+        Map<TopicPartition, OffsetRange> ranges = OffsetRange.of(records);
+
+        assertEquals(Arrays.asList(T1, T0), new ArrayList<>(ranges.keySet()));
+        OffsetRange range = ranges.get(T1);
+        assertEquals(5, range.getMinOffset());
+        assertEquals(9, range.getMaxOffset());
+        assertEquals(3, range.getCount());
+        assertEquals("t-1-5", range.getId());
+        assertEquals("t-0-3", ranges.get(T0).getId());
+    }
+
+    @Test
+    public void replayedRecordsAreFiltered() {
+        CommittedOffsets offsets = new CommittedOffsets();
+        List<SinkRecord> records = Arrays.asList(record(T0, 1), record(T0, 2), record(T1, 1), record(T1, 2));
+        assertEquals(new HashSet<>(Arrays.asList(T0, T1)), offsets.missing(records));
+
+        offsets.loaded(Arrays.asList(T0, T1), Collections.singletonMap(T0, 1L));
+        assertTrue(offsets.missing(records).isEmpty());
+        assertEquals(1, offsets.get(T0));
+        assertEquals(CommittedOffsets.NONE, offsets.get(T1));
+        assertEquals(Arrays.asList(record(T0, 2), record(T1, 1), record(T1, 2)), offsets.filter(records));
+
+        offsets.committed(OffsetRange.of(records).values());
+        assertEquals(2, offsets.get(T0));
+        assertEquals(2, offsets.get(T1));
+        assertTrue(offsets.filter(records).isEmpty());
+    }
+
+    @Test
+    public void partitionsAreUnverifiedUntilWritten() {
+        CommittedOffsets offsets = new CommittedOffsets();
+        offsets.loaded(Arrays.asList(T0, T1), Collections.emptyMap());
+        assertTrue(offsets.isUnverified(Collections.singletonList(T0)));
+
+        offsets.committed(OffsetRange.of(Collections.singletonList(record(T0, 0))).values());
+        assertFalse(offsets.isUnverified(Collections.singletonList(T0)));
+        assertTrue(offsets.isUnverified(Arrays.asList(T0, T1)));
+
+        offsets.remove(Collections.singletonList(T0));
+        assertEquals(Collections.singleton(T0), offsets.missing(Collections.singletonList(record(T0, 1))));
+        assertEquals(CommittedOffsets.NONE, offsets.get(T0));
+    }
+}
@@ -0,0 +1,109 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.CompressionSelector;
+import com.singlestore.kafka.utils.DataCompression;
+import com.singlestore.kafka.utils.TaskMetrics;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class CompressionSelectorTest {
+
+    private static CompressionSelector selector() {
+        CompressionSelector selector = new CompressionSelector(
+            Arrays.asList(DataCompression.gzip, DataCompression.lz4, DataCompression.skip), 1);
+        selector.recordSample(DataCompression.gzip, 1000, 200, 10000);
+        selector.recordSample(DataCompression.lz4, 1000, 500, 1000);
+        return selector;
+    }
+
+    // loads 1000 raw bytes with lz4, LOAD DATA takes nanosPerSentByte for every one of 500 sent bytes
+    private static void loadLz4(CompressionSelector selector, int count, double nanosPerSentByte) {
+        for (int i = 0; i < count; i++) {
+            long loadNanos = (long) (500 * nanosPerSentByte);
+            selector.recordLoad(1000, 500, 1000, loadNanos / 2, loadNanos);
+        }
+    }
+
+    @Test
+    public void startsWithLz4() {
+        assertEquals(DataCompression.lz4, selector().current());
+        assertEquals(DataCompression.gzip,
+            new CompressionSelector(Arrays.asList(DataCompression.gzip, DataCompression.skip), 1).current());
+    }
+
+    @Test
+    public void slowTransferSelectsGzip() {
+        CompressionSelector selector = selector();
+        loadLz4(selector, 4, 100);
+        assertEquals(DataCompression.lz4, selector.current());
+        loadLz4(selector, 1, 100);
+        assertEquals(DataCompression.gzip, selector.current());
+    }
+
+    @Test
+    public void fastTransferSelectsSkip() {
+        CompressionSelector selector = selector();
+        loadLz4(selector, 5, 1);
+        assertEquals(DataCompression.skip, selector.current());
+    }
+
+    @Test
+    public void hysteresis() {
+        CompressionSelector selector = selector();
+        // lz4 is bound by the producer at 2ns per byte, skip by the transfer at 1.8ns per byte
+        loadLz4(selector, 10, 1.8);
+        assertEquals(DataCompression.lz4, selector.current());
+        loadLz4(selector, 10, 1);
+        assertEquals(DataCompression.skip, selector.current());
+    }
+
+    @Test
+    public void producerBoundLoadIsUpperBound() {
+        CompressionSelector selector = selector();
+        loadLz4(selector, 5, 5);
+        // LOAD DATA waited for the producer, the slower observed transfer doesn't change the estimate
+        for (int i = 0; i < 10; i++) {
+            selector.recordLoad(1000, 500, 1000, 0, 500 * 100);
+        }
+        assertEquals(DataCompression.lz4, selector.current());
+    }
+
+    @Test
+    public void batchesAreSampledPeriodically() throws IOException {
+        CompressionSelector selector = selector();
+        int sampled = 0;
+        for (int i = 0; i < 60; i++) {
+            if (selector.shouldSample()) {
+                sampled++;
+            }
+        }
+        assertEquals(3, sampled);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append(i).append("\tvalue\n");
+        }
+        selector.sample(sb.toString().getBytes(StandardCharsets.UTF_8), -1);
+        loadLz4(selector, 5, 1000);
+        assertEquals(DataCompression.gzip, selector.current());
+    }
+
+    @Test
+    public void compressionIsReportedInMetrics() {
+        TaskMetrics metrics = new TaskMetrics();
+        metrics.recordCompression("t1", DataCompression.lz4);
+        metrics.recordCompression("t1", DataCompression.lz4);
+        metrics.recordCompression("t1", DataCompression.gzip);
+        metrics.recordCompression("t2", DataCompression.skip);
+
+        assertEquals("gzip", metrics.getTableMetrics("t1").getCompression());
+        assertEquals(1, metrics.getTableMetrics("t1").getCompressionSwitches());
+        assertEquals("skip", metrics.getTableMetrics("t2").getCompression());
+        assertEquals(1, metrics.getCompressionSwitches());
+    }
+}
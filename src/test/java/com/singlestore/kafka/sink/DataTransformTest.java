@@ -13,6 +13,8 @@ import java.util.*;
 
 import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
 public class DataTransformTest {
     List<SinkRecord> records;
@@ -76,6 +78,22 @@ public class DataTransformTest {
         checkExpectedResult(updatedRecords, createRecord(schema, new Struct(schema).put("job", "teacher"), "topic"), createRecord(schema, new Struct(schema).put("job", "teacher"), "topic"));
     }
 
+    @Test
+    public void ProjectedSchemaIsShared() {
+        DataTransform transform = new DataTransform(Arrays.asList("age", "name"));
+        List<SinkRecord> updatedRecords = new ArrayList<>(transform.selectWhitelistedFields(records));
+        assertSame(updatedRecords.get(0).valueSchema(), updatedRecords.get(1).valueSchema());
+        assertSame(updatedRecords.get(0).valueSchema(), transform.selectWhitelistedFields(records).iterator().next().valueSchema());
+
+        Schema otherSchema = SchemaBuilder.struct().field("name", Schema.STRING_SCHEMA).field("age", Schema.INT32_SCHEMA).build();
+        SinkRecord other = createRecord(otherSchema, new Struct(otherSchema).put("name", "Ann").put("age", 40), "topic");
+        SinkRecord updatedOther = transform.selectWhitelistedFields(Collections.singletonList(other)).iterator().next();
+        assertNotSame(updatedRecords.get(0).valueSchema(), updatedOther.valueSchema());
+        assertEquals("Ann", ((Struct) updatedOther.value()).get("name"));
+        assertEquals(40, ((Struct) updatedOther.value()).get("age"));
+        assertSame(updatedRecords.get(1).valueSchema(), transform.selectWhitelistedFields(records).iterator().next().valueSchema());
+    }
+
     private void checkExpectedResult(Collection<SinkRecord> updatedRecords, SinkRecord expectedRecord1, SinkRecord expectedRecord2) {
         assertEquals(updatedRecords.size(), 2);
         Iterator<SinkRecord> iterator = updatedRecords.iterator();
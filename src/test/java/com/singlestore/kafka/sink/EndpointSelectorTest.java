@@ -0,0 +1,56 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.EndpointBalancing;
+import com.singlestore.kafka.utils.EndpointSelector;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EndpointSelectorTest {
+
+    private static final List<String> ENDPOINTS = Arrays.asList("a:3306", "b:3306", "c:3306");
+
+    @Test
+    public void roundRobin() {
+        EndpointSelector selector = new EndpointSelector(ENDPOINTS, EndpointBalancing.roundrobin, 60000);
+        assertEquals(Arrays.asList("a:3306", "b:3306", "c:3306"), selector.order(e -> 0));
+        assertEquals(Arrays.asList("b:3306", "c:3306", "a:3306"), selector.order(e -> 0));
+        assertEquals(Arrays.asList("c:3306", "a:3306", "b:3306"), selector.order(e -> 0));
+        assertEquals(Arrays.asList("a:3306", "b:3306", "c:3306"), selector.order(e -> 0));
+    }
+
+    @Test
+    public void leastLoaded() {
+        EndpointSelector selector = new EndpointSelector(ENDPOINTS, EndpointBalancing.leastloaded, 60000);
+        Map<String, Integer> inUse = new HashMap<>();
+        inUse.put("a:3306", 2);
+        inUse.put("b:3306", 0);
+        inUse.put("c:3306", 0);
+        assertEquals(Arrays.asList("b:3306", "c:3306", "a:3306"), selector.order(inUse::get));
+        // endpoints with the same load are taken in turn
+        assertEquals(Arrays.asList("b:3306", "c:3306", "a:3306"), selector.order(inUse::get));
+        assertEquals(Arrays.asList("c:3306", "b:3306", "a:3306"), selector.order(inUse::get));
+    }
+
+    @Test
+    public void failedEndpointsAreTriedLast() throws InterruptedException {
+        EndpointSelector selector = new EndpointSelector(ENDPOINTS, EndpointBalancing.leastloaded, 100);
+        selector.recordFailure("b:3306");
+        assertTrue(selector.isEjected("b:3306"));
+        assertEquals(Arrays.asList("a:3306", "c:3306", "b:3306"), selector.order(e -> 0));
+        assertEquals(Arrays.asList("c:3306", "a:3306", "b:3306"), selector.order(e -> 0));
+
+        selector.recordSuccess("b:3306");
+        assertFalse(selector.isEjected("b:3306"));
+
+        selector.recordFailure("a:3306");
+        Thread.sleep(150);
+        assertFalse(selector.isEjected("a:3306"));
+        assertEquals(Arrays.asList("c:3306", "a:3306", "b:3306"), selector.order(e -> 0));
+    }
+}
@@ -0,0 +1,27 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.JdbcHelper;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.Assert.*;
+
+public class JdbcHelperTest {
+
+    @Test
+    public void decompressionErrors() {
+        SQLException decompression = new SQLException("Failed to load data");
+        decompression.setNextException(new SQLException("ZSTD_decompressStream failed: Unknown frame descriptor"));
+        assertTrue(JdbcHelper.isDecompressionError(decompression));
+        assertTrue(JdbcHelper.isDecompressionError(new SQLException("Unsupported compression of file '###.zst'")));
+
+        // failures unrelated to the codec don't reject it
+        assertFalse(JdbcHelper.isDecompressionError(new SQLIntegrityConstraintViolationException("Duplicate entry '1' for key 'PRIMARY'", "23000", 1062)));
+        assertFalse(JdbcHelper.isDecompressionError(new SQLException("Lock wait timeout exceeded; try restarting transaction", "HY000", 1205)));
+        assertFalse(JdbcHelper.isDecompressionError(new SQLTransientConnectionException("Connection reset")));
+        assertFalse(JdbcHelper.isDecompressionError(new SQLException((String) null)));
+    }
+}
@@ -0,0 +1,171 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.ColumnAccessorPlanCache;
+import com.singlestore.kafka.utils.ColumnMapping;
+import com.singlestore.kafka.utils.ColumnProjection;
+import com.singlestore.kafka.utils.LoadDataFormat;
+import com.singlestore.kafka.utils.TsvEncoder;
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static com.singlestore.kafka.utils.SinkRecordCreator.createRecord;
+import static org.junit.Assert.*;
+
+public class LoadDataFormatTest {
+
+    private static final Schema NESTED = SchemaBuilder.struct().optional()
+        .field("city", Schema.STRING_SCHEMA)
+        .build();
+    private static final Schema SCHEMA = SchemaBuilder.struct()
+        .field("id", Schema.INT32_SCHEMA)
+        .field("name", Schema.OPTIONAL_STRING_SCHEMA)
+        .field("score", Schema.FLOAT64_SCHEMA)
+        .field("address", NESTED)
+        .build();
+
+    private static SingleStoreSinkConfig config(Map<String, String> overrides) {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.DDL_ENDPOINT, "localhost:3306");
+        props.put(SingleStoreSinkConfig.CONNECTION_DATABASE, "db");
+        props.putAll(overrides);
+        return new SingleStoreSinkConfig(props, false);
+    }
+
+    private static List<SinkRecord> records() {
+        return Arrays.asList(
+            createRecord(SCHEMA, new Struct(SCHEMA).put("id", 1).put("name", "a,b\"c\\d\te\nf").put("score", 0.5)
+                .put("address", new Struct(NESTED).put("city", "Zürich, \"CH\""))),
+            createRecord(SCHEMA, new Struct(SCHEMA).put("id", 2).put("name", null).put("score", Double.NaN)));
+    }
+
+    private static CsvDbWriter writer(LoadDataFormat format) {
+        SingleStoreSinkConfig config = config(Collections.singletonMap(SingleStoreSinkConfig.LOAD_DATA_FORMAT, format.name()));
+        return new CsvDbWriter(config, records().get(0), "t", new ColumnAccessorPlanCache());
+    }
+
+    private static String write(RecordEncoder encoder) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        encoder.writeData(stream, records());
+        return new String(stream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void tsv() throws IOException {
+        CsvDbWriter writer = writer(LoadDataFormat.tsv);
+        assertEquals("LOAD DATA LOCAL INFILE '###.gz'  INTO TABLE `t` (`id`, `name`, `score`, `address`) ", writer.generateQuery("gz"));
+        assertEquals(
+            "1\ta,b\"c\\\\d\\\te\\\nf\t0.5\t{\"city\":\"Zürich, \\\\\"CH\\\\\"\"}\n" +
+            "2\t\\N\tNaN\t\\N\n",
+            write(writer));
+    }
+
+    @Test
+    public void csv() throws IOException {
+        CsvDbWriter writer = writer(LoadDataFormat.csv);
+        assertEquals("LOAD DATA LOCAL INFILE '###.gz'  INTO TABLE `t` FIELDS TERMINATED BY ',' ENCLOSED BY '\"' ESCAPED BY '\\\\' " +
+            "(`id`, `name`, `score`, `address`) ", writer.generateQuery("gz"));
+        // strings are enclosed, nested JSON is escaped
+        assertEquals(
+            "1,\"a\\,b\\\"c\\\\d\te\\\nf\",0.5,{\\\"city\\\":\\\"Zürich\\, \\\\\\\"CH\\\\\\\"\\\"}\n" +
+            "2,\\N,NaN,\\N\n",
+            write(writer));
+    }
+
+    @Test
+    public void json() throws IOException {
+        CsvDbWriter writer = writer(LoadDataFormat.json);
+        assertEquals("LOAD DATA LOCAL INFILE '###.gz'  INTO TABLE `t` FORMAT JSON " +
+            "(`id` <- `id`, `name` <- `name`, `score` <- `score`, `address` <- `address`) ", writer.generateQuery("gz"));
+        // nested values are written as JSON, not as escaped strings
+        assertEquals(
+            "{\"id\":1,\"name\":\"a,b\\\"c\\\\d\\u0009e\\u000af\",\"score\":0.5,\"address\":{\"city\":\"Zürich, \\\"CH\\\"\"}}\n" +
+            "{\"id\":2,\"name\":null,\"score\":\"NaN\",\"address\":null}\n",
+            write(writer));
+    }
+
+    @Test
+    public void jsonDocumentsOfMappedPaths() throws IOException {
+        SingleStoreSinkConfig config = config(Collections.singletonMap(SingleStoreSinkConfig.LOAD_DATA_FORMAT, "json"));
+        List<ColumnMapping> mappings = Arrays.asList(
+            new ColumnMapping("c_city", "address.city"),
+            new ColumnMapping("c_id", "id"),
+            new ColumnMapping("c_address", "address"));
+        ColumnAccessorPlanCache planCache = new ColumnAccessorPlanCache();
+        ColumnProjection projection = ColumnProjection.of("t", records().get(0), Collections.emptySet(), mappings, null, planCache);
+        CsvDbWriter writer = new CsvDbWriter(config, projection, "t", planCache, LoadDataFormat.json);
+
+        // paths are resolved by the server, documents contain only the top-level fields of the paths
+        assertEquals("LOAD DATA LOCAL INFILE '###.gz'  INTO TABLE `t` FORMAT JSON " +
+            "(`c_city` <- `address`::`city` DEFAULT NULL, `c_id` <- `id` DEFAULT NULL, `c_address` <- `address` DEFAULT NULL) ",
+            writer.generateQuery("gz"));
+        assertEquals(
+            "{\"address\":{\"city\":\"Zürich, \\\"CH\\\"\"},\"id\":1}\n" +
+            "{\"address\":null,\"id\":2}\n",
+            write(writer));
+
+        Map<String, Object> value = new HashMap<>();
+        value.put("id", 3);
+        value.put("address", Collections.singletonMap("city", "Oslo"));
+        value.put("name", "n");
+        SinkRecord schemaless = createRecord(null, value);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        writer.writeData(stream, Collections.singletonList(schemaless));
+        assertEquals("{\"address\":{\"city\":\"Oslo\"},\"id\":3}\n", new String(stream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void jsonSchemalessValues() throws IOException {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("id", 1);
+        value.put("tags", Arrays.asList("a", "b"));
+        value.put("bytes", "b\u0001".getBytes(StandardCharsets.UTF_8));
+        SingleStoreSinkConfig config = config(Collections.singletonMap(SingleStoreSinkConfig.LOAD_DATA_FORMAT, "Json"));
+        SinkRecord record = createRecord(null, value);
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        new CsvDbWriter(config, record, "t", new ColumnAccessorPlanCache()).writeData(stream, Collections.singletonList(record));
+        assertEquals("{\"id\":1,\"tags\":[\"a\",\"b\"],\"bytes\":\"b\\u0001\"}\n", new String(stream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void encoderOutput() throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        TsvEncoder encoder = LoadDataFormat.json.createEncoder(stream, Arrays.asList("a\"", "б"));
+        encoder.writeRowStart();
+        encoder.writeString("😀 \uD800");
+        encoder.writeFieldSeparator();
+        encoder.writeBytes(new byte[]{(byte) 0xff});
+        encoder.writeRowSeparator();
+        encoder.flush();
+        assertEquals("{\"a\\\"\":\"😀 ?\",\"б\":\"�\"}\n", new String(stream.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void formatOfTableOrTopic() {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.LOAD_DATA_FORMAT, "csv");
+        props.put("singlestore.loadDataFormat.t1", "JSON");
+        props.put("singlestore.loadDataFormat.topic", "tsv");
+        SingleStoreSinkConfig config = config(props);
+
+        assertEquals(LoadDataFormat.json, config.getLoadDataFormat("t1", "topic"));
+        assertEquals(LoadDataFormat.tsv, config.getLoadDataFormat("t2", "topic"));
+        assertEquals(LoadDataFormat.csv, config.getLoadDataFormat("t2", "other"));
+        assertEquals(LoadDataFormat.tsv, config(Collections.emptyMap()).getLoadDataFormat("t", "topic"));
+
+        try {
+            config(Collections.singletonMap("singlestore.loadDataFormat.t1", "xml"));
+            fail("Exception should be thrown");
+        } catch (ConfigException ex) {
+            assertEquals("Configuration \"singlestore.loadDataFormat.t1\" is wrong. Available options: TSV, CSV, JSON", ex.getMessage());
+        }
+    }
+}
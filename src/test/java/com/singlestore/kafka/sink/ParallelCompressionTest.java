@@ -0,0 +1,123 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.DataCompression;
+import com.singlestore.kafka.utils.DataExtension;
+import com.singlestore.kafka.utils.ParallelCompressionOutputStream;
+import com.github.luben.zstd.ZstdInputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class ParallelCompressionTest {
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(3);
+
+    @AfterClass
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static byte[] data(int size) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append(i).append('\t').append("value").append(i % 17).append('\n');
+        }
+        return sb.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] compress(DataCompression compression, int level, int blockSize, byte[] data, int chunk) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataExtension extension = DataExtension.forParallelCompression(compression, level, blockSize, executor, 3, out);
+        try (OutputStream stream = extension.getOutputStream()) {
+            for (int off = 0; off < data.length; off += chunk) {
+                stream.write(data, off, Math.min(chunk, data.length - off));
+            }
+            stream.write('!');
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] expected(byte[] data) {
+        byte[] res = new byte[data.length + 1];
+        System.arraycopy(data, 0, res, 0, data.length);
+        res[data.length] = '!';
+        return res;
+    }
+
+    @Test
+    public void gzipMembers() throws IOException {
+        byte[] data = data(100000);
+        for (int level: new int[]{-1, 1, 9}) {
+            byte[] compressed = compress(DataCompression.gzip, level, 4096, data, 1000);
+            assertArrayEquals(expected(data), readAll(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+        }
+    }
+
+    @Test
+    public void zstdFrames() throws IOException {
+        byte[] data = data(100000);
+        for (int level: new int[]{-1, 1, 19}) {
+            byte[] compressed = compress(DataCompression.zstd, level, 4096, data, 3000);
+            assertArrayEquals(expected(data), readAll(new ZstdInputStream(new ByteArrayInputStream(compressed))));
+        }
+    }
+
+    @Test
+    public void zstdIsNegotiatedWithServer() {
+        assertEquals(DataCompression.lz4, DataCompression.zstd.negotiate("7.8.19"));
+        assertEquals(DataCompression.lz4, DataCompression.zstd.negotiate("8.5.22"));
+        assertEquals(DataCompression.zstd, DataCompression.zstd.negotiate("8.7.0"));
+        assertEquals(DataCompression.zstd, DataCompression.zstd.negotiate("8.9.3-beta"));
+        assertEquals(DataCompression.zstd, DataCompression.zstd.negotiate("10.0"));
+        assertEquals(DataCompression.gzip, DataCompression.gzip.negotiate("7.0.0"));
+    }
+
+    @Test
+    public void lz4Frames() throws IOException {
+        byte[] data = data(100000);
+        for (int level: new int[]{-1, 9}) {
+            byte[] compressed = compress(DataCompression.lz4, level, 4096, data, 7000);
+            assertArrayEquals(expected(data), readAll(new LZ4FrameInputStream(new ByteArrayInputStream(compressed))));
+        }
+    }
+
+    @Test
+    public void emptyStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ParallelCompressionOutputStream(out, o -> o, 1024, executor, 2).close();
+        assertEquals(0, out.size());
+    }
+
+    @Test
+    public void blockFailure() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ParallelCompressionOutputStream stream = new ParallelCompressionOutputStream(out, o -> {
+            throw new IOException("codec failure");
+        }, 1024, executor, 2);
+        try {
+            stream.write(new byte[4096]);
+            stream.close();
+            fail("Should have thrown an exception");
+        } catch (IOException ex) {
+            assertEquals("codec failure", ex.getMessage());
+        }
+    }
+}
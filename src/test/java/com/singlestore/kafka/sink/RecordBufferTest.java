@@ -0,0 +1,139 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.RecordBuffer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RecordBufferTest {
+
+    private static SinkRecord record(String topic, int partition, long offset, String value) {
+        return new SinkRecord(topic, partition, null, null, Schema.STRING_SCHEMA, value, offset);
+    }
+
+    private static List<SinkRecord> records(String topic, int partition, long fromOffset, int count) {
+        List<SinkRecord> res = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            res.add(record(topic, partition, fromOffset + i, "value"));
+        }
+        return res;
+    }
+
+    @Test
+    public void flushOnMaxRecords() {
+        RecordBuffer buffer = new RecordBuffer(10, Long.MAX_VALUE, Long.MAX_VALUE);
+        assertFalse(buffer.shouldFlush(0));
+        buffer.add(records("t", 0, 0, 9), 0);
+        assertFalse(buffer.shouldFlush(0));
+        buffer.add(records("t", 0, 9, 1), 0);
+        assertTrue(buffer.shouldFlush(0));
+        assertEquals(10, buffer.getRecords().size());
+
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.getBytes());
+        assertFalse(buffer.shouldFlush(0));
+    }
+
+    @Test
+    public void flushOnMaxBytes() {
+        RecordBuffer buffer = new RecordBuffer(Integer.MAX_VALUE, 1000, Long.MAX_VALUE);
+        char[] value = new char[400];
+        Arrays.fill(value, 'a');
+        buffer.add(Collections.singletonList(record("t", 0, 0, new String(value))), 0);
+        assertFalse(buffer.shouldFlush(0));
+        buffer.add(Collections.singletonList(record("t", 0, 1, new String(value))), 0);
+        assertFalse(buffer.shouldFlush(0));
+        buffer.add(Collections.singletonList(record("t", 0, 2, new String(value))), 0);
+        assertTrue(buffer.shouldFlush(0));
+        assertTrue(buffer.getBytes() >= 1200);
+    }
+
+    @Test
+    public void flushOnLinger() {
+        RecordBuffer buffer = new RecordBuffer(Integer.MAX_VALUE, Long.MAX_VALUE, 100);
+        buffer.add(records("t", 0, 0, 1), 1000);
+        buffer.add(records("t", 0, 1, 1), 1050);
+        assertFalse(buffer.shouldFlush(1099));
+        assertTrue(buffer.shouldFlush(1100));
+
+        RecordBuffer noLinger = new RecordBuffer(Integer.MAX_VALUE, Long.MAX_VALUE, 0);
+        noLinger.add(records("t", 0, 0, 1), 1000);
+        assertTrue(noLinger.shouldFlush(1000));
+    }
+
+    @Test
+    public void redeliveredRecordsAreSkipped() {
+        RecordBuffer buffer = new RecordBuffer(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        buffer.add(records("t", 0, 0, 5), 0);
+        buffer.add(records("t", 1, 0, 5), 0);
+        long bytes = buffer.getBytes();
+
+        buffer.add(records("t", 0, 0, 5), 0);
+        assertEquals(10, buffer.getRecords().size());
+        assertEquals(bytes, buffer.getBytes());
+
+        buffer.add(records("t", 0, 3, 5), 0);
+        assertEquals(13, buffer.getRecords().size());
+
+        buffer.clear();
+        buffer.add(records("t", 0, 0, 5), 0);
+        assertEquals(5, buffer.getRecords().size());
+    }
+
+    @Test
+    public void rewoundRecordsAreSkippedAcrossPuts() {
+        RecordBuffer buffer = new RecordBuffer(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        buffer.add(records("t", 0, 0, 5), 0);
+        buffer.add(records("t", 0, 5, 5), 0);
+        buffer.add(records("t", 1, 0, 2), 0);
+        assertEquals(12, buffer.getRecords().size());
+
+        // the partition is rewound to offset 3 and its records are delivered again in batches with other boundaries,
+        // together with new records and records of another partition
+        buffer.add(records("t", 0, 3, 4), 0);
+        assertEquals(12, buffer.getRecords().size());
+        List<SinkRecord> redelivery = new ArrayList<>(records("t", 0, 7, 5));
+        redelivery.addAll(records("t", 1, 2, 1));
+        buffer.add(redelivery, 0);
+        assertEquals(15, buffer.getRecords().size());
+
+        List<Long> offsets = new ArrayList<>();
+        for (SinkRecord record: buffer.getRecords()) {
+            if (record.kafkaPartition() == 0) {
+                offsets.add(record.kafkaOffset());
+            }
+        }
+        assertEquals(Arrays.asList(0L, 1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L, 11L), offsets);
+    }
+
+    @Test
+    public void removePartitions() {
+        RecordBuffer buffer = new RecordBuffer(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE);
+        buffer.add(records("t", 0, 0, 5), 0);
+        buffer.add(records("t", 1, 0, 3), 0);
+
+        buffer.removePartitions(Collections.singletonList(new TopicPartition("t", 0)));
+        assertEquals(3, buffer.getRecords().size());
+        for (SinkRecord record: buffer.getRecords()) {
+            assertEquals(1, record.kafkaPartition().intValue());
+        }
+
+        // records of the removed partition can be buffered again after the partition is reassigned
+        buffer.add(records("t", 0, 0, 5), 0);
+        assertEquals(8, buffer.getRecords().size());
+
+        buffer.removePartitions(Arrays.asList(new TopicPartition("t", 0), new TopicPartition("t", 1)));
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.getBytes());
+        assertFalse(buffer.shouldFlush(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,177 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.ConnectionPool;
+import com.singlestore.kafka.utils.TableMetadata;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.sink.SinkRecord;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SingleStoreDbWriterTest {
+
+    private static List<SinkRecord> records(int partition, int count) {
+        List<SinkRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(new SinkRecord("t", partition, null, null, Schema.INT32_SCHEMA, i, i));
+        }
+        return records;
+    }
+
+    @Test
+    public void splitByPartition() {
+        List<SinkRecord> records = new ArrayList<>();
+        records.addAll(records(0, 2));
+        records.addAll(records(1, 5));
+        records.addAll(records(2, 3));
+        records.addAll(records(3, 1));
+        records.addAll(records(0, 2));
+
+        List<List<SinkRecord>> shards = SingleStoreDbWriter.splitByPartition(records, 2);
+        assertEquals(2, shards.size());
+        List<SinkRecord> expected = new ArrayList<>(records(1, 5));
+        expected.addAll(records(3, 1));
+        assertEquals(expected, shards.get(0));
+        // records of one partition keep their order
+        expected = new ArrayList<>(records(0, 2));
+        expected.addAll(records(0, 2));
+        expected.addAll(records(2, 3));
+        assertEquals(expected, shards.get(1));
+    }
+
+    @Test
+    public void splitByPartitionWithFewPartitions() {
+        List<SinkRecord> records = new ArrayList<>(records(0, 3));
+        assertEquals(1, SingleStoreDbWriter.splitByPartition(records, 4).size());
+
+        records.addAll(records(1, 1));
+        List<List<SinkRecord>> shards = SingleStoreDbWriter.splitByPartition(records, 4);
+        assertEquals(2, shards.size());
+        assertEquals(records(0, 3), shards.get(0));
+        assertEquals(records(1, 1), shards.get(1));
+    }
+
+    @Test
+    public void groupBySchema() {
+        Schema v1 = SchemaBuilder.struct().field("a", Schema.INT32_SCHEMA).build();
+        Schema v2 = SchemaBuilder.struct().field("a", Schema.INT32_SCHEMA).field("b", Schema.OPTIONAL_STRING_SCHEMA).build();
+        Map<String, Object> ab = new HashMap<>();
+        ab.put("a", 1);
+        ab.put("b", 2);
+        Map<String, Object> ba = new LinkedHashMap<>();
+        ba.put("b", 3);
+        ba.put("a", 4);
+        Map<String, Object> a = Collections.singletonMap("a", 5);
+
+        SinkRecord r1 = new SinkRecord("t", 0, null, null, v1, new Struct(v1).put("a", 1), 0);
+        SinkRecord r2 = new SinkRecord("t", 0, null, null, v2, new Struct(v2).put("a", 2), 1);
+        SinkRecord r3 = new SinkRecord("t", 0, null, null, v1, new Struct(v1).put("a", 3), 2);
+        SinkRecord r4 = new SinkRecord("t", 0, null, null, null, ab, 3);
+        SinkRecord r5 = new SinkRecord("t", 0, null, null, null, a, 4);
+        SinkRecord r6 = new SinkRecord("t", 0, null, null, null, ba, 5);
+        List<SinkRecord> records = Arrays.asList(r1, r2, r3, r4, r5, r6);
+
+        assertEquals(Arrays.asList(Arrays.asList(r1, r3), Collections.singletonList(r2), Arrays.asList(r4, r6), Collections.singletonList(r5)),
+            SingleStoreDbWriter.groupBySchema(records, false));
+        assertEquals(Arrays.asList(Collections.singletonList(r1), Collections.singletonList(r2), Collections.singletonList(r3),
+                Collections.singletonList(r4), Collections.singletonList(r5), Collections.singletonList(r6)),
+            SingleStoreDbWriter.groupBySchema(records, true));
+        assertEquals(Collections.singletonList(Arrays.asList(r1, r3)),
+            SingleStoreDbWriter.groupBySchema(Arrays.asList(r1, r3), true));
+    }
+
+    // CountingConnectionPool hands out connections that only count commits and how many of them are borrowed at once
+    // borrowing fails immediately when all connections of the pool are in use
+    private static class CountingConnectionPool extends ConnectionPool {
+        final Semaphore permits;
+        final AtomicInteger inUse = new AtomicInteger();
+        final AtomicInteger maxInUse = new AtomicInteger();
+        final AtomicInteger commits = new AtomicInteger();
+
+        CountingConnectionPool(SingleStoreSinkConfig config) {
+            super(config);
+            this.permits = new Semaphore(config.connectionPoolMaxSize);
+        }
+
+        @Override
+        public Connection getDMLConnection() throws SQLException {
+            if (!permits.tryAcquire()) {
+                throw new SQLException("All connections of the pool are in use");
+            }
+            maxInUse.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+            AtomicBoolean closed = new AtomicBoolean();
+            Statement stmt = (Statement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> null);
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "createStatement":
+                            return stmt;
+                        case "commit":
+                            commits.incrementAndGet();
+                            return null;
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                inUse.decrementAndGet();
+                                permits.release();
+                            }
+                            return null;
+                        default:
+                            return null;
+                    }
+                });
+        }
+    }
+
+    @Test
+    public void writeInParallelHoldsConnectionsOfLoadsOnly() throws SQLException {
+        Map<String, String> props = new HashMap<>();
+        props.put(SingleStoreSinkConfig.DDL_ENDPOINT, "localhost:3306");
+        props.put(SingleStoreSinkConfig.CONNECTION_DATABASE, "db");
+        props.put(SingleStoreSinkConfig.METADATA_TABLE_ALLOW, "false");
+        props.put(SingleStoreSinkConfig.CONNECTION_POOL_MAX_SIZE, "5");
+        props.put(SingleStoreSinkConfig.TABLE_WRITE_PARALLELISM, "4");
+        SingleStoreSinkConfig config = new SingleStoreSinkConfig(props, false);
+
+        // more tables than connections in the pool
+        Map<String, List<List<SinkRecord>>> tableToGroups = new HashMap<>();
+        Map<String, TableMetadata> tableMetadata = new HashMap<>();
+        for (int i = 0; i < 12; i++) {
+            tableToGroups.put("t" + i, Collections.singletonList(records(0, 1)));
+            tableMetadata.put("t" + i, new TableMetadata(false, null, System.currentTimeMillis()));
+        }
+
+        Set<String> loaded = Collections.synchronizedSet(new HashSet<>());
+        try (CountingConnectionPool pool = new CountingConnectionPool(config);
+             SingleStoreDbWriter writer = new SingleStoreDbWriter(config, pool) {
+                 @Override
+                 void writeGroups(String table, TableMetadata metadata, List<List<SinkRecord>> groups, Statement stmt) {
+                     try {
+                         Thread.sleep(20);
+                     } catch (InterruptedException ex) {
+                         Thread.currentThread().interrupt();
+                     }
+                     loaded.add(table);
+                 }
+             }) {
+            writer.writeInParallel(tableToGroups, tableMetadata);
+
+            assertEquals(tableToGroups.keySet(), loaded);
+            // every table is committed as soon as it is loaded
+            assertEquals(12, pool.commits.get());
+            assertEquals(0, pool.inUse.get());
+            assertTrue(pool.maxInUse.get() <= 4);
+        }
+    }
+}
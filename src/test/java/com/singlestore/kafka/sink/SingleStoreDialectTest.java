@@ -118,4 +118,29 @@ public class SingleStoreDialectTest {
         assertEquals(SingleStoreDialect.escapeColumnNames(Collections.singletonList("qwe-rty")), "`qwe-rty`");
         assertEquals(SingleStoreDialect.escapeColumnNames(Collections.emptyList()), "");
     }
+
+    @Test
+    public void kafkaMetadataSchema() {
+        assertEquals("(\n" +
+                "  id VARCHAR(255) PRIMARY KEY,\n" +
+                "  count INT NOT NULL,\n" +
+                "  createdAt TIMESTAMP DEFAULT NOW(),\n" +
+                "  topic VARCHAR(255),\n" +
+                "  `partition` INT,\n" +
+                "  minOffset BIGINT,\n" +
+                "  maxOffset BIGINT,\n" +
+                "  KEY (topic, `partition`, maxOffset),\n" +
+                "  KEY (createdAt)\n" +
+                ")", SingleStoreDialect.getKafkaMetadataSchema());
+    }
+
+    @Test
+    public void addColumnsQuery() {
+        Schema schema = SchemaBuilder.struct()
+                .field("f1", Schema.OPTIONAL_STRING_SCHEMA)
+                .field("f`2", Schema.OPTIONAL_INT64_SCHEMA)
+                .build();
+        assertEquals("ALTER TABLE `t` ADD COLUMN `f1` TEXT, ADD COLUMN `f``2` BIGINT",
+                SingleStoreDialect.getAddColumnsQuery("t", schema.fields()));
+    }
 }
@@ -0,0 +1,89 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.StreamingPipe;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class StreamingPipeTest {
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream res = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int n;
+        while ((n = inputStream.read(buffer, 0, buffer.length)) != -1) {
+            res.write(buffer, 0, n);
+        }
+        return res.toByteArray();
+    }
+
+    @Test
+    public void dataLargerThanBuffer() throws Exception {
+        byte[] data = new byte[1000000];
+        new Random(42).nextBytes(data);
+        StreamingPipe pipe = new StreamingPipe(1024);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> producer = executor.submit(() -> {
+                try (OutputStream outputStream = pipe.getOutputStream()) {
+                    for (int i = 0; i < data.length; i += 777) {
+                        outputStream.write(data, i, Math.min(777, data.length - i));
+                    }
+                }
+                return null;
+            });
+            assertArrayEquals(data, readAll(pipe.getInputStream()));
+            producer.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void producerFailureIsPropagated() throws Exception {
+        StreamingPipe pipe = new StreamingPipe(1024);
+        pipe.getOutputStream().write(new byte[100]);
+        pipe.fail(new IllegalStateException("encoding failed"));
+        pipe.getOutputStream().close();
+        try {
+            readAll(pipe.getInputStream());
+            fail("IOException should be thrown");
+        } catch (IOException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void cancelUnblocksProducer() throws Exception {
+        StreamingPipe pipe = new StreamingPipe(1024);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> producer = executor.submit(() -> {
+                OutputStream outputStream = pipe.getOutputStream();
+                while (true) {
+                    outputStream.write(new byte[512]);
+                }
+            });
+            pipe.getInputStream().read();
+            pipe.cancel();
+            try {
+                producer.get();
+                fail("IOException should be thrown");
+            } catch (ExecutionException ex) {
+                assertTrue(ex.getCause() instanceof IOException);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
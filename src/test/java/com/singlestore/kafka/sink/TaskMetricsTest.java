@@ -0,0 +1,96 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.MeteredOutputStream;
+import com.singlestore.kafka.utils.TaskMetrics;
+import com.singlestore.kafka.utils.WriteMetrics;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class TaskMetricsTest {
+
+    @Test
+    public void loadsAreAggregatedByTable() {
+        TaskMetrics metrics = new TaskMetrics();
+        metrics.recordLoad("t1", 10, 100, 50, 1000000, 2000000, 3000000);
+        metrics.recordLoad("t1", 1000, 10000, 5000, 1000000, 2000000, 3000000);
+        metrics.recordLoad("t2", 5, 20, 10, 0, 0, 0);
+        metrics.recordMetadataSkip("t2");
+        metrics.recordMetadataSkip(null);
+
+        assertEquals(1015, metrics.getRecordsWritten());
+        assertEquals(10120, metrics.getRawBytesWritten());
+        assertEquals(5060, metrics.getCompressedBytesWritten());
+        assertEquals(3, metrics.getLoadDataCount());
+        assertEquals(2.0, metrics.getSerializationTimeMs(), 0.001);
+        assertEquals(4.0, metrics.getCompressionTimeMs(), 0.001);
+        assertEquals(6.0, metrics.getLoadDataTimeMs(), 0.001);
+        assertEquals(2, metrics.getMetadataSkips());
+        assertEquals(1000, metrics.getLoadBatchSizeMax());
+        assertArrayEquals(new long[]{0, 2, 0, 1, 0, 0, 0}, metrics.getLoadBatchSizeHistogram());
+
+        WriteMetrics t1 = metrics.getTableMetrics("t1");
+        assertEquals(1010, t1.getRecordsWritten());
+        assertEquals(2, t1.getLoadDataCount());
+        assertEquals(0, t1.getMetadataSkips());
+        assertEquals(505.0, t1.getLoadBatchSizeAvg(), 0.001);
+        assertEquals(1, metrics.getTableMetrics("t2").getMetadataSkips());
+    }
+
+    @Test
+    public void putsAndRetries() {
+        TaskMetrics metrics = new TaskMetrics();
+        metrics.recordPut(1);
+        metrics.recordPut(200000);
+        metrics.recordRetry();
+        metrics.recordFailedWrite();
+        metrics.recordTableMetadataRoundTrip();
+
+        assertEquals(2, metrics.getPutCount());
+        assertEquals(1, metrics.getRetries());
+        assertEquals(1, metrics.getFailedWrites());
+        assertEquals(1, metrics.getTableMetadataRoundTrips());
+        assertArrayEquals(new long[]{1, 0, 0, 0, 0, 0, 1}, metrics.getPutBatchSizeHistogram());
+        assertEquals(metrics.getPutBatchSizeBounds().length, metrics.getPutBatchSizeHistogram().length);
+    }
+
+    @Test
+    public void mbeansAreRegistered() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName taskPattern = new ObjectName("com.singlestore.kafka:type=sink-task-metrics,connector=\"metrics-test\",*");
+        ObjectName tablePattern = new ObjectName("com.singlestore.kafka:type=sink-table-metrics,connector=\"metrics-test\",*");
+
+        try (TaskMetrics metrics = new TaskMetrics()) {
+            metrics.recordLoad("before", 1, 1, 1, 0, 0, 0);
+            metrics.register("metrics-test");
+            metrics.recordLoad("after", 2, 1, 1, 0, 0, 0);
+
+            Set<ObjectName> tasks = server.queryNames(taskPattern, null);
+            assertEquals(1, tasks.size());
+            assertEquals(3L, server.getAttribute(tasks.iterator().next(), "RecordsWritten"));
+            assertEquals(2, server.queryNames(tablePattern, null).size());
+        }
+
+        assertTrue(server.queryNames(taskPattern, null).isEmpty());
+        assertTrue(server.queryNames(tablePattern, null).isEmpty());
+    }
+
+    @Test
+    public void meteredOutputStream() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MeteredOutputStream stream = new MeteredOutputStream(out);
+        stream.write(new byte[100], 10, 50);
+        stream.write(1);
+        stream.close();
+        assertEquals(51, stream.getBytes());
+        assertEquals(51, out.size());
+        assertTrue(stream.getNanos() >= 0);
+    }
+}
@@ -0,0 +1,117 @@
+package com.singlestore.kafka.sink;
+
+import com.singlestore.kafka.utils.TsvEncoder;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+
+public class TsvEncoderTest {
+
+    private interface EncoderAction {
+        void apply(TsvEncoder encoder) throws IOException;
+    }
+
+    private static byte[] encode(EncoderAction action) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        TsvEncoder encoder = new TsvEncoder(stream);
+        action.apply(encoder);
+        encoder.flush();
+        return stream.toByteArray();
+    }
+
+    private static byte[] expected(String value) {
+        return value.replace("\\", "\\\\")
+            .replace("\n", "\\\n")
+            .replace("\t", "\\\t")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void strings() throws IOException {
+        List<String> values = Arrays.asList(
+            "",
+            "asd",
+            "ab\\\t\nc",
+            "\\\\\t\t\n\n",
+            "кириллица",
+            "中文字符",
+            "emoji 😀 end",
+            "lone \uD800 high",
+            "lone \uDC00 low",
+            "high at the end \uD83D"
+        );
+        for (String value: values) {
+            assertArrayEquals(expected(value), encode(encoder -> encoder.writeString(value)));
+        }
+
+        StringBuilder longValue = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            longValue.append("a\tб\n😀\\");
+        }
+        assertArrayEquals(expected(longValue.toString()), encode(encoder -> encoder.writeString(longValue)));
+    }
+
+    @Test
+    public void bytes() throws IOException {
+        List<byte[]> values = Arrays.asList(
+            new byte[0],
+            "asd\t\\\n".getBytes(StandardCharsets.UTF_8),
+            "中文 😀".getBytes(StandardCharsets.UTF_8),
+            new byte[]{(byte) 0xff, 'a', (byte) 0xc3},
+            new byte[]{(byte) 0xed, (byte) 0xa0, (byte) 0x80},
+            new byte[]{(byte) 0xe0, (byte) 0x80, (byte) 0x80, '\t'},
+            new byte[]{(byte) 0xf4, (byte) 0x90, (byte) 0x80, (byte) 0x80}
+        );
+        for (byte[] value: values) {
+            assertArrayEquals(expected(new String(value, StandardCharsets.UTF_8)), encode(encoder -> encoder.writeBytes(value)));
+        }
+    }
+
+    @Test
+    public void numbers() throws IOException {
+        List<Object> values = Arrays.asList(
+            0, -1, 10, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Long.MAX_VALUE, Long.MIN_VALUE, (short) -10, (byte) 127,
+            10.1f, -0.0f, Float.NaN, Float.MIN_VALUE, 1.0e10f,
+            10.1d, Double.NEGATIVE_INFINITY, Double.MAX_VALUE, 1.0e-7d,
+            new BigDecimal("123.4500")
+        );
+        for (Object value: values) {
+            assertArrayEquals(expected(value.toString()), encode(encoder -> encoder.writeObject(value)));
+        }
+    }
+
+    @Test
+    public void separators() throws IOException {
+        assertArrayEquals("1\t0\t\\N\n".getBytes(StandardCharsets.UTF_8), encode(encoder -> {
+            encoder.writeBoolean(true);
+            encoder.writeFieldSeparator();
+            encoder.writeBoolean(false);
+            encoder.writeFieldSeparator();
+            encoder.writeNull();
+            encoder.writeRowSeparator();
+        }));
+    }
+
+    @Test
+    public void escapingStream() throws IOException {
+        String value = "{\"a\":\"b\\\\c\tд😀\n\"}";
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(expected(value + value), encode(encoder -> {
+            OutputStream stream = encoder.escapingStream();
+            stream.write(bytes);
+            for (byte b : bytes) {
+                stream.write(b);
+            }
+            stream.close();
+        }));
+    }
+}
@@ -195,4 +195,13 @@ public class ValueWithSchemaTest {
                 new ColumnMapping("c3", "f10")
             )));
     }
+
+    @Test
+    public void nestedJSONIsEscaped() throws IOException {
+        Schema schema = SchemaBuilder.array(Schema.STRING_SCHEMA).build();
+        assertEquals("[\"a\\\\tb\",\"c\\\\nd\",\"\\\\uD83D\\\\uDE00\"]",
+            new ValueWithSchema(createRecord(schema, Arrays.asList("a\tb", "c\nd", "😀"))).toCSV(Collections.singletonList("data")));
+        assertEquals("[\"a\\\\tb\",\"c\\\\nd\",\"😀\"]",
+            new ValueWithSchema(createRecord(null, Arrays.asList("a\tb", "c\nd", "😀"))).toCSV(Collections.singletonList("data")));
+    }
 }
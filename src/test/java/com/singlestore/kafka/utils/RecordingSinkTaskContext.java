@@ -0,0 +1,61 @@
+package com.singlestore.kafka.utils;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.connect.sink.SinkTaskContext;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// RecordingSinkTaskContext saves offsets requested by the task instead of moving a consumer
+public class RecordingSinkTaskContext implements SinkTaskContext {
+
+    private final Set<TopicPartition> assignment = new HashSet<>();
+    private final Map<TopicPartition, Long> offsets = new HashMap<>();
+
+    public RecordingSinkTaskContext(Set<TopicPartition> assignment) {
+        this.assignment.addAll(assignment);
+    }
+
+    @Override
+    public Map<String, String> configs() {
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public void offset(Map<TopicPartition, Long> offsets) {
+        this.offsets.putAll(offsets);
+    }
+
+    @Override
+    public void offset(TopicPartition tp, long offset) {
+        offsets.put(tp, offset);
+    }
+
+    @Override
+    public void timeout(long timeoutMs) {
+    }
+
+    @Override
+    public Set<TopicPartition> assignment() {
+        return assignment;
+    }
+
+    @Override
+    public void pause(TopicPartition... partitions) {
+    }
+
+    @Override
+    public void resume(TopicPartition... partitions) {
+    }
+
+    @Override
+    public void requestCommit() {
+    }
+
+    public Map<TopicPartition, Long> getOffsets() {
+        return offsets;
+    }
+}